@@ -3,14 +3,18 @@ package com.borsibaar;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
-import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Profiles;
 
 @SpringBootApplication(exclude = { SecurityAutoConfiguration.class })
-@EnableScheduling
 public class BorsibaarApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(BorsibaarApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(BorsibaarApplication.class, args);
+		// One-off runs like the pricing backtest end once their runner is done
+		if (context.getEnvironment().acceptsProfiles(Profiles.of("backtest"))) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
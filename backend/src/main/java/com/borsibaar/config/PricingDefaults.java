@@ -0,0 +1,18 @@
+package com.borsibaar.config;
+
+import java.time.Duration;
+
+/**
+ * Pricing settings used when an organization leaves them unset.
+ */
+public final class PricingDefaults {
+
+    /**
+     * Interval of the price correction tick of an organization without
+     * {@code Organization.priceTickSeconds}.
+     */
+    public static final Duration TICK_INTERVAL = Duration.ofSeconds(60);
+
+    private PricingDefaults() {
+    }
+}
@@ -1,7 +1,10 @@
 package com.borsibaar.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
@@ -14,4 +17,39 @@ public class SchedulerConfig {
         scheduler.setThreadNamePrefix("scheduler-");
         return scheduler;
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs the price correction ticks of all organizations, so that a slow
+     * organization only holds up one thread and not the other jobs.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler pricingTaskScheduler(@Value("${app.pricing.tick.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("pricing-");
+        return scheduler;
+    }
+
+    /**
+     * Renews the leases of running cluster jobs. Kept apart from the job
+     * schedulers, whose threads may all be busy with the very jobs whose leases
+     * need renewing.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler jobLockRenewalScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("job-lock-");
+        return scheduler;
+    }
+
+    /**
+     * Turns on the {@code @Scheduled} jobs. Tests switch them off with
+     * {@code app.scheduling.enabled=false} and call the jobs themselves.
+     */
+    @Configuration
+    @EnableScheduling
+    @ConditionalOnProperty(name = "app.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+    static class SchedulingConfig {
+    }
+}
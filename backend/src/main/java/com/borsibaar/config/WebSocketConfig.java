@@ -1,6 +1,7 @@
 package com.borsibaar.config;
 
 import com.borsibaar.ws.OrderStatusWebSocketHandler;
+import com.borsibaar.ws.PriceTickerWebSocketHandler;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
@@ -13,10 +14,13 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 public class WebSocketConfig implements WebSocketConfigurer {
 
     private final OrderStatusWebSocketHandler handler;
+    private final PriceTickerWebSocketHandler priceTickerHandler;
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(handler, "/ws/order-status")
                 .setAllowedOrigins("http://localhost:3000", "https://borsibaar.com");
+        registry.addHandler(priceTickerHandler, "/ws/prices")
+                .setAllowedOrigins("http://localhost:3000", "https://borsibaar.com");
     }
 }
@@ -4,15 +4,24 @@ import com.borsibaar.api.InventoryApi;
 import com.borsibaar.dto.*;
 import com.borsibaar.entity.User;
 import com.borsibaar.service.InventoryService;
+import com.borsibaar.service.InventorySnapshotCache;
+import com.borsibaar.service.LowStockMonitor;
+import com.borsibaar.service.SalesRollupService;
 import com.borsibaar.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 
 @Slf4j
@@ -23,6 +32,9 @@ import java.util.List;
 public class InventoryApiDelegateImpl extends AbstractApiDelegateImpl implements InventoryApi {
 
     private final InventoryService inventoryService;
+    private final SalesRollupService salesRollupService;
+    private final InventorySnapshotCache inventorySnapshotCache;
+    private final LowStockMonitor lowStockMonitor;
 
     @Override
     public ResponseEntity<InventoryResponseDto> addStock(AddStockRequestDto request) {
@@ -39,17 +51,65 @@ public class InventoryApiDelegateImpl extends AbstractApiDelegateImpl implements
     }
 
     @Override
-    public ResponseEntity<List<InventoryResponseDto>> getOrganizationInventory(Long categoryId, Long organizationId) {
-        // If organizationId is provided, use it (for public access)
-        // Otherwise, get from authenticated user
-        Long orgId;
-        if (organizationId != null) {
-            orgId = organizationId;
-        } else {
-            User user = SecurityUtils.getCurrentUser();
-            orgId = user.getOrganizationId();
+    public ResponseEntity<List<InventoryResponseDto>> getOrganizationInventory(Long categoryId, Long organizationId,
+                                                                               String ifNoneMatch) {
+        Long orgId = resolveOrganizationId(organizationId);
+
+        // Boards poll this; answer unchanged lists without building them
+        String etag = inventorySnapshotCache.etag(orgId, categoryId);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
         }
-        return ResponseEntity.ok(inventoryService.getByOrganization(orgId, categoryId));
+
+        InventorySnapshotCache.Snapshot snapshot = inventorySnapshotCache.get(orgId, categoryId);
+        return ResponseEntity.ok()
+                .eTag(snapshot.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(snapshot.items());
+    }
+
+    @Override
+    public ResponseEntity<Resource> getMarketBoard(Long organizationId, String ifNoneMatch) {
+        Long orgId = resolveOrganizationId(organizationId);
+
+        String etag = inventorySnapshotCache.boardEtag(orgId);
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
+        // The board is serialized once per inventory version; send those bytes as they are
+        InventorySnapshotCache.Board board = inventorySnapshotCache.board(orgId);
+        return ResponseEntity.ok()
+                .eTag(board.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ByteArrayResource(board.json()));
+    }
+
+    @Override
+    public ResponseEntity<List<LowStockItemDto>> getLowStock() {
+        User user = SecurityUtils.getCurrentUser();
+        return ResponseEntity.ok(lowStockMonitor.lowStock(user.getOrganizationId()));
+    }
+
+    @Override
+    public ResponseEntity<List<LowStockAlertDto>> getLowStockAlerts(Long after) {
+        User user = SecurityUtils.getCurrentUser();
+        return ResponseEntity.ok(lowStockMonitor.alerts(user.getOrganizationId(), after));
+    }
+
+    @Override
+    public ResponseEntity<PriceSeriesDto> getPriceSeries(Long productId, Instant from, Instant to,
+                                                         CandleIntervalDto interval) {
+        User user = SecurityUtils.getCurrentUser();
+        return ResponseEntity.ok(inventoryService.getPriceSeries(productId, user.getOrganizationId(), from, to,
+                interval));
     }
 
     @Override
@@ -66,9 +126,12 @@ public class InventoryApiDelegateImpl extends AbstractApiDelegateImpl implements
     }
 
     @Override
-    public ResponseEntity<List<InventoryTransactionResponseDto>> getTransactionHistory(Long productId) {
+    public ResponseEntity<InventoryTransactionPageDto> getTransactionHistory(Long productId, Instant from, Instant to,
+                                                                             String type, String cursor,
+                                                                             Integer limit) {
         User user = SecurityUtils.getCurrentUser();
-        return ResponseEntity.ok(inventoryService.getTransactionHistory(productId, user.getOrganizationId()));
+        return ResponseEntity.ok(inventoryService.getTransactionHistory(productId, user.getOrganizationId(), from, to,
+                type, cursor, limit));
     }
 
     @Override
@@ -77,9 +140,42 @@ public class InventoryApiDelegateImpl extends AbstractApiDelegateImpl implements
         return ResponseEntity.ok(inventoryService.getUserSalesStats(user.getOrganizationId()));
     }
 
+    @Override
+    public ResponseEntity<Void> rebuildSalesStats() {
+        User user = SecurityUtils.getCurrentUser();
+        SecurityUtils.requireAdminRole(user);
+        salesRollupService.rebuild(user.getOrganizationId());
+        return ResponseEntity.noContent().build();
+    }
+
     @Override
     public ResponseEntity<InventoryResponseDto> removeStock(RemoveStockRequestDto request) {
         User user = SecurityUtils.getCurrentUser();
         return ResponseEntity.ok(inventoryService.removeStock(request, user.getId(), user.getOrganizationId()));
     }
+
+    /**
+     * If organizationId is provided, use it (for public access).
+     * Otherwise, get it from the authenticated user.
+     */
+    private static Long resolveOrganizationId(Long organizationId) {
+        if (organizationId != null) {
+            return organizationId;
+        }
+        User user = SecurityUtils.getCurrentUser();
+        return user.getOrganizationId();
+    }
+
+    /**
+     * If-None-Match uses weak comparison and may list several tags or "*".
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(etag));
+    }
 }
@@ -3,6 +3,7 @@ package com.borsibaar.delegate;
 import com.borsibaar.api.ProductApi;
 import com.borsibaar.dto.ProductRequestDto;
 import com.borsibaar.dto.ProductResponseDto;
+import com.borsibaar.dto.ReorderThresholdRequestDto;
 import com.borsibaar.entity.User;
 import com.borsibaar.service.ProductService;
 import com.borsibaar.util.SecurityUtils;
@@ -40,4 +41,11 @@ public class ProductApiDelegateImpl extends AbstractApiDelegateImpl implements P
     public ResponseEntity<ProductResponseDto> getProductById(Long id) {
         return ResponseEntity.ok(productService.getById(id));
     }
+
+    @Override
+    public ResponseEntity<ProductResponseDto> setReorderThreshold(Long id, ReorderThresholdRequestDto request) {
+        User user = SecurityUtils.getCurrentUser();
+        return ResponseEntity.ok(productService.setReorderThreshold(id, request.getReorderThreshold(),
+                user.getOrganizationId()));
+    }
 }
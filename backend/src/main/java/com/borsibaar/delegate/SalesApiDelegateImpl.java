@@ -1,10 +1,15 @@
 package com.borsibaar.delegate;
 
 import com.borsibaar.api.SalesApi;
+import com.borsibaar.dto.SaleBatchRequestDto;
+import com.borsibaar.dto.SaleBatchResponseDto;
+import com.borsibaar.dto.SaleBatchResultDto;
 import com.borsibaar.dto.SaleRequestDto;
 import com.borsibaar.dto.SaleResponseDto;
 import com.borsibaar.entity.User;
-import com.borsibaar.service.SalesService;
+import com.borsibaar.service.SaleBatchService;
+import com.borsibaar.service.SaleIdempotencyStore;
+import com.borsibaar.service.SaleGroupCommitter;
 import com.borsibaar.util.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,6 +19,8 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Optional;
+
 @Slf4j
 @ControllerAdvice
 @RestController
@@ -21,12 +28,42 @@ import org.springframework.web.bind.annotation.RestController;
 @RequiredArgsConstructor
 public class SalesApiDelegateImpl extends AbstractApiDelegateImpl implements SalesApi {
 
-    private final SalesService salesService;
+    static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private final SaleGroupCommitter saleGroupCommitter;
+    private final SaleIdempotencyStore saleIdempotencyStore;
+    private final SaleBatchService saleBatchService;
+
+    @Override
+    public ResponseEntity<SaleResponseDto> processSale(SaleRequestDto request, String idempotencyKey) {
+        User user = SecurityUtils.getCurrentUser();
+        String key = idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey.trim() : null;
+
+        // Retried request: replay the stored sale without opening a transaction
+        if (key != null) {
+            Optional<SaleResponseDto> replay = saleIdempotencyStore.find(user.getOrganizationId(), key, request);
+            if (replay.isPresent()) {
+                return ResponseEntity.status(HttpStatus.CREATED)
+                        .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                        .body(replay.get());
+            }
+        }
+
+        // Committed together with sales of other requests that arrive at the same time
+        SaleBatchResultDto result = saleGroupCommitter.submit(request, user.getId(), user.getOrganizationId(), key);
+        if (result.getStatus() == SaleBatchResultDto.StatusEnum.REPLAYED) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                    .body(result.getSale());
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(result.getSale());
+    }
 
     @Override
-    public ResponseEntity<SaleResponseDto> processSale(SaleRequestDto request) {
+    public ResponseEntity<SaleBatchResponseDto> processSaleBatch(SaleBatchRequestDto request) {
         User user = SecurityUtils.getCurrentUser();
-        SaleResponseDto response = salesService.processSale(request, user.getId(), user.getOrganizationId());
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        SaleBatchResponseDto response = saleBatchService.processBatch(request.getSales(), user.getId(),
+                user.getOrganizationId());
+        return ResponseEntity.ok(response);
     }
 }
@@ -44,7 +44,7 @@ public class Inventory {
     @Column(name = "adjusted_price", precision = 19, scale = 4)
     private BigDecimal adjustedPrice;
 
-    @OneToOne(fetch = FetchType.EAGER)
+    @OneToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "product_id")
     private Product product;
 
@@ -17,8 +17,13 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 public class InventoryTransaction {
+    /**
+     * Pooled sequence instead of IDENTITY so that ledger inserts can be sent as
+     * JDBC batches (Hibernate disables insert batching for IDENTITY columns).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "inventory_transactions_seq")
+    @SequenceGenerator(name = "inventory_transactions_seq", sequenceName = "inventory_transactions_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "inventory_id", nullable = false, insertable = false, updatable = false)
@@ -54,11 +59,15 @@ public class InventoryTransaction {
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "inventory_id")
     private Inventory inventory;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "bar_station_id", insertable = false, updatable = false)
     private BarStation barStation;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "sale_id")
+    private Sale sale;
 }
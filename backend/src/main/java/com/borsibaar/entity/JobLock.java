@@ -0,0 +1,32 @@
+package com.borsibaar.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Lease on a scheduled job, shared by all backend replicas. Whoever holds an
+ * unexpired lease runs the job; see {@link com.borsibaar.jobs.ClusterJobRunner}.
+ */
+@Entity
+@Table(name = "job_locks")
+@Getter
+@Setter
+@NoArgsConstructor
+public class JobLock {
+    @Id
+    @Column(name = "name", length = 100)
+    private String name;
+
+    @Column(name = "locked_until", nullable = false)
+    private Instant lockedUntil;
+
+    @Column(name = "locked_at", nullable = false)
+    private Instant lockedAt;
+
+    @Column(name = "locked_by", nullable = false)
+    private String lockedBy;
+}
@@ -3,6 +3,8 @@ package com.borsibaar.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -11,6 +13,8 @@ import java.util.List;
 
 @Entity
 @Table(name = "organizations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "organizations")
 @Getter
 @Setter
 public class Organization {
@@ -37,4 +41,10 @@ public class Organization {
 
     @Column(name = "price_decrease_step", precision = 19, scale = 4)
     private BigDecimal priceDecreaseStep;
+
+    /**
+     * Seconds between two price correction ticks; null means the default.
+     */
+    @Column(name = "price_tick_seconds")
+    private Integer priceTickSeconds;
 }
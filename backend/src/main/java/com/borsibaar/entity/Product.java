@@ -3,6 +3,8 @@ package com.borsibaar.entity;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
@@ -11,6 +13,8 @@ import java.util.Set;
 
 @Entity
 @Table(name = "products")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "products")
 @Getter
 @Setter
 public class Product {
@@ -42,6 +46,9 @@ public class Product {
     @Column(name = "max_price", precision = 19, scale = 4)
     private BigDecimal maxPrice;
 
+    @Column(name = "reorder_threshold", precision = 19, scale = 4)
+    private BigDecimal reorderThreshold;
+
     @Column(name = "is_active", nullable = false)
     private boolean isActive;
 
@@ -51,14 +58,11 @@ public class Product {
     @Column(name = "updated_at")
     private OffsetDateTime updatedAt;
 
-    @OneToOne(mappedBy = "product", fetch = FetchType.EAGER)
-    private Inventory inventory;
-
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", insertable = false, updatable = false)
     private Category category;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "organization_id", insertable = false, updatable = false)
     private Organization organization;
 
@@ -0,0 +1,47 @@
+package com.borsibaar.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Header row of a sale. Its lines are the SALE rows in
+ * {@code inventory_transactions} that point back to it.
+ */
+@Entity
+@Table(name = "sales")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Sale {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_seq")
+    @SequenceGenerator(name = "sales_seq", sequenceName = "sales_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "reference_id", nullable = false, unique = true, length = 100)
+    private String referenceId;
+
+    @Column(name = "organization_id", nullable = false)
+    private Long organizationId;
+
+    @Column(name = "bar_station_id")
+    private Long barStationId;
+
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 4)
+    private BigDecimal totalAmount;
+
+    @Column(name = "item_count", nullable = false)
+    private int itemCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,42 @@
+package com.borsibaar.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Remembers the response of a sale processed with an {@code Idempotency-Key}
+ * header, so that a retried request can be answered without selling again.
+ */
+@Entity
+@Table(name = "sale_idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SaleIdempotencyKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "organization_id", nullable = false)
+    private Long organizationId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "sale_reference", nullable = false, length = 100)
+    private String saleReference;
+
+    @Column(name = "response", nullable = false, columnDefinition = "TEXT")
+    private String response;
+
+    // SHA-256 of the request the key was first used with; null for keys stored before it was kept
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
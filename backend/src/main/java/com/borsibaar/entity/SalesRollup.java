@@ -0,0 +1,57 @@
+package com.borsibaar.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Sales of one product by one user at one bar station during one hour (UTC).
+ * <p>
+ * {@code lineCount} is the number of sales that contained the product. A sale
+ * of several products is additionally counted once in {@code saleCount} of
+ * exactly one of its rows, so summing {@code saleCount} over any grouping that
+ * spans products gives the number of distinct sales.
+ */
+@Entity
+@Table(name = "sales_rollups_hourly")
+@Getter
+@Setter
+@NoArgsConstructor
+public class SalesRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_rollups_hourly_seq")
+    @SequenceGenerator(name = "sales_rollups_hourly_seq", sequenceName = "sales_rollups_hourly_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "organization_id", nullable = false)
+    private Long organizationId;
+
+    @Column(name = "bar_station_id")
+    private Long barStationId;
+
+    @Column(name = "user_id")
+    private UUID userId;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    @Column(name = "hour_start", nullable = false)
+    private Instant hourStart;
+
+    @Column(name = "sale_count", nullable = false)
+    private long saleCount;
+
+    @Column(name = "line_count", nullable = false)
+    private long lineCount;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal quantity = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal revenue = BigDecimal.ZERO;
+}
@@ -0,0 +1,106 @@
+package com.borsibaar.event;
+
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Published when the stock, prices or product list of an organization change,
+ * e.g. by a sale, a stock operation or a price correction. Listeners that cache
+ * inventory views should react after the publishing transaction commits.
+ * <p>
+ * {@code changes} holds the new stock and price of every product that changed,
+ * its stock before the change and, for sales, when it last sold.
+ * It is empty when the change cannot be described per product, e.g. when a
+ * product was added or removed; listeners then have to reload the organization.
+ * <p>
+ * {@code remote} is set on events replaying a change committed through another
+ * replica (see {@link com.borsibaar.service.ClusterChangeRelay}). They are
+ * published outside any transaction, after the change was committed, and may
+ * reach a listener after local changes committed later, so listeners should
+ * read the current state back rather than trust their values.
+ */
+public record InventoryChangedEvent(Long organizationId, List<ProductChange> changes, boolean remote) {
+
+    public InventoryChangedEvent(Long organizationId) {
+        this(organizationId, List.of());
+    }
+
+    public InventoryChangedEvent(Long organizationId, List<ProductChange> changes) {
+        this(organizationId, changes, false);
+    }
+
+    /**
+     * Event replaying a change committed through another replica.
+     */
+    public static InventoryChangedEvent remote(Long organizationId, List<ProductChange> changes) {
+        return new InventoryChangedEvent(organizationId, changes, true);
+    }
+
+    /**
+     * Event carrying the current stock and price of the given inventory rows,
+     * and their stock as taken with {@link #quantities} before they changed.
+     */
+    public static InventoryChangedEvent of(Long organizationId, Collection<Inventory> inventories,
+                                           Map<Long, BigDecimal> quantitiesBefore) {
+        return ofSales(organizationId, inventories, quantitiesBefore, List.of());
+    }
+
+    /**
+     * Same as {@link #of(Long, Collection, Map)} for rows changed by sales,
+     * each product carrying the time of its last SALE line among
+     * {@code transactions}.
+     */
+    public static InventoryChangedEvent ofSales(Long organizationId, Collection<Inventory> inventories,
+                                                Map<Long, BigDecimal> quantitiesBefore,
+                                                List<InventoryTransaction> transactions) {
+        Map<Long, Instant> soldAt = new HashMap<>();
+        for (InventoryTransaction transaction : transactions) {
+            if ("SALE".equals(transaction.getTransactionType())) {
+                soldAt.merge(transaction.getInventory().getProduct().getId(), transaction.getCreatedAt(),
+                        (a, b) -> a.isAfter(b) ? a : b);
+            }
+        }
+        return new InventoryChangedEvent(organizationId, inventories.stream()
+                .map(inventory -> new ProductChange(inventory.getProduct().getId(),
+                        quantitiesBefore.get(inventory.getProduct().getId()), inventory.getQuantity(),
+                        inventory.getAdjustedPrice(), soldAt.get(inventory.getProduct().getId())))
+                .toList());
+    }
+
+    /**
+     * Event carrying the current stock and price of one inventory row.
+     */
+    public static InventoryChangedEvent of(Long organizationId, Inventory inventory, BigDecimal quantityBefore) {
+        return of(organizationId, List.of(inventory), Map.of(inventory.getProduct().getId(), quantityBefore));
+    }
+
+    /**
+     * Current stock of the given inventory rows, by product id.
+     */
+    public static Map<Long, BigDecimal> quantities(Collection<Inventory> inventories) {
+        return inventories.stream()
+                .collect(Collectors.toMap(inventory -> inventory.getProduct().getId(), Inventory::getQuantity));
+    }
+
+    /**
+     * New stock and price of a product. {@code quantityBefore} is null when not
+     * known, e.g. in changes relayed from an older version of the application.
+     * {@code soldAt} is null unless the product sold in this change.
+     */
+    public record ProductChange(Long productId, BigDecimal quantityBefore, BigDecimal quantity,
+                                BigDecimal unitPrice, Instant soldAt) {
+
+        public ProductChange(Long productId, BigDecimal quantityBefore, BigDecimal quantity,
+                             BigDecimal unitPrice) {
+            this(productId, quantityBefore, quantity, unitPrice, null);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.borsibaar.event;
+
+import com.borsibaar.dto.LowStockAlertDto;
+
+/**
+ * Published when a product of an organization crosses its reorder threshold,
+ * after the change that caused it has been committed.
+ */
+public record LowStockAlertEvent(Long organizationId, LowStockAlertDto alert) {
+}
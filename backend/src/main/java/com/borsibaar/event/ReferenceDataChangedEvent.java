@@ -0,0 +1,29 @@
+package com.borsibaar.event;
+
+/**
+ * Published when an organization, category or product is written, so that
+ * caches of it can be evicted once the change commits. A null {@code id} of a
+ * category means one was added.
+ * <p>
+ * {@code remote} is set on events replaying a change committed through another
+ * replica (see {@link com.borsibaar.service.ClusterChangeRelay}).
+ */
+public record ReferenceDataChangedEvent(Kind kind, Long id, boolean remote) {
+
+    public enum Kind {
+        ORGANIZATION,
+        CATEGORY,
+        PRODUCT
+    }
+
+    public ReferenceDataChangedEvent(Kind kind, Long id) {
+        this(kind, id, false);
+    }
+
+    /**
+     * Event replaying a change committed through another replica.
+     */
+    public static ReferenceDataChangedEvent remote(Kind kind, Long id) {
+        return new ReferenceDataChangedEvent(kind, id, true);
+    }
+}
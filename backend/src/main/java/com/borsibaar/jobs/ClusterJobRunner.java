@@ -0,0 +1,160 @@
+package com.borsibaar.jobs;
+
+import com.borsibaar.repository.JobLockRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Runs a scheduled job on one backend replica only, however many replicas fire
+ * the same schedule.
+ * <p>
+ * Each job has a row in {@code job_locks} holding a lease. A replica runs a
+ * tick only if it can take over an expired lease, which a single conditional
+ * UPDATE decides. The lease lasts {@code lockAtMostFor}, so when the replica
+ * running a job dies, another one takes over at the first tick after that. When
+ * the job finishes, the lease is kept until {@code lockAtLeastFor} has passed
+ * since the start, so that replicas whose clocks or schedulers lag behind by
+ * less than that cannot run the same tick again.
+ * <p>
+ * {@code lockAtMostFor} must be longer than a run normally takes and shorter
+ * than the interval between ticks. While the job runs, its lease is renewed
+ * every third of {@code lockAtMostFor} from a scheduler of its own, so that
+ * renewals do not wait behind busy job threads. Lease times come from the
+ * replica's clock, so replica clocks are expected to be kept in sync.
+ */
+@Slf4j
+@Component
+public class ClusterJobRunner {
+
+    private final JobLockRepository jobLockRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler renewalScheduler;
+    private final Clock clock;
+    private final String owner;
+
+    @Autowired
+    public ClusterJobRunner(JobLockRepository jobLockRepository, PlatformTransactionManager transactionManager,
+            @Qualifier("jobLockRenewalScheduler") TaskScheduler renewalScheduler) {
+        this(jobLockRepository, transactionManager, renewalScheduler, Clock.systemUTC(), defaultOwner());
+    }
+
+    public ClusterJobRunner(JobLockRepository jobLockRepository, PlatformTransactionManager transactionManager,
+            TaskScheduler renewalScheduler, Clock clock, String owner) {
+        this.jobLockRepository = jobLockRepository;
+        // The lease must commit before the job starts, whatever transaction the caller is in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.renewalScheduler = renewalScheduler;
+        this.clock = clock;
+        this.owner = owner;
+    }
+
+    /**
+     * Runs the task if no other replica holds the lease of the job. Returns
+     * whether the task ran.
+     */
+    public boolean runExclusively(String name, Duration lockAtMostFor, Duration lockAtLeastFor, Runnable task) {
+        // Identifies this run's lease when renewing it, so kept to a precision every database stores
+        Instant lockedAt = clock.instant().truncatedTo(ChronoUnit.MILLIS);
+        if (!acquire(name, lockedAt, lockedAt.plus(lockAtMostFor))) {
+            log.debug("Skipping job {}, another replica holds its lock", name);
+            return false;
+        }
+
+        Lease lease = new Lease(name, lockedAt, lockAtMostFor);
+        Duration renewEvery = lockAtMostFor.dividedBy(3);
+        ScheduledFuture<?> renewal = renewalScheduler.scheduleAtFixedRate(lease::renew, lockedAt.plus(renewEvery),
+                renewEvery);
+        try {
+            task.run();
+        } finally {
+            renewal.cancel(false);
+            lease.release(lockedAt.plus(lockAtLeastFor));
+        }
+        return true;
+    }
+
+    private boolean acquire(String name, Instant now, Instant lockedUntil) {
+        Integer taken = transactionTemplate.execute(status ->
+                jobLockRepository.acquireExpired(name, owner, now, lockedUntil));
+        if (taken != null && taken > 0) {
+            return true;
+        }
+        if (Boolean.TRUE.equals(transactionTemplate.execute(status -> jobLockRepository.existsById(name)))) {
+            return false;
+        }
+
+        // First run of the job anywhere; replicas racing here are told apart by the primary key
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jobLockRepository.create(name, owner, now, lockedUntil));
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Lease taken by one run of a job. Renewals and the release are serialized,
+     * so a renewal still running when the job ends cannot extend the released
+     * lease.
+     */
+    private final class Lease {
+        private final String name;
+        private final Instant lockedAt;
+        private final Duration lockAtMostFor;
+        private boolean released;
+
+        private Lease(String name, Instant lockedAt, Duration lockAtMostFor) {
+            this.name = name;
+            this.lockedAt = lockedAt;
+            this.lockAtMostFor = lockAtMostFor;
+        }
+
+        synchronized void renew() {
+            if (released) {
+                return;
+            }
+            try {
+                Integer renewed = transactionTemplate.execute(status ->
+                        jobLockRepository.renew(name, owner, lockedAt, clock.instant().plus(lockAtMostFor)));
+                if (renewed == null || renewed == 0) {
+                    log.warn("Lost the lock of job {} while it was running", name);
+                }
+            } catch (RuntimeException e) {
+                // Keeps the renewal scheduled; the lease covers a few missed renewals
+                log.warn("Failed to renew the lock of job {}", name, e);
+            }
+        }
+
+        synchronized void release(Instant lockedUntil) {
+            released = true;
+            Instant now = clock.instant();
+            transactionTemplate.executeWithoutResult(status ->
+                    jobLockRepository.release(name, owner, lockedUntil.isAfter(now) ? lockedUntil : now));
+        }
+    }
+
+    private static String defaultOwner() {
+        String process = Long.toString(ProcessHandle.current().pid());
+        try {
+            return InetAddress.getLocalHost().getHostName() + ":" + process;
+        } catch (Exception e) {
+            return "unknown:" + process;
+        }
+    }
+}
@@ -1,92 +1,110 @@
 package com.borsibaar.jobs;
 
-import com.borsibaar.entity.Inventory;
-import com.borsibaar.entity.InventoryTransaction;
-import com.borsibaar.entity.Product;
-import com.borsibaar.repository.InventoryRepository;
-import com.borsibaar.repository.InventoryTransactionRepository;
-import com.borsibaar.repository.ProductRepository;
-import org.springframework.scheduling.annotation.Scheduled;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.repository.PriceAdjustmentView;
+import com.borsibaar.service.PriceBook;
+import com.borsibaar.service.PricingStrategy;
+import com.borsibaar.util.ReferenceIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 
+/**
+ * Moves the prices of an organization between sales, as decided by the
+ * {@link PricingStrategy}. {@link PriceTickScheduler} calls it once per tick
+ * interval of the organization.
+ * <p>
+ * The strategy moves all prices of a tick with one set-based statement, so its
+ * cost does not grow with a round trip per product, and a tick the strategy
+ * does not need is skipped without touching the database. The moved prices are
+ * put into the {@link PriceBook} before the transaction commits, while the rows
+ * are still locked.
+ * <p>
+ * Every replica ticks every organization, but {@link ClusterJobRunner} lets
+ * only one of them run a tick, so prices drop once per interval however many
+ * replicas are running. The other replicas learn about the moved prices from
+ * the {@link InventoryChangedEvent} of the tick, which
+ * {@link com.borsibaar.service.ClusterChangeRelay} relays to them.
+ */
+@Slf4j
 @Service
 public class PriceCorrectionJob {
 
-    private final InventoryRepository inventoryRepository;
-    private final InventoryTransactionRepository inventoryTransactionRepository;
-    private final ProductRepository productRepository;
+    static final String JOB_NAME = "price-correction";
 
-    public PriceCorrectionJob(InventoryRepository inventoryRepository,
-            InventoryTransactionRepository inventoryTransactionRepository,
-            ProductRepository productRepository) {
-        this.inventoryRepository = inventoryRepository;
-        this.inventoryTransactionRepository = inventoryTransactionRepository;
-        this.productRepository = productRepository;
+    private final PricingStrategy pricingStrategy;
+    private final ReferenceIdGenerator referenceIdGenerator;
+    private final PriceBook priceBook;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ClusterJobRunner clusterJobRunner;
+    private final Clock clock = Clock.systemUTC();
+
+    public PriceCorrectionJob(PricingStrategy pricingStrategy,
+            ReferenceIdGenerator referenceIdGenerator,
+            PriceBook priceBook,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            ClusterJobRunner clusterJobRunner) {
+        this.pricingStrategy = pricingStrategy;
+        this.referenceIdGenerator = referenceIdGenerator;
+        this.priceBook = priceBook;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.clusterJobRunner = clusterJobRunner;
     }
 
-    @Scheduled(cron = "0 * * * * *")
-    public void adjustPrices() {
-        System.out.println("Running price reduction job");
-        List<Product> inactiveProducts = productRepository.findByActiveOrgAndInactiveSalesLastMinute();
+    /**
+     * Runs one tick for an organization, unless another replica ran it less
+     * than an interval ago. The tick covers the activity of the last interval.
+     */
+    public void adjustPrices(Long organizationId, Duration interval) {
+        // Replicas tick out of phase; the lease keeps their runs about an interval apart,
+        // and is renewed while a slow tick runs, so no other replica can start the same one
+        Duration lease = interval.multipliedBy(9).dividedBy(10);
+        clusterJobRunner.runExclusively(JOB_NAME + ":" + organizationId, lease, lease,
+                () -> runTick(organizationId, interval));
+    }
 
-        if (inactiveProducts.isEmpty()) {
-            System.out.println("No product prices to update automatically");
+    private void runTick(Long organizationId, Duration interval) {
+        Instant since = clock.instant().minus(interval);
+        if (!pricingStrategy.needsTick(organizationId, since)) {
+            log.debug("Price correction skipped organization {}, it sold nothing", organizationId);
             return;
         }
 
-        int updatedCount = 0;
-        for (Product product : inactiveProducts) {
-            Inventory inventory = Optional.ofNullable(product.getInventory())
-                    .orElseGet(() -> {
-                        Inventory newInv = new Inventory();
-                        newInv.setOrganizationId(product.getOrganizationId());
-                        newInv.setProduct(product);
-                        newInv.setQuantity(BigDecimal.ZERO);
-                        newInv.setAdjustedPrice(product.getBasePrice());
-                        newInv.setCreatedAt(OffsetDateTime.now());
-                        newInv.setUpdatedAt(OffsetDateTime.now());
-                        return newInv;
-                    });
-
-            BigDecimal decreaseAmount = product.getOrganization().getPriceDecreaseStep();
-            BigDecimal minPrice = Optional.ofNullable(product.getMinPrice()).orElse(decreaseAmount);
-            BigDecimal currentPrice = Optional.ofNullable(inventory.getAdjustedPrice()).orElse(product.getBasePrice());
-            BigDecimal newPrice = currentPrice.subtract(decreaseAmount);
-            if (newPrice.compareTo(minPrice) < 0) {
-                newPrice = minPrice;
-            }
-
-            if (newPrice.compareTo(currentPrice) == 0) {
-                // already at lowest price
-                continue;
-            }
-
-            inventory.setAdjustedPrice(newPrice);
-            inventory.setUpdatedAt(OffsetDateTime.now());
-            inventory = inventoryRepository.save(inventory);
+        Integer updatedCount = transactionTemplate.execute(status -> movePrices(organizationId, since));
+        if (updatedCount != null && updatedCount > 0) {
+            log.info("Price correction moved the prices of {} products of organization {}",
+                    updatedCount, organizationId);
+        } else {
+            log.debug("Price correction found no product prices to move for organization {}", organizationId);
+        }
+    }
 
-            // Create price reduction transaction
-            InventoryTransaction transaction = new InventoryTransaction();
-            transaction.setInventory(inventory);
-            transaction.setTransactionType("ADJUSTMENT");
-            transaction.setQuantityChange(BigDecimal.ZERO);
-            transaction.setQuantityAfter(inventory.getQuantity());
-            transaction.setPriceBefore(currentPrice);
-            transaction.setPriceAfter(newPrice);
-            transaction.setReferenceId("REDUCE-" + System.currentTimeMillis());
-            transaction.setNotes("PriceCorrectionJob");
-            transaction.setCreatedBy(null);
-            transaction.setCreatedAt(Instant.now());
-            inventoryTransactionRepository.save(transaction);
+    private int movePrices(Long organizationId, Instant since) {
+        // All ledger rows of one tick share a reference, like the lines of a sale
+        List<PriceAdjustmentView> adjustments = pricingStrategy.tick(organizationId, since,
+                referenceIdGenerator.nextReference("REDUCE"));
+        if (adjustments.isEmpty()) {
+            return 0;
+        }
 
-            updatedCount++;
+        List<InventoryChangedEvent.ProductChange> changes = new ArrayList<>();
+        for (PriceAdjustmentView adjustment : adjustments) {
+            priceBook.set(organizationId, adjustment.getProductId(), adjustment.getPriceAfter());
+            changes.add(new InventoryChangedEvent.ProductChange(adjustment.getProductId(),
+                    adjustment.getQuantity(), adjustment.getQuantity(), adjustment.getPriceAfter()));
         }
-        System.out.println("Updated prices of " + updatedCount + " products.");
+        eventPublisher.publishEvent(new InventoryChangedEvent(organizationId, changes));
+        return adjustments.size();
     }
 }
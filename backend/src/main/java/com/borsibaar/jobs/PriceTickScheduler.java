@@ -0,0 +1,94 @@
+package com.borsibaar.jobs;
+
+import com.borsibaar.config.PricingDefaults;
+import com.borsibaar.repository.OrganizationRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Ticks the price correction of every organization on its own schedule.
+ * <p>
+ * Each organization runs every {@code Organization.priceTickSeconds} seconds
+ * ({@link PricingDefaults#TICK_INTERVAL} when not set) on the {@code pricingTaskScheduler} pool, so organizations
+ * are corrected in parallel and a slow one only holds up its own thread. Ticks
+ * run with a fixed delay, so a slow tick postpones the next one instead of
+ * stacking up behind it.
+ * <p>
+ * Schedules are brought in line with the organizations table periodically,
+ * which also picks up organizations and intervals changed through other
+ * replicas.
+ */
+@Slf4j
+@Component
+public class PriceTickScheduler {
+
+    private final OrganizationRepository organizationRepository;
+    private final PriceCorrectionJob priceCorrectionJob;
+    private final TaskScheduler taskScheduler;
+    private final Map<Long, OrganizationTick> ticks = new ConcurrentHashMap<>();
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    public PriceTickScheduler(OrganizationRepository organizationRepository,
+            PriceCorrectionJob priceCorrectionJob,
+            @Qualifier("pricingTaskScheduler") TaskScheduler taskScheduler) {
+        this.organizationRepository = organizationRepository;
+        this.priceCorrectionJob = priceCorrectionJob;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Starts, reschedules and stops ticks to match the intervals stored on the
+     * organizations.
+     */
+    // Delayed so that the application, and the schema it reads, is up before the first sync
+    @Scheduled(initialDelayString = "${app.pricing.tick.sync-initial-delay:PT10S}",
+            fixedDelayString = "${app.pricing.tick.sync-interval:PT30S}")
+    public void syncSchedules() {
+        Map<Long, Duration> intervals = new HashMap<>();
+        for (Object[] row : organizationRepository.findPriceTickSeconds()) {
+            Number seconds = (Number) row[1];
+            intervals.put((Long) row[0], seconds != null ? Duration.ofSeconds(seconds.longValue()) : PricingDefaults.TICK_INTERVAL);
+        }
+
+        ticks.entrySet().removeIf(entry -> {
+            if (entry.getValue().interval().equals(intervals.get(entry.getKey()))) {
+                return false;
+            }
+            // A run in progress finishes; running keeps the new schedule from overlapping it
+            entry.getValue().future().cancel(false);
+            return true;
+        });
+        intervals.forEach((organizationId, interval) -> ticks.computeIfAbsent(organizationId, id -> {
+            log.debug("Ticking prices of organization {} every {}", id, interval);
+            ScheduledFuture<?> future = taskScheduler.scheduleWithFixedDelay(() -> tick(id, interval),
+                    Instant.now().plus(interval), interval);
+            return new OrganizationTick(interval, future);
+        }));
+    }
+
+    void tick(Long organizationId, Duration interval) {
+        if (!running.add(organizationId)) {
+            log.debug("Skipping price tick of organization {}, the previous one is still running", organizationId);
+            return;
+        }
+        try {
+            priceCorrectionJob.adjustPrices(organizationId, interval);
+        } finally {
+            running.remove(organizationId);
+        }
+    }
+
+    private record OrganizationTick(Duration interval, ScheduledFuture<?> future) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.borsibaar.jobs;
+
+import com.borsibaar.service.PricingBacktestReport;
+import com.borsibaar.service.PricingBacktestService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Runs a pricing backtest from the command line, logs its report and exits:
+ * <pre>
+ * java -jar backend.jar --spring.profiles.active=backtest --spring.main.web-application-type=none \
+ *     --app.pricing.backtest.organization-id=1 \
+ *     --app.pricing.backtest.from=2026-01-09T18:00:00Z --app.pricing.backtest.to=2026-01-10T06:00:00Z \
+ *     [--app.pricing.backtest.increase-step=0.30] [--app.pricing.backtest.decrease-step=0.10] \
+ *     [--app.pricing.backtest.tick-interval=PT30S]
+ * </pre>
+ * Steps and interval left out are those of the organization. The application
+ * exits once the runner is done, with exit code 0 if the backtest ran.
+ */
+@Slf4j
+@Component
+@Profile("backtest")
+public class PricingBacktestRunner implements CommandLineRunner, ExitCodeGenerator {
+
+    private final PricingBacktestService pricingBacktestService;
+    private final PricingBacktestService.Scenario scenario;
+    private volatile int exitCode = 1;
+
+    public PricingBacktestRunner(PricingBacktestService pricingBacktestService,
+            @Value("${app.pricing.backtest.organization-id}") Long organizationId,
+            @Value("${app.pricing.backtest.from}") Instant from,
+            @Value("${app.pricing.backtest.to}") Instant to,
+            @Value("${app.pricing.backtest.increase-step:#{null}}") BigDecimal increaseStep,
+            @Value("${app.pricing.backtest.decrease-step:#{null}}") BigDecimal decreaseStep,
+            @Value("${app.pricing.backtest.tick-interval:#{null}}") Duration tickInterval) {
+        this.pricingBacktestService = pricingBacktestService;
+        this.scenario = new PricingBacktestService.Scenario(organizationId, from, to, increaseStep, decreaseStep,
+                tickInterval);
+    }
+
+    @Override
+    public void run(String... args) {
+        PricingBacktestReport report = pricingBacktestService.run(scenario);
+
+        log.info("Backtest of organization {} from {} to {}: steps +{} / -{} every {}",
+                report.organizationId(), report.from(), report.to(), report.increaseStep(), report.decreaseStep(),
+                report.tickInterval());
+        for (PricingBacktestReport.ProductResult product : report.products()) {
+            log.info("  {} ({}): sold {}, revenue {} (recorded {}), price {}..{}, closing at {}, {} path points",
+                    product.name(), product.productId(), product.quantity(), product.revenue(),
+                    product.recordedRevenue(), product.lowPrice(), product.highPrice(), product.closePrice(),
+                    product.path().size());
+        }
+        log.info("Revenue {} (recorded {}) from {} sale lines", report.revenue(), report.recordedRevenue(),
+                report.saleLines());
+        exitCode = 0;
+    }
+
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
@@ -4,6 +4,7 @@ import com.borsibaar.dto.InventoryResponseDto;
 import com.borsibaar.dto.InventoryTransactionResponseDto;
 import com.borsibaar.entity.Inventory;
 import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.repository.InventoryView;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
@@ -19,6 +20,10 @@ public interface InventoryMapper {
     @Mapping(target = "updatedAt", source = "updatedAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
     InventoryResponseDto toResponse(Inventory inventory);
 
+    @Mapping(target = "unitPrice", source = "adjustedPrice")
+    @Mapping(target = "updatedAt", source = "updatedAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
+    InventoryResponseDto toResponse(InventoryView view);
+
     @Mapping(target = "createdBy", source = "createdBy")
     @Mapping(target = "createdAt", source = "createdAt", dateFormat = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX")
     InventoryTransactionResponseDto toTransactionResponse(InventoryTransaction transaction);
@@ -1,14 +1,31 @@
 package com.borsibaar.repository;
 
 import com.borsibaar.entity.Category;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.List;
 import java.util.Optional;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    /**
+     * Query cache region of the category lookups below.
+     */
+    String QUERY_CACHE_REGION = "categories-by-organization";
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     Optional<Category> findByIdAndOrganizationId(Long id, Long organizationId);
 
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = QUERY_CACHE_REGION)
+    })
     List<Category> findAllByOrganizationId(Long organizationId);
 
     boolean existsByOrganizationIdAndNameIgnoreCase(Long organizationId, String name);
@@ -1,11 +1,18 @@
 package com.borsibaar.repository;
 
 import com.borsibaar.entity.Inventory;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,12 +20,263 @@ import java.util.Optional;
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     Optional<Inventory> findByOrganizationIdAndProductId(Long organizationId, Long productId);
 
-    List<Inventory> findByOrganizationId(Long organizationId);
+    /**
+     * Loads and locks the inventory row of a product for a stock operation, so
+     * that it cannot interleave with a sale or price tick on the same row.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Inventory> findForUpdateByOrganizationIdAndProductId(Long organizationId, Long productId);
 
-    @Query("SELECT i FROM Inventory i JOIN Product p ON i.productId = p.id " +
-            "WHERE i.organizationId = :organizationId AND p.categoryId = :categoryId")
-    List<Inventory> findByOrganizationIdAndCategoryId(@Param("organizationId") Long organizationId,
+    boolean existsByProductId(Long productId);
+
+    /**
+     * Lists the inventory of the active products of an organization as
+     * {@link InventoryView} rows, ordered by product name.
+     */
+    @Query("""
+            SELECT new com.borsibaar.repository.InventoryView(
+                i.id, i.organizationId, p.id, p.name, p.description, i.quantity, i.adjustedPrice,
+                p.basePrice, p.minPrice, p.maxPrice, i.updatedAt, p.isActive)
+            FROM Inventory i JOIN i.product p
+            WHERE i.organizationId = :organizationId AND p.isActive = true
+            ORDER BY p.name
+            """)
+    List<InventoryView> findViewsByOrganizationId(@Param("organizationId") Long organizationId);
+
+    /**
+     * Same as {@link #findViewsByOrganizationId(Long)}, limited to one category.
+     */
+    @Query("""
+            SELECT new com.borsibaar.repository.InventoryView(
+                i.id, i.organizationId, p.id, p.name, p.description, i.quantity, i.adjustedPrice,
+                p.basePrice, p.minPrice, p.maxPrice, i.updatedAt, p.isActive)
+            FROM Inventory i JOIN i.product p
+            WHERE i.organizationId = :organizationId AND p.categoryId = :categoryId AND p.isActive = true
+            ORDER BY p.name
+            """)
+    List<InventoryView> findViewsByOrganizationIdAndCategoryId(@Param("organizationId") Long organizationId,
             @Param("categoryId") Long categoryId);
 
-    boolean existsByProductId(Long productId);
+    /**
+     * The inventory of one product as an {@link InventoryView}, whether the
+     * product is active or not.
+     */
+    @Query("""
+            SELECT new com.borsibaar.repository.InventoryView(
+                i.id, i.organizationId, p.id, p.name, p.description, i.quantity, i.adjustedPrice,
+                p.basePrice, p.minPrice, p.maxPrice, i.updatedAt, p.isActive)
+            FROM Inventory i JOIN i.product p
+            WHERE i.organizationId = :organizationId AND p.id = :productId
+            """)
+    Optional<InventoryView> findViewByOrganizationIdAndProductId(@Param("organizationId") Long organizationId,
+            @Param("productId") Long productId);
+
+    /**
+     * Stock and reorder threshold of the active products of an organization
+     * that have a threshold set.
+     */
+    @Query("""
+            SELECT new com.borsibaar.repository.ReorderLevelView(p.id, p.name, i.quantity, p.reorderThreshold)
+            FROM Inventory i JOIN i.product p
+            WHERE i.organizationId = :organizationId AND p.isActive = true AND p.reorderThreshold IS NOT NULL
+            """)
+    List<ReorderLevelView> findReorderLevelsByOrganizationId(@Param("organizationId") Long organizationId);
+
+    /**
+     * Loads the inventory of every product in a sale, together with the product,
+     * category and organization needed for pricing, in a single query.
+     * <p>
+     * The inventory rows are locked for the rest of the transaction so that
+     * stations selling the same product concurrently cannot lose each other's
+     * quantity or price updates. Only the inventory alias is locked, so sales of
+     * different products in the same organization do not serialize on the
+     * organization row, and rows are locked in id order to avoid deadlocks
+     * between overlapping baskets.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_LOCK_MODE + ".i", value = "PESSIMISTIC_WRITE"))
+    @Query("""
+            SELECT i FROM Inventory i
+            JOIN FETCH i.product p
+            JOIN FETCH p.category
+            JOIN FETCH p.organization
+            WHERE p.organizationId = :organizationId
+            AND p.id IN :productIds
+            ORDER BY i.id
+            """)
+    List<Inventory> findAllForSale(@Param("organizationId") Long organizationId,
+            @Param("productIds") Collection<Long> productIds);
+
+    /**
+     * Number of active products with inventory in each dynamically priced
+     * category of an organization, as rows of [categoryId, count].
+     */
+    @Query("""
+            SELECT p.categoryId, COUNT(i)
+            FROM Inventory i
+            JOIN i.product p
+            JOIN p.category c
+            WHERE i.organizationId = :organizationId
+              AND p.isActive = true
+              AND c.dynamicPricing = true
+            GROUP BY p.categoryId
+            """)
+    List<Object[]> countDynamicProductsByCategory(@Param("organizationId") Long organizationId);
+
+    /**
+     * Loads every inventory row of an organization with the product, category
+     * and organization needed for pricing, without locking.
+     */
+    @Query("""
+            SELECT i FROM Inventory i
+            JOIN FETCH i.product p
+            LEFT JOIN FETCH p.category
+            LEFT JOIN FETCH p.organization
+            WHERE i.organizationId = :organizationId
+            """)
+    List<Inventory> findForPricingByOrganizationId(@Param("organizationId") Long organizationId);
+
+    /**
+     * Loads the inventory rows of the active products of an organization with
+     * their product and category, ordered for the market board.
+     */
+    @Query("""
+            SELECT i FROM Inventory i
+            JOIN FETCH i.product p
+            JOIN FETCH p.category c
+            LEFT JOIN FETCH p.organization
+            WHERE i.organizationId = :organizationId AND p.isActive = true
+            ORDER BY c.name, c.id, p.name
+            """)
+    List<Inventory> findForBoardByOrganizationId(@Param("organizationId") Long organizationId);
+
+    /**
+     * Lowers by one step the price of every dynamically priced product of an
+     * organization except {@code soldProductIds}, down to the product's minimum
+     * price (or the step itself when no minimum is set), and records each move
+     * as an ADJUSTMENT ledger row under the given reference. Returns the moved
+     * prices. Which products sold recently is known in memory, see
+     * {@link com.borsibaar.service.SalesActivityTracker}, so the ledger is not read.
+     * <p>
+     * PostgreSQL only. Candidate rows are locked in id order like a sale locks
+     * them, and the update, the ledger insert and the result come from one
+     * statement, whatever the number of products. The ledger ids are drawn
+     * from the sequence directly; Hibernate only hands out ids below the
+     * sequence values it draws itself, so the two never collide. As the
+     * sequence steps by Hibernate's allocation size, each such row uses up a
+     * block of 50 ids. That is intended: the gaps are harmless, whereas ids
+     * from a sequence of their own could collide with Hibernate's.
+     */
+    default List<PriceAdjustmentView> reduceIdlePrices(Long organizationId, Collection<Long> soldProductIds,
+            String referenceId) {
+        // NOT IN () is not valid SQL, and no product id is negative
+        return reducePricesExcept(organizationId, soldProductIds.isEmpty() ? List.of(-1L) : soldProductIds,
+                referenceId);
+    }
+
+    @Query(value = """
+            WITH candidates AS (
+                SELECT inv.id,
+                       COALESCE(inv.adjusted_price, p.base_price) AS price_before,
+                       GREATEST(COALESCE(inv.adjusted_price, p.base_price) - o.price_decrease_step,
+                                COALESCE(p.min_price, o.price_decrease_step)) AS price_after
+                FROM inventory inv
+                JOIN products p ON p.id = inv.product_id
+                JOIN categories cat ON cat.id = p.category_id
+                JOIN organizations o ON o.id = inv.organization_id
+                WHERE inv.organization_id = :organizationId
+                  AND cat.dynamic_pricing = TRUE
+                  AND p.is_active = TRUE
+                  -- Not yet at the lowest price
+                  AND COALESCE(inv.adjusted_price, p.base_price) > COALESCE(p.min_price, o.price_decrease_step)
+                  AND inv.product_id NOT IN (:soldProductIds)
+                ORDER BY inv.id
+                FOR UPDATE OF inv
+            ),
+            moved AS (
+                UPDATE inventory i
+                SET adjusted_price = c.price_after, updated_at = CURRENT_TIMESTAMP
+                FROM candidates c
+                WHERE i.id = c.id
+                RETURNING i.id, i.organization_id, i.product_id, i.quantity, c.price_before, c.price_after
+            ),
+            ledger AS (
+                INSERT INTO inventory_transactions (id, inventory_id, transaction_type, quantity_change,
+                                                    quantity_after, price_before, price_after, reference_id,
+                                                    notes, created_at)
+                SELECT nextval('inventory_transactions_seq'), m.id, 'ADJUSTMENT', 0, m.quantity, m.price_before,
+                       m.price_after, :referenceId, 'PriceCorrectionJob', CURRENT_TIMESTAMP
+                FROM moved m
+            )
+            SELECT organization_id AS "organizationId", product_id AS "productId", quantity,
+                   price_before AS "priceBefore", price_after AS "priceAfter"
+            FROM moved
+            """, nativeQuery = true)
+    List<PriceAdjustmentView> reducePricesExcept(@Param("organizationId") Long organizationId,
+            @Param("soldProductIds") Collection<Long> soldProductIds, @Param("referenceId") String referenceId);
+
+    /**
+     * Sets the prices of products of an organization, the {@code prices} being
+     * matched to the {@code productIds} by position. Works like
+     * {@link #reduceIdlePrices(Long, Collection, String)}: one statement locks
+     * the rows, moves the prices that differ, records each move as an
+     * ADJUSTMENT ledger row and returns the moves. Inactive products and
+     * categories without dynamic pricing are left alone.
+     */
+    @Query(value = """
+            WITH targets AS (
+                SELECT t.product_id, t.price
+                FROM unnest(CAST(:productIds AS bigint[]), CAST(:prices AS numeric[])) AS t(product_id, price)
+            ),
+            candidates AS (
+                SELECT inv.id,
+                       COALESCE(inv.adjusted_price, p.base_price) AS price_before,
+                       t.price AS price_after
+                FROM inventory inv
+                JOIN targets t ON t.product_id = inv.product_id
+                JOIN products p ON p.id = inv.product_id
+                JOIN categories cat ON cat.id = p.category_id
+                WHERE inv.organization_id = :organizationId
+                  AND cat.dynamic_pricing = TRUE
+                  AND p.is_active = TRUE
+                  AND COALESCE(inv.adjusted_price, p.base_price) <> t.price
+                ORDER BY inv.id
+                FOR UPDATE OF inv
+            ),
+            moved AS (
+                UPDATE inventory i
+                SET adjusted_price = c.price_after, updated_at = CURRENT_TIMESTAMP
+                FROM candidates c
+                WHERE i.id = c.id
+                RETURNING i.id, i.organization_id, i.product_id, i.quantity, c.price_before, c.price_after
+            ),
+            ledger AS (
+                INSERT INTO inventory_transactions (id, inventory_id, transaction_type, quantity_change,
+                                                    quantity_after, price_before, price_after, reference_id,
+                                                    notes, created_at)
+                SELECT nextval('inventory_transactions_seq'), m.id, 'ADJUSTMENT', 0, m.quantity, m.price_before,
+                       m.price_after, :referenceId, 'PriceCorrectionJob', CURRENT_TIMESTAMP
+                FROM moved m
+            )
+            SELECT organization_id AS "organizationId", product_id AS "productId", quantity,
+                   price_before AS "priceBefore", price_after AS "priceAfter"
+            FROM moved
+            """, nativeQuery = true)
+    List<PriceAdjustmentView> setPrices(@Param("organizationId") Long organizationId,
+            @Param("productIds") Long[] productIds, @Param("prices") BigDecimal[] prices,
+            @Param("referenceId") String referenceId);
+
+    /**
+     * Locks every inventory row of an organization, blocking its sales until the
+     * transaction ends. Used by maintenance work that must not interleave with sales.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_LOCK_MODE + ".i", value = "PESSIMISTIC_WRITE"))
+    @Query("""
+            SELECT i FROM Inventory i
+            JOIN FETCH i.product p
+            LEFT JOIN FETCH p.category
+            LEFT JOIN FETCH p.organization
+            WHERE i.organizationId = :organizationId
+            ORDER BY i.id
+            """)
+    List<Inventory> lockByOrganizationId(@Param("organizationId") Long organizationId);
 }
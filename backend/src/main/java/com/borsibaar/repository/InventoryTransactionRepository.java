@@ -1,33 +1,185 @@
 package com.borsibaar.repository;
 
 import com.borsibaar.entity.InventoryTransaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface InventoryTransactionRepository extends JpaRepository<InventoryTransaction, Long> {
 
     List<InventoryTransaction> findByInventoryIdOrderByCreatedAtDesc(Long inventoryId);
 
+    /**
+     * One page of the ledger of an inventory row, newest first: transactions
+     * created at or after {@code from} that come before the keyset position
+     * ({@code createdAt}, {@code id}) in (created_at, id) order, read from the
+     * (inventory_id, created_at, id) index.
+     */
     @Query("""
             SELECT it FROM InventoryTransaction it
-            JOIN Inventory i ON it.inventoryId = i.id
+            WHERE it.inventoryId = :inventoryId
+              AND it.createdAt >= :from
+              AND it.createdAt <= :createdAt
+              AND (it.createdAt < :createdAt OR it.id < :id)
+            ORDER BY it.createdAt DESC, it.id DESC
+            """)
+    List<InventoryTransaction> findPageByInventoryId(@Param("inventoryId") Long inventoryId,
+                                                     @Param("from") Instant from,
+                                                     @Param("createdAt") Instant createdAt,
+                                                     @Param("id") Long id,
+                                                     Limit limit);
+
+    /**
+     * Same as {@link #findPageByInventoryId}, limited to one transaction type.
+     */
+    @Query("""
+            SELECT it FROM InventoryTransaction it
+            WHERE it.inventoryId = :inventoryId
+              AND it.transactionType = :type
+              AND it.createdAt >= :from
+              AND it.createdAt <= :createdAt
+              AND (it.createdAt < :createdAt OR it.id < :id)
+            ORDER BY it.createdAt DESC, it.id DESC
+            """)
+    List<InventoryTransaction> findPageByInventoryIdAndType(@Param("inventoryId") Long inventoryId,
+                                                            @Param("type") String type,
+                                                            @Param("from") Instant from,
+                                                            @Param("createdAt") Instant createdAt,
+                                                            @Param("id") Long id,
+                                                            Limit limit);
+
+    /**
+     * Last sale of every product of an organization sold at or after
+     * {@code since}. Rows are [productId, lastSaleAt].
+     */
+    @Query("""
+            SELECT i.productId, MAX(it.createdAt)
+            FROM InventoryTransaction it
+            JOIN Inventory i ON i.id = it.inventoryId
+            WHERE i.organizationId = :organizationId
+              AND it.transactionType = 'SALE'
+              AND it.createdAt >= :since
+            GROUP BY i.productId
+            """)
+    List<Object[]> findLastSalesSince(@Param("organizationId") Long organizationId,
+                                      @Param("since") Instant since);
+
+    /**
+     * The sale lines of dynamically priced products of an organization created
+     * at or after {@code from}, oldest first, as rows of [transaction id,
+     * productId, categoryId, quantity sold, createdAt].
+     */
+    @Query("""
+            SELECT it.id, p.id, p.categoryId, -it.quantityChange, it.createdAt
+            FROM InventoryTransaction it
+            JOIN Inventory i ON i.id = it.inventoryId
+            JOIN i.product p
+            JOIN p.category c
+            WHERE i.organizationId = :organizationId
+              AND it.transactionType = 'SALE'
+              AND c.dynamicPricing = true
+              AND it.createdAt >= :from
+            ORDER BY it.createdAt, it.id
+            """)
+    List<Object[]> findDynamicSaleLinesSince(@Param("organizationId") Long organizationId,
+                                             @Param("from") Instant from);
+
+    /**
+     * The sale lines of an organization created in [{@code from}, {@code to}),
+     * oldest first, as rows of [productId, quantity sold, priceBefore,
+     * createdAt]. Rows are fetched in batches as the stream is read rather than
+     * all at once, so the stream must be read inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "10000"))
+    @Query("""
+            SELECT i.productId, -it.quantityChange, it.priceBefore, it.createdAt
+            FROM InventoryTransaction it
+            JOIN Inventory i ON i.id = it.inventoryId
             WHERE i.organizationId = :organizationId
-            AND it.transactionType = 'SALE'
-            ORDER BY it.createdAt DESC
+              AND it.transactionType = 'SALE'
+              AND it.createdAt >= :from AND it.createdAt < :to
+            ORDER BY it.createdAt, it.id
             """)
-    List<InventoryTransaction> findSaleTransactionsByOrganizationId(@Param("organizationId") Long organizationId);
-
-    @Query(value = """
-              SELECT DISTINCT i.organizationId
-              FROM InventoryTransaction it
-              JOIN Inventory i ON i.id = it.inventoryId
-              WHERE it.transactionType = 'SALE'
-                AND it.createdAt >= (CURRENT_TIMESTAMP - 60 SECOND)
+    Stream<Object[]> streamSaleLines(@Param("organizationId") Long organizationId,
+                                     @Param("from") Instant from,
+                                     @Param("to") Instant to);
+
+    /**
+     * Aggregates the sale lines of an organization into hourly rollup rows in the
+     * database. Rows are [barStationId, userId, productId, hourStart, saleCount,
+     * lineCount, quantity, revenue]; a sale is counted in saleCount only on the
+     * row of its lowest product id, which is looked up once per sale.
+     */
+    @Query("""
+            SELECT s.barStationId, s.userId, i.productId, trunc(s.createdAt, hour),
+                   COUNT(DISTINCT CASE WHEN i.productId = f.productId THEN s.id END),
+                   COUNT(DISTINCT s.id),
+                   SUM(-it.quantityChange),
+                   SUM(-it.quantityChange * it.priceBefore)
+            FROM InventoryTransaction it
+            JOIN it.sale s
+            JOIN Inventory i ON i.id = it.inventoryId
+            JOIN (
+                SELECT s2.id AS saleId, MIN(i2.productId) AS productId
+                FROM InventoryTransaction it2
+                JOIN it2.sale s2
+                JOIN Inventory i2 ON i2.id = it2.inventoryId
+                WHERE s2.organizationId = :organizationId
+                GROUP BY s2.id
+            ) f ON f.saleId = s.id
+            WHERE s.organizationId = :organizationId
+            GROUP BY s.barStationId, s.userId, i.productId, trunc(s.createdAt, hour)
+            """)
+    List<Object[]> aggregateSaleLinesHourly(@Param("organizationId") Long organizationId);
+
+    /**
+     * Aggregates the ledger of one inventory row into fixed intervals of
+     * {@code seconds}, aligned to the epoch. Rows are [intervalStart (epoch
+     * seconds), open, high, low, close, quantity sold, transaction count],
+     * ordered by interval. The opening and closing prices are those of the
+     * first and last transaction of the interval in (createdAt, id) order, as
+     * ids are not handed out in time order. The range is read from the
+     * (inventory_id, created_at, id) index the history pages use.
+     */
+    @Query("""
+            SELECT b.intervalStart, MIN(b.open), MAX(b.high), MIN(b.low), MIN(b.close), SUM(b.sold), COUNT(*)
+            FROM (
+                SELECT t.intervalStart AS intervalStart,
+                       first_value(t.priceBefore) OVER (PARTITION BY t.intervalStart
+                           ORDER BY t.createdAt, t.id) AS open,
+                       first_value(t.priceAfter) OVER (PARTITION BY t.intervalStart
+                           ORDER BY t.createdAt DESC, t.id DESC) AS close,
+                       greatest(t.priceBefore, t.priceAfter) AS high,
+                       least(t.priceBefore, t.priceAfter) AS low,
+                       t.sold AS sold
+                FROM (
+                    SELECT it.id AS id,
+                           it.createdAt AS createdAt,
+                           it.priceBefore AS priceBefore,
+                           it.priceAfter AS priceAfter,
+                           extract(epoch from it.createdAt) - mod(extract(epoch from it.createdAt), :seconds)
+                               AS intervalStart,
+                           CASE WHEN it.transactionType = 'SALE' THEN -it.quantityChange ELSE 0 END AS sold
+                    FROM InventoryTransaction it
+                    WHERE it.inventoryId = :inventoryId
+                      AND it.createdAt >= :from AND it.createdAt < :to
+                ) t
+            ) b
+            GROUP BY b.intervalStart
+            ORDER BY b.intervalStart
             """)
-    List<Long> findOrganizationIdsWithSalesInLastMinute();
+    List<Object[]> aggregatePriceCandles(@Param("inventoryId") Long inventoryId,
+                                         @Param("from") Instant from,
+                                         @Param("to") Instant to,
+                                         @Param("seconds") long seconds);
 }
@@ -0,0 +1,23 @@
+package com.borsibaar.repository;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Read-only projection of an inventory row and the product columns shown with
+ * it, selected in one join instead of loading the entities and their associations.
+ */
+public record InventoryView(
+        Long id,
+        Long organizationId,
+        Long productId,
+        String productName,
+        String description,
+        BigDecimal quantity,
+        BigDecimal adjustedPrice,
+        BigDecimal basePrice,
+        BigDecimal minPrice,
+        BigDecimal maxPrice,
+        OffsetDateTime updatedAt,
+        boolean active) {
+}
@@ -0,0 +1,57 @@
+package com.borsibaar.repository;
+
+import com.borsibaar.entity.JobLock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+public interface JobLockRepository extends JpaRepository<JobLock, String> {
+
+    /**
+     * Takes over the lease of a job if it has expired. Returns 1 if the lease
+     * now belongs to {@code owner}.
+     */
+    @Modifying
+    @Query("""
+            UPDATE JobLock l
+            SET l.lockedUntil = :lockedUntil, l.lockedAt = :now, l.lockedBy = :owner
+            WHERE l.name = :name AND l.lockedUntil <= :now
+            """)
+    int acquireExpired(@Param("name") String name, @Param("owner") String owner,
+            @Param("now") Instant now, @Param("lockedUntil") Instant lockedUntil);
+
+    /**
+     * Creates the lease of a job that has never run. Fails with a duplicate key
+     * if another replica created it first.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO job_locks (name, locked_until, locked_at, locked_by)
+            VALUES (:name, :lockedUntil, :now, :owner)
+            """, nativeQuery = true)
+    int create(@Param("name") String name, @Param("owner") String owner,
+            @Param("now") Instant now, @Param("lockedUntil") Instant lockedUntil);
+
+    /**
+     * Extends the lease of a run of a job started at {@code lockedAt} by
+     * {@code owner}. Returns 0 if another run has taken the lease since.
+     */
+    @Modifying
+    @Query("""
+            UPDATE JobLock l SET l.lockedUntil = :lockedUntil
+            WHERE l.name = :name AND l.lockedBy = :owner AND l.lockedAt = :lockedAt
+            """)
+    int renew(@Param("name") String name, @Param("owner") String owner,
+            @Param("lockedAt") Instant lockedAt, @Param("lockedUntil") Instant lockedUntil);
+
+    /**
+     * Shortens the lease of a job held by {@code owner}.
+     */
+    @Modifying
+    @Query("UPDATE JobLock l SET l.lockedUntil = :lockedUntil WHERE l.name = :name AND l.lockedBy = :owner")
+    int release(@Param("name") String name, @Param("owner") String owner,
+            @Param("lockedUntil") Instant lockedUntil);
+}
@@ -2,6 +2,19 @@ package com.borsibaar.repository;
 
 import com.borsibaar.entity.Organization;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface OrganizationRepository extends JpaRepository<Organization, Long> {
+
+    /**
+     * Price tick interval of every organization.
+     * Rows are [organizationId, priceTickSeconds]; the interval may be null.
+     */
+    @Query("SELECT o.id, o.priceTickSeconds FROM Organization o")
+    List<Object[]> findPriceTickSeconds();
+
+    @Query("SELECT o.id FROM Organization o")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,23 @@
+package com.borsibaar.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+/**
+ * A price moved by
+ * {@link InventoryRepository#reduceIdlePrices(Long, Collection, String)} or
+ * {@link InventoryRepository#setPrices}, with the stock of the product at that
+ * time.
+ */
+public interface PriceAdjustmentView {
+
+    Long getOrganizationId();
+
+    Long getProductId();
+
+    BigDecimal getQuantity();
+
+    BigDecimal getPriceBefore();
+
+    BigDecimal getPriceAfter();
+}
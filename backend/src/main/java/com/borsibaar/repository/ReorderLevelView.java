@@ -0,0 +1,14 @@
+package com.borsibaar.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Stock and reorder threshold of a product, as needed to tell whether it is
+ * running low.
+ */
+public record ReorderLevelView(
+        Long productId,
+        String productName,
+        BigDecimal quantity,
+        BigDecimal reorderThreshold) {
+}
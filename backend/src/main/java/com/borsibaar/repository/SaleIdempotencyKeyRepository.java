@@ -0,0 +1,18 @@
+package com.borsibaar.repository;
+
+import com.borsibaar.entity.SaleIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface SaleIdempotencyKeyRepository extends JpaRepository<SaleIdempotencyKey, Long> {
+    Optional<SaleIdempotencyKey> findByOrganizationIdAndIdempotencyKey(Long organizationId, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM SaleIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,9 @@
+package com.borsibaar.repository;
+
+import com.borsibaar.entity.Sale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface SaleRepository extends JpaRepository<Sale, Long> {
+}
@@ -0,0 +1,49 @@
+package com.borsibaar.repository;
+
+import com.borsibaar.entity.SalesRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    List<SalesRollup> findByOrganizationIdAndProductIdInAndHourStartIn(Long organizationId,
+            Collection<Long> productIds, Collection<Instant> hourStarts);
+
+    @Modifying
+    @Query("DELETE FROM SalesRollup r WHERE r.organizationId = :organizationId")
+    int deleteByOrganizationId(@Param("organizationId") Long organizationId);
+
+    /**
+     * Sales count and revenue per user and bar station.
+     * Rows are [userId, barStationId, salesCount, totalRevenue].
+     */
+    @Query("""
+            SELECT r.userId, r.barStationId, SUM(r.saleCount), SUM(r.revenue)
+            FROM SalesRollup r
+            WHERE r.organizationId = :organizationId
+            AND r.userId IS NOT NULL
+            GROUP BY r.userId, r.barStationId
+            """)
+    List<Object[]> sumByUserAndStation(@Param("organizationId") Long organizationId);
+
+    /**
+     * Sales count and revenue per bar station.
+     * Rows are [barStationId, salesCount, totalRevenue].
+     */
+    @Query("""
+            SELECT r.barStationId, SUM(r.saleCount), SUM(r.revenue)
+            FROM SalesRollup r
+            WHERE r.organizationId = :organizationId
+            AND r.barStationId IS NOT NULL
+            GROUP BY r.barStationId
+            """)
+    List<Object[]> sumByStation(@Param("organizationId") Long organizationId);
+}
@@ -3,12 +3,14 @@ package com.borsibaar.service;
 import com.borsibaar.dto.CategoryRequestDto;
 import com.borsibaar.dto.CategoryResponseDto;
 import com.borsibaar.entity.Category;
+import com.borsibaar.event.InventoryChangedEvent;
 import com.borsibaar.exception.BadRequestException;
 import com.borsibaar.exception.DuplicateResourceException;
 import com.borsibaar.exception.NotFoundException;
 import com.borsibaar.mapper.CategoryMapper;
 import com.borsibaar.repository.CategoryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -20,6 +22,8 @@ import java.util.Optional;
 public class CategoryService {
     private final CategoryRepository categoryRepository;
     private final CategoryMapper categoryMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public CategoryResponseDto create(CategoryRequestDto request, Long organizationId) {
@@ -40,7 +44,11 @@ public class CategoryService {
             throw new DuplicateResourceException("Category '" + normalizedName + "' already exists");
         }
 
-        return categoryMapper.toResponse(categoryRepository.save(category));
+        Category saved = categoryRepository.save(category);
+        referenceDataCache.evictCategory(null);
+        // Inventory lists and the board show categories, so their snapshots move on
+        eventPublisher.publishEvent(new InventoryChangedEvent(organizationId));
+        return categoryMapper.toResponse(saved);
     }
 
     @Transactional(readOnly = true)
@@ -66,6 +74,8 @@ public class CategoryService {
                 .map(category -> {
                     CategoryResponseDto dto = categoryMapper.toResponse(category);
                     categoryRepository.delete(category);
+                    referenceDataCache.evictCategory(id);
+                    eventPublisher.publishEvent(new InventoryChangedEvent(organizationId));
                     return dto;
                 })
                 .orElseThrow(() -> new NotFoundException("Category not found: " + id));
@@ -0,0 +1,326 @@
+package com.borsibaar.service;
+
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.ReferenceDataChangedEvent;
+import com.borsibaar.repository.OrganizationRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Relays committed {@link InventoryChangedEvent}s between the replicas of the
+ * application, so that their price books, board snapshots, price tickers and
+ * low-stock monitors follow changes made through any of them, including the
+ * price ticks run by only one replica. {@link ReferenceDataChangedEvent}s are
+ * relayed the same way, so that every replica evicts the written organizations,
+ * categories and products from its second-level cache and picks up new price
+ * steps.
+ * <p>
+ * Each event is sent with PostgreSQL {@code NOTIFY} from inside the transaction
+ * that made the change, so it is delivered if and only if the change commits.
+ * Every replica listens on a connection of its own, opened from the datasource
+ * settings outside the connection pool so that it does not hold a pooled
+ * connection for good, and republishes the changes
+ * of the other replicas as {@linkplain InventoryChangedEvent#remote remote}
+ * events. Changes that do not fit into a notification are sent without their
+ * products, making receivers reload the organization, and after the listening
+ * connection was lost every organization is reloaded, since notifications sent
+ * meanwhile are not delivered.
+ * <p>
+ * Inactive unless the database is PostgreSQL, or with
+ * {@code app.cluster.changes.enabled=false}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.cluster.changes.enabled", havingValue = "true", matchIfMissing = true)
+public class ClusterChangeRelay implements SmartLifecycle {
+
+    static final String CHANNEL = "borsibaar_changes";
+    // PostgreSQL rejects payloads of 8000 bytes or more
+    static final int MAX_PAYLOAD_BYTES = 7900;
+    private static final int POLL_TIMEOUT_MILLIS = 5_000;
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final String origin = UUID.randomUUID().toString();
+    private final DataSource dataSource;
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrganizationRepository organizationRepository;
+
+    private volatile boolean enabled;
+    private volatile boolean running;
+    private Thread listener;
+
+    public ClusterChangeRelay(DataSource dataSource, DataSourceProperties dataSourceProperties,
+            ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+            OrganizationRepository organizationRepository) {
+        this.dataSource = dataSource;
+        this.dataSourceProperties = dataSourceProperties;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.organizationRepository = organizationRepository;
+    }
+
+    /**
+     * Sends a committed change to the other replicas, or nothing if it came
+     * from one of them.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (!enabled || event.remote()) {
+            return;
+        }
+        send(payload(event));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (!enabled || event.remote()) {
+            return;
+        }
+        send(payload(event));
+    }
+
+    @Override
+    public void start() {
+        enabled = isPostgreSql();
+        if (!enabled) {
+            log.info("Not relaying inventory changes between replicas, the database is not PostgreSQL");
+            return;
+        }
+        running = true;
+        // Unpooled: every getConnection() opens a new physical connection
+        DataSource listenDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build();
+        listener = new Thread(() -> listen(listenDataSource), "cluster-change-relay");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = listener;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(POLL_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Payload of the notification sent for a change.
+     */
+    String payload(InventoryChangedEvent event) {
+        try {
+            String payload = objectMapper.writeValueAsString(
+                    new Message(origin, event.organizationId(), event.changes(), null));
+            if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_PAYLOAD_BYTES) {
+                // Too many products; receivers reload the organization instead
+                payload = objectMapper.writeValueAsString(
+                        new Message(origin, event.organizationId(), List.of(), null));
+            }
+            return payload;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the inventory change", e);
+        }
+    }
+
+    /**
+     * Payload of the notification sent for a written organization, category or product.
+     */
+    String payload(ReferenceDataChangedEvent event) {
+        try {
+            return objectMapper.writeValueAsString(
+                    new Message(origin, null, List.of(), new Reference(event.kind(), event.id())));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the reference data change", e);
+        }
+    }
+
+    /**
+     * Republishes the changes of other replicas received in one poll. Written
+     * reference data comes first, then the inventory changes, one event per
+     * organization holding its changes in the order they were committed.
+     */
+    void receive(List<String> payloads) {
+        Map<Long, List<InventoryChangedEvent.ProductChange>> organizations = new LinkedHashMap<>();
+        for (String payload : payloads) {
+            Message message;
+            try {
+                message = objectMapper.readValue(payload, Message.class);
+            } catch (JsonProcessingException e) {
+                log.warn("Ignoring unreadable inventory change {}", payload, e);
+                continue;
+            }
+            if (origin.equals(message.origin())) {
+                continue;
+            }
+            if (message.reference() != null) {
+                eventPublisher.publishEvent(ReferenceDataChangedEvent.remote(message.reference().kind(),
+                        message.reference().id()));
+                continue;
+            }
+
+            List<InventoryChangedEvent.ProductChange> changes = organizations.get(message.organizationId());
+            if (message.changes().isEmpty()) {
+                // A reload of the organization covers every change of it
+                organizations.put(message.organizationId(), null);
+            } else if (changes != null || !organizations.containsKey(message.organizationId())) {
+                if (changes == null) {
+                    changes = new ArrayList<>();
+                    organizations.put(message.organizationId(), changes);
+                }
+                changes.addAll(message.changes());
+            }
+        }
+
+        organizations.forEach((organizationId, changes) -> eventPublisher.publishEvent(InventoryChangedEvent.remote(
+                organizationId, changes != null ? changes : List.of())));
+    }
+
+    private void send(String payload) {
+        // Same connection as the change, so the notification is only sent if it commits
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+    }
+
+    private void listen(DataSource listenDataSource) {
+        Duration backoff = Duration.ofSeconds(1);
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = listenDataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                NotificationReader notificationReader = new NotificationReader(connection);
+                log.info("Listening for inventory changes of other replicas");
+                backoff = Duration.ofSeconds(1);
+                if (reconnecting) {
+                    reloadAll();
+                }
+                reconnecting = true;
+
+                while (running) {
+                    List<String> payloads = notificationReader.read(POLL_TIMEOUT_MILLIS);
+                    if (!payloads.isEmpty()) {
+                        receive(payloads);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lost the inventory changes of other replicas, retrying in {}", backoff, e);
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) < 0 ? backoff.multipliedBy(2) : MAX_BACKOFF;
+            }
+        }
+    }
+
+    // Changes sent while not listening are lost
+    private void reloadAll() {
+        for (Long organizationId : organizationRepository.findAllIds()) {
+            eventPublisher.publishEvent(InventoryChangedEvent.remote(organizationId, List.of()));
+        }
+    }
+
+    private boolean isPostgreSql() {
+        try (Connection connection = dataSource.getConnection()) {
+            return "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName());
+        } catch (SQLException e) {
+            log.warn("Could not tell the database product", e);
+            return false;
+        }
+    }
+
+    /**
+     * Reads the notifications received on a PostgreSQL connection. The driver
+     * is only a runtime dependency, so its notification API is called through
+     * reflection.
+     */
+    private static final class NotificationReader {
+        private final Object pgConnection;
+        private final Method getNotifications;
+        private final Method getParameter;
+
+        private NotificationReader(Connection connection) throws SQLException {
+            try {
+                Class<?> pgConnectionClass = Class.forName("org.postgresql.PGConnection");
+                this.pgConnection = connection.unwrap(pgConnectionClass);
+                this.getNotifications = pgConnectionClass.getMethod("getNotifications", int.class);
+                this.getParameter = Class.forName("org.postgresql.PGNotification").getMethod("getParameter");
+            } catch (ReflectiveOperationException e) {
+                throw new SQLException("PostgreSQL driver does not support notifications", e);
+            }
+        }
+
+        // Waits up to the timeout for notifications; payloads in the order they were sent
+        private List<String> read(int timeoutMillis) throws SQLException {
+            try {
+                Object[] notifications = (Object[]) getNotifications.invoke(pgConnection, timeoutMillis);
+                if (notifications == null) {
+                    return List.of();
+                }
+                List<String> payloads = new ArrayList<>(notifications.length);
+                for (Object notification : notifications) {
+                    payloads.add((String) getParameter.invoke(notification));
+                }
+                return payloads;
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException cause) {
+                    throw cause;
+                }
+                throw new SQLException("Could not read notifications", e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException("Could not read notifications", e);
+            }
+        }
+    }
+
+    record Message(String origin, Long organizationId, List<InventoryChangedEvent.ProductChange> changes,
+                   Reference reference) {
+    }
+
+    record Reference(ReferenceDataChangedEvent.Kind kind, Long id) {
+    }
+}
@@ -2,15 +2,21 @@ package com.borsibaar.service;
 
 import com.borsibaar.dto.*;
 import com.borsibaar.entity.*;
+import com.borsibaar.event.InventoryChangedEvent;
 import com.borsibaar.mapper.InventoryMapper;
 import com.borsibaar.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.*;
@@ -20,12 +26,20 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class InventoryService {
 
+    private static final int MAX_CANDLES = 500;
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+    private static final Instant END_OF_TIME = Instant.parse("9999-12-31T23:59:59Z");
+
     private final InventoryRepository inventoryRepository;
     private final InventoryTransactionRepository inventoryTransactionRepository;
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final BarStationRepository barStationRepository;
+    private final SalesRollupRepository salesRollupRepository;
     private final InventoryMapper inventoryMapper;
+    private final PriceBook priceBook;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional(readOnly = true)
     public List<InventoryResponseDto> getByOrganization(Long organizationId) {
@@ -34,74 +48,85 @@ public class InventoryService {
 
     @Transactional(readOnly = true)
     public List<InventoryResponseDto> getByOrganization(Long organizationId, Long categoryId) {
-        List<Inventory> inventories;
-
-        if (categoryId != null) {
-            inventories = inventoryRepository.findByOrganizationIdAndCategoryId(organizationId, categoryId);
-        } else {
-            inventories = inventoryRepository.findByOrganizationId(organizationId);
-        }
-
-        var productsMap = productRepository
-                .findAllById(inventories.stream().map(Inventory::getProductId).toList())
-                .stream()
-                .collect(Collectors.toMap(Product::getId, p -> p));
+        List<InventoryView> views = categoryId != null
+                ? inventoryRepository.findViewsByOrganizationIdAndCategoryId(organizationId, categoryId)
+                : inventoryRepository.findViewsByOrganizationId(organizationId);
 
-        return inventories.stream()
-                .map(inv -> {
-                    InventoryResponseDto base = inventoryMapper.toResponse(inv);
-                    Product product = productsMap.get(inv.getProductId());
+        // Prices come from the price book, not from the loaded rows
+        Map<Long, BigDecimal> prices = priceBook.prices(organizationId);
 
-                    if (product == null || !product.isActive()) {
-                        return null;
-                    }
+        return views.stream()
+                .map(view -> {
+                    InventoryResponseDto response = inventoryMapper.toResponse(view);
+                    response.setUnitPrice(prices.getOrDefault(view.productId(), view.basePrice()));
+                    return response;
+                })
+                .toList();
+    }
 
-                    String productName = product.getName();
-                    BigDecimal unitPrice = Optional.ofNullable(inv.getAdjustedPrice())
-                            .orElse(product.getBasePrice());
+    /**
+     * Market board of an organization: every active product with its current
+     * price, grouped by category, loaded in one query.
+     */
+    @Transactional(readOnly = true)
+    public MarketBoardDto getMarketBoard(Long organizationId) {
+        Map<Long, BigDecimal> prices = priceBook.prices(organizationId);
+        Map<Long, MarketBoardCategoryDto> categories = new LinkedHashMap<>();
+
+        for (Inventory inventory : inventoryRepository.findForBoardByOrganizationId(organizationId)) {
+            Product product = inventory.getProduct();
+            Category category = product.getCategory();
+            BigDecimal unitPrice = prices.getOrDefault(product.getId(), product.getBasePrice());
+            BigDecimal changePercent = changePercent(unitPrice, product.getBasePrice());
+
+            categories.computeIfAbsent(category.getId(), id -> new MarketBoardCategoryDto()
+                            .categoryId(id)
+                            .categoryName(category.getName())
+                            .dynamicPricing(category.isDynamicPricing()))
+                    .addProductsItem(new MarketBoardProductDto()
+                            .productId(product.getId())
+                            .productName(product.getName())
+                            .description(product.getDescription())
+                            .quantity(inventory.getQuantity())
+                            .unitPrice(unitPrice)
+                            .basePrice(product.getBasePrice())
+                            .minPrice(product.getMinPrice())
+                            .maxPrice(product.getMaxPrice())
+                            .changePercent(changePercent)
+                            .trend(switch (changePercent.signum()) {
+                                case 1 -> MarketBoardProductDto.TrendEnum.UP;
+                                case -1 -> MarketBoardProductDto.TrendEnum.DOWN;
+                                default -> MarketBoardProductDto.TrendEnum.FLAT;
+                            }));
+        }
 
-                    base.setProductName(productName);
-                    base.setUnitPrice(unitPrice);
-                    base.setDescription(product.getDescription());
-                    base.setBasePrice(product.getBasePrice());
-                    base.setMinPrice(product.getMinPrice());
-                    base.setMaxPrice(product.getMaxPrice());
+        return new MarketBoardDto()
+                .organizationId(organizationId)
+                .categories(new ArrayList<>(categories.values()));
+    }
 
-                    return base;
-                })
-                .filter(Objects::nonNull)
-                .sorted(Comparator.comparing(InventoryResponseDto::getProductName))
-                .toList();
+    private static BigDecimal changePercent(BigDecimal price, BigDecimal basePrice) {
+        if (basePrice == null || basePrice.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return price.subtract(basePrice)
+                .multiply(BigDecimal.valueOf(100))
+                .divide(basePrice, 2, RoundingMode.HALF_UP);
     }
 
     @Transactional(readOnly = true)
     public InventoryResponseDto getByProductAndOrganization(Long productId, Long organizationId) {
-        Inventory inventory = inventoryRepository
-                .findByOrganizationIdAndProductId(organizationId, productId)
+        InventoryView view = inventoryRepository
+                .findViewByOrganizationIdAndProductId(organizationId, productId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "No inventory found for this product"));
-
-        InventoryResponseDto base = inventoryMapper.toResponse(inventory);
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> new ResponseStatusException(
-                        HttpStatus.NOT_FOUND, "No product found"));
-        if (!product.isActive()) {
+        if (!view.active()) {
             throw new ResponseStatusException(HttpStatus.GONE, "Product is deleted");
         }
 
-        String productName = product.getName();
-        BigDecimal unitPrice = Optional.ofNullable(inventory.getAdjustedPrice())
-                .orElse(product.getBasePrice());
-        BigDecimal basePrice = product.getBasePrice();
-
-        base.setProductName(productName);
-        base.setUnitPrice(unitPrice);
-        base.setDescription(product.getDescription());
-        base.setBasePrice(basePrice);
-        base.setMinPrice(product.getMinPrice());
-        base.setMaxPrice(product.getMaxPrice());
-
-        return base;
+        InventoryResponseDto response = inventoryMapper.toResponse(view);
+        response.setUnitPrice(priceBook.quote(organizationId, productId).orElse(view.basePrice()));
+        return response;
     }
 
     @Transactional
@@ -111,7 +136,7 @@ public class InventoryService {
 
         // Get or create inventory
         Inventory inventory = inventoryRepository
-                .findByOrganizationIdAndProductId(organizationId, request.getProductId())
+                .findForUpdateByOrganizationIdAndProductId(organizationId, request.getProductId())
                 .orElseGet(() -> {
                     Inventory newInv = new Inventory();
                     newInv.setOrganizationId(organizationId);
@@ -123,18 +148,20 @@ public class InventoryService {
                     return inventoryRepository.save(newInv);
                 });
 
-        BigDecimal newQuantity = inventory.getQuantity().add(request.getQuantity());
+        BigDecimal oldQuantity = inventory.getQuantity();
+        BigDecimal newQuantity = oldQuantity.add(request.getQuantity());
 
         inventory.setQuantity(newQuantity);
         inventory.setUpdatedAt(OffsetDateTime.now());
+        // The whole row is written, so carry the current price of the locked row
+        BigDecimal currentPrice = priceBook.quote(inventory);
+        inventory.setAdjustedPrice(currentPrice);
         inventory = inventoryRepository.save(inventory);
 
-        BigDecimal currentPrice = Optional.ofNullable(inventory.getAdjustedPrice())
-                .orElse(product.getBasePrice());
-
         // Create transaction record
         createTransaction(inventory, "PURCHASE", request.getQuantity(),
                 newQuantity, currentPrice, currentPrice, null, request.getNotes(), userId);
+        eventPublisher.publishEvent(InventoryChangedEvent.of(organizationId, inventory, oldQuantity));
 
         InventoryResponseDto base = inventoryMapper.toResponse(inventory);
 
@@ -153,7 +180,7 @@ public class InventoryService {
         Product product = getOrganizationProduct(organizationId, request.getProductId());
 
         Inventory inventory = inventoryRepository
-                .findByOrganizationIdAndProductId(organizationId, request.getProductId())
+                .findForUpdateByOrganizationIdAndProductId(organizationId, request.getProductId())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "No inventory found for this product"));
 
@@ -169,15 +196,15 @@ public class InventoryService {
 
         inventory.setQuantity(newQuantity);
         inventory.setUpdatedAt(OffsetDateTime.now());
+        BigDecimal currentPrice = priceBook.quote(inventory);
+        inventory.setAdjustedPrice(currentPrice);
         inventory = inventoryRepository.save(inventory);
 
-        BigDecimal currentPrice = Optional.ofNullable(inventory.getAdjustedPrice())
-                .orElse(product.getBasePrice());
-
         // Create transaction record (negative quantity change)
         createTransaction(inventory, "ADJUSTMENT", request.getQuantity().negate(),
                 newQuantity, currentPrice, currentPrice, request.getReferenceId(),
                 request.getNotes(), userId);
+        eventPublisher.publishEvent(InventoryChangedEvent.of(organizationId, inventory, oldQuantity));
 
         InventoryResponseDto base = inventoryMapper.toResponse(inventory);
 
@@ -195,23 +222,24 @@ public class InventoryService {
         Product product = getOrganizationProduct(organizationId, request.getProductId());
 
         Inventory inventory = inventoryRepository
-                .findByOrganizationIdAndProductId(organizationId, request.getProductId())
+                .findForUpdateByOrganizationIdAndProductId(organizationId, request.getProductId())
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "No inventory found for this product"));
 
-        BigDecimal quantityChange = request.getNewQuantity().subtract(inventory.getQuantity());
+        BigDecimal oldQuantity = inventory.getQuantity();
+        BigDecimal quantityChange = request.getNewQuantity().subtract(oldQuantity);
 
         inventory.setQuantity(request.getNewQuantity());
         inventory.setUpdatedAt(OffsetDateTime.now());
+        BigDecimal currentPrice = priceBook.quote(inventory);
+        inventory.setAdjustedPrice(currentPrice);
         inventory = inventoryRepository.save(inventory);
 
-        BigDecimal currentPrice = Optional.ofNullable(inventory.getAdjustedPrice())
-                .orElse(product.getBasePrice());
-
         // Create transaction record
         createTransaction(inventory, "ADJUSTMENT", quantityChange,
                 request.getNewQuantity(), currentPrice, currentPrice, null, request.getNotes(),
                 userId);
+        eventPublisher.publishEvent(InventoryChangedEvent.of(organizationId, inventory, oldQuantity));
 
         InventoryResponseDto base = inventoryMapper.toResponse(inventory);
 
@@ -224,15 +252,47 @@ public class InventoryService {
         return base;
     }
 
+    /**
+     * One page of the transaction history of a product, newest first, optionally
+     * limited to a time range and a transaction type. Pages are read by keyset on
+     * (created_at, id), so every page costs the same however long the ledger is.
+     */
     @Transactional(readOnly = true)
-    public List<InventoryTransactionResponseDto> getTransactionHistory(Long productId, Long organizationId) {
+    public InventoryTransactionPageDto getTransactionHistory(Long productId, Long organizationId, Instant from,
+                                                             Instant to, String type, String cursor,
+                                                             Integer limit) {
         Inventory inventory = inventoryRepository
                 .findByOrganizationIdAndProductId(organizationId, productId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "No inventory found for this product"));
 
-        List<InventoryTransaction> transactions = inventoryTransactionRepository
-                .findByInventoryIdOrderByCreatedAtDesc(inventory.getId());
+        int pageSize = Math.clamp(limit != null ? limit : DEFAULT_HISTORY_PAGE_SIZE, 1, MAX_HISTORY_PAGE_SIZE);
+        Instant since = from != null ? from : Instant.EPOCH;
+        // Without a cursor, start right before the end of the range
+        HistoryCursor position = cursor != null ? HistoryCursor.decode(cursor)
+                : new HistoryCursor(to != null ? to : END_OF_TIME, Long.MIN_VALUE);
+
+        // One extra row tells whether there is a next page
+        Limit rows = Limit.of(pageSize + 1);
+        List<InventoryTransaction> transactions = new ArrayList<>(type != null
+                ? inventoryTransactionRepository.findPageByInventoryIdAndType(inventory.getId(), type, since,
+                        position.createdAt(), position.id(), rows)
+                : inventoryTransactionRepository.findPageByInventoryId(inventory.getId(), since,
+                        position.createdAt(), position.id(), rows));
+
+        String nextCursor = null;
+        if (transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            InventoryTransaction last = transactions.get(pageSize - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new InventoryTransactionPageDto()
+                .items(toTransactionResponses(transactions))
+                .nextCursor(nextCursor);
+    }
+
+    private List<InventoryTransactionResponseDto> toTransactionResponses(List<InventoryTransaction> transactions) {
 
         // Get all unique user IDs (filter out nulls)
         List<UUID> userIds = transactions.stream()
@@ -263,30 +323,84 @@ public class InventoryService {
                 .toList();
     }
 
+    /**
+     * Price candles of a product: open/high/low/close and sold quantity per
+     * fixed interval, aggregated in the database so the response size only
+     * depends on the range and interval. The range defaults to the last day
+     * and the interval to the shortest one giving at most {@link #MAX_CANDLES}.
+     */
+    @Transactional(readOnly = true)
+    public PriceSeriesDto getPriceSeries(Long productId, Long organizationId, Instant from, Instant to,
+                                         CandleIntervalDto interval) {
+        Inventory inventory = inventoryRepository
+                .findByOrganizationIdAndProductId(organizationId, productId)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "No inventory found for this product"));
+
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(Duration.ofDays(1));
+        if (!start.isBefore(end)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be before 'to'");
+        }
+
+        long rangeSeconds = Duration.between(start, end).toSeconds();
+        CandleIntervalDto candleInterval = interval != null ? interval : Arrays.stream(CandleIntervalDto.values())
+                .filter(candidate -> candleCount(rangeSeconds, candidate) <= MAX_CANDLES)
+                .findFirst()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Time range is too long"));
+        if (candleCount(rangeSeconds, candleInterval) > MAX_CANDLES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Time range has more than " + MAX_CANDLES + " intervals of " + candleInterval);
+        }
+
+        List<Object[]> rows = inventoryTransactionRepository.aggregatePriceCandles(inventory.getId(), start, end,
+                intervalSeconds(candleInterval));
+
+        List<PriceCandleDto> candles = rows.stream()
+                .map(row -> new PriceCandleDto()
+                        .start(Instant.ofEpochSecond(((Number) row[0]).longValue()))
+                        .open((BigDecimal) row[1])
+                        .high((BigDecimal) row[2])
+                        .low((BigDecimal) row[3])
+                        .close((BigDecimal) row[4])
+                        .volume((BigDecimal) row[5])
+                        .transactions(((Number) row[6]).intValue()))
+                .toList();
+
+        return new PriceSeriesDto()
+                .productId(productId)
+                .interval(candleInterval)
+                .from(start)
+                .to(end)
+                .candles(candles);
+    }
+
+    private static long candleCount(long rangeSeconds, CandleIntervalDto interval) {
+        long seconds = intervalSeconds(interval);
+        return (rangeSeconds + seconds - 1) / seconds + 1;
+    }
+
+    private static long intervalSeconds(CandleIntervalDto interval) {
+        return switch (interval) {
+            case MINUTE -> 60;
+            case FIVE_MINUTES -> 5 * 60;
+            case FIFTEEN_MINUTES -> 15 * 60;
+            case HOUR -> 60 * 60;
+            case DAY -> 24 * 60 * 60;
+        };
+    }
+
     @Transactional(readOnly = true)
     public List<UserSalesStatsResponseDto> getUserSalesStats(Long organizationId) {
-        // Get all sale transactions for the organization
-        List<InventoryTransaction> saleTransactions = inventoryTransactionRepository
-                .findSaleTransactionsByOrganizationId(organizationId);
-
-        // Group transactions by user and station
-        Map<String, List<InventoryTransaction>> transactionsByUserAndStation = saleTransactions.stream()
-                .filter(t -> t.getCreatedBy() != null)
-                .collect(Collectors.groupingBy(transaction -> {
-                    UUID userId = transaction.getCreatedBy();
-                    Long stationId = transaction.getBarStationId();
-                    return userId.toString() + "|"
-                            + (stationId != null ? stationId.toString() : "null");
-                }));
-
-        // Get all unique user IDs and station IDs
-        Set<UUID> userIds = saleTransactions.stream()
-                .map(InventoryTransaction::getCreatedBy)
-                .filter(Objects::nonNull)
+        // Count and revenue per user and station, summed from the hourly rollups
+        List<Object[]> rows = salesRollupRepository.sumByUserAndStation(organizationId);
+
+        Set<UUID> userIds = rows.stream()
+                .map(row -> (UUID) row[0])
                 .collect(Collectors.toSet());
 
-        Set<Long> stationIds = saleTransactions.stream()
-                .map(InventoryTransaction::getBarStationId)
+        Set<Long> stationIds = rows.stream()
+                .map(row -> (Long) row[1])
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
@@ -298,41 +412,20 @@ public class InventoryService {
                 .stream()
                 .collect(Collectors.toMap(BarStation::getId, station -> station));
 
-        // Calculate statistics for each user-station combination
-        return transactionsByUserAndStation.entrySet().stream()
-                .map(entry -> {
-                    String[] parts = entry.getKey().split("\\|");
-                    UUID userId = UUID.fromString(parts[0]);
-                    Long stationId = null;
-                    if (parts.length > 1 && !parts[1].equals("null")) {
-                        try {
-                            stationId = Long.parseLong(parts[1]);
-                        } catch (NumberFormatException e) {
-                            stationId = null;
-                        }
-                    }
-
-                    List<InventoryTransaction> userStationTransactions = entry.getValue();
+        return rows.stream()
+                .map(row -> {
+                    UUID userId = (UUID) row[0];
+                    Long stationId = (Long) row[1];
                     User user = userMap.get(userId);
                     BarStation station = stationId != null ? stationMap.get(stationId) : null;
 
-                    // Count unique sales (by referenceId)
-                    long salesCount = userStationTransactions.stream()
-                            .map(InventoryTransaction::getReferenceId)
-                            .filter(Objects::nonNull)
-                            .distinct()
-                            .count();
-
-                    // Calculate total revenue by getting all products and their prices
-                    BigDecimal totalRevenue = calculateTotalRevenue(userStationTransactions);
-
                     UserSalesStatsResponseDto response = new UserSalesStatsResponseDto();
 
                     response.setUserId(userId.toString());
                     response.setUserName(user != null ? user.getName() : "Unknown User");
                     response.setUserEmail(user != null ? user.getEmail() : "unknown@email.com");
-                    response.setSalesCount(salesCount);
-                    response.setTotalRevenue(totalRevenue);
+                    response.setSalesCount((Long) row[2]);
+                    response.setTotalRevenue((BigDecimal) row[3]);
                     response.setBarStationId(stationId);
                     response.setBarStationName(station != null ? station.getName() : null);
 
@@ -345,46 +438,29 @@ public class InventoryService {
 
     @Transactional(readOnly = true)
     public List<StationSalesStatsResponseDto> getStationSalesStats(Long organizationId) {
-        // Get all sale transactions for the organization
-        List<InventoryTransaction> saleTransactions = inventoryTransactionRepository
-                .findSaleTransactionsByOrganizationId(organizationId);
+        // Count and revenue per station, summed from the hourly rollups
+        List<Object[]> rows = salesRollupRepository.sumByStation(organizationId);
 
-        // Group transactions by station
-        Map<Long, List<InventoryTransaction>> transactionsByStation = saleTransactions.stream()
-                .filter(t -> t.getBarStationId() != null)
-                .collect(Collectors.groupingBy(InventoryTransaction::getBarStationId));
-
-        // Get all unique station IDs
-        Set<Long> stationIds = transactionsByStation.keySet();
+        Set<Long> stationIds = rows.stream()
+                .map(row -> (Long) row[0])
+                .collect(Collectors.toSet());
 
         // Fetch all stations at once
         Map<Long, BarStation> stationMap = barStationRepository.findAllById(new ArrayList<>(stationIds))
                 .stream()
                 .collect(Collectors.toMap(BarStation::getId, station -> station));
 
-        // Calculate statistics for each station
-        return transactionsByStation.entrySet().stream()
-                .map(entry -> {
-                    Long stationId = entry.getKey();
-                    List<InventoryTransaction> stationTransactions = entry.getValue();
+        return rows.stream()
+                .map(row -> {
+                    Long stationId = (Long) row[0];
                     BarStation station = stationMap.get(stationId);
 
-                    // Count unique sales (by referenceId)
-                    long salesCount = stationTransactions.stream()
-                            .map(InventoryTransaction::getReferenceId)
-                            .filter(Objects::nonNull)
-                            .distinct()
-                            .count();
-
-                    // Calculate total revenue by getting all products and their prices
-                    BigDecimal totalRevenue = calculateTotalRevenue(stationTransactions);
-
                     StationSalesStatsResponseDto response = new StationSalesStatsResponseDto();
 
                     response.setBarStationId(stationId);
                     response.setBarStationName(station != null ? station.getName() : null);
-                    response.setSalesCount(salesCount);
-                    response.setTotalRevenue(totalRevenue);
+                    response.setSalesCount((Long) row[1]);
+                    response.setTotalRevenue((BigDecimal) row[2]);
 
                     return response;
                 })
@@ -411,8 +487,9 @@ public class InventoryService {
     }
 
     private Product getOrganizationProduct(Long organizationId, Long productId) {
-        // Verify product exists and belongs to organization
-        Product product = productRepository.findById(productId)
+        // Verify product exists and belongs to organization. Category and organization
+        // come along, so the price book does not load them one by one
+        Product product = productRepository.findForPricingById(productId)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Product not found"));
 
@@ -427,19 +504,24 @@ public class InventoryService {
     }
 
 
-    private BigDecimal calculateTotalRevenue(List<InventoryTransaction> userStationTransactions) {
-        var transactionIds = userStationTransactions.stream()
-                .map(InventoryTransaction::getId)
-                .toList();
+    /**
+     * Keyset position in a transaction history, passed to clients as an opaque string.
+     */
+    private record HistoryCursor(Instant createdAt, Long id) {
 
-        return productRepository.findRevenueData(transactionIds)
-                .stream()
-                .map(row -> {
-                    BigDecimal basePrice = (BigDecimal) row[0];
-                    BigDecimal quantityChange = ((BigDecimal) row[1]).abs();
-                    return basePrice.multiply(quantityChange);
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
 
+        static HistoryCursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8)
+                        .split("\\|", 2);
+                return new HistoryCursor(Instant.parse(parts[0]), Long.valueOf(parts[1]));
+            } catch (RuntimeException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+            }
+        }
+    }
 }
@@ -0,0 +1,133 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.InventoryResponseDto;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the assembled inventory lists served to the market board, per
+ * organization and category, and the serialized board itself, under a
+ * per-organization version.
+ * <p>
+ * The version is bumped after every committed {@link InventoryChangedEvent},
+ * including those relayed from other replicas, which also drops the
+ * organization's cached lists. Services publish one for every change that
+ * shows on a list or the board, products and categories included. The ETag of
+ * a list is derived from the version alone, so a board that already has the
+ * current list is answered without building anything or touching the database.
+ */
+@Service
+@RequiredArgsConstructor
+public class InventorySnapshotCache {
+
+    private static final Long ALL_CATEGORIES = 0L;
+    private static final String BOARD = "board";
+
+    // Versions restart with the application, the epoch keeps old ETags from matching
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final ConcurrentMap<Long, Snapshots> organizations = new ConcurrentHashMap<>();
+
+    private final InventoryService inventoryService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Strong ETag of the current inventory list of an organization, optionally
+     * limited to one category.
+     */
+    public String etag(Long organizationId, Long categoryId) {
+        Snapshots snapshots = organizations.get(organizationId);
+        return etag(snapshots != null ? snapshots.version : 0, Objects.toString(categoryId, null));
+    }
+
+    /**
+     * Strong ETag of the current market board of an organization.
+     */
+    public String boardEtag(Long organizationId) {
+        Snapshots snapshots = organizations.get(organizationId);
+        return etag(snapshots != null ? snapshots.version : 0, BOARD);
+    }
+
+    /**
+     * Current inventory list of an organization, optionally limited to one
+     * category, together with its ETag.
+     */
+    public Snapshot get(Long organizationId, Long categoryId) {
+        Snapshots snapshots = snapshots(organizationId);
+        Long key = categoryId != null ? categoryId : ALL_CATEGORIES;
+        Snapshot snapshot = snapshots.lists.get(key);
+        if (snapshot == null) {
+            // Built outside the map so that a slow query does not block other organizations;
+            // a change committed meanwhile has already replaced these snapshots
+            snapshot = new Snapshot(etag(snapshots.version, Objects.toString(categoryId, null)),
+                    inventoryService.getByOrganization(organizationId, categoryId));
+            Snapshot existing = snapshots.lists.putIfAbsent(key, snapshot);
+            if (existing != null) {
+                snapshot = existing;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Current market board of an organization, serialized to JSON once per version.
+     */
+    public Board board(Long organizationId) {
+        Snapshots snapshots = snapshots(organizationId);
+        Board board = snapshots.board;
+        if (board == null) {
+            try {
+                board = new Board(etag(snapshots.version, BOARD),
+                        objectMapper.writeValueAsBytes(inventoryService.getMarketBoard(organizationId)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Could not serialize the market board", e);
+            }
+            // Concurrent builders of the same version produce equal boards
+            snapshots.board = board;
+        }
+        return board;
+    }
+
+    // Right after the price book, so that listeners pushing boards to clients see the new version
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        organizations.compute(event.organizationId(),
+                (id, current) -> new Snapshots(current != null ? current.version + 1 : 1));
+    }
+
+    private Snapshots snapshots(Long organizationId) {
+        return organizations.computeIfAbsent(organizationId, id -> new Snapshots(0));
+    }
+
+    private String etag(long version, String variant) {
+        return "\"" + epoch + "-" + version + (variant != null ? "-" + variant : "") + "\"";
+    }
+
+    public record Snapshot(String etag, List<InventoryResponseDto> items) {
+    }
+
+    public record Board(String etag, byte[] json) {
+    }
+
+    private static final class Snapshots {
+        private final long version;
+        private final Map<Long, Snapshot> lists = new ConcurrentHashMap<>();
+        private volatile Board board;
+
+        private Snapshots(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.LowStockAlertDto;
+import com.borsibaar.dto.LowStockItemDto;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.LowStockAlertEvent;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.ReorderLevelView;
+import com.borsibaar.util.TransactionUtils;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps track of the products running low on stock, per organization.
+ * <p>
+ * The stock and reorder threshold of every product with a threshold are held in
+ * memory, loaded in one query per organization the first time it is asked
+ * about or changes. After that, each committed stock change is checked against
+ * the threshold of the changed products only, by the stock before and after the
+ * change it carries. A product crossing its threshold in either direction is recorded as
+ * an alert and published as a {@link LowStockAlertEvent}; the most recent
+ * alerts are kept per organization for clients that poll. Alert sequences are
+ * microseconds since the epoch, bumped on ties, so a client's cursor stays
+ * valid across restarts and whichever replica answers.
+ * <p>
+ * Checking, and the loading it may need, run on a thread of the monitor, so a
+ * committing transaction never waits for them. An organization first loaded for
+ * a change is checked by the stock before that change, so its alert is not lost.
+ * Changes made through other replicas are checked the same way once relayed
+ * (see {@link ClusterChangeRelay}), so every replica raises the alerts.
+ */
+@Slf4j
+@Component
+public class LowStockMonitor {
+
+    static final int MAX_ALERTS = 100;
+
+    private final InventoryRepository inventoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Executor executor;
+    private final ConcurrentMap<Long, OrganizationStock> organizations = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LowStockMonitor(InventoryRepository inventoryRepository, ApplicationEventPublisher eventPublisher) {
+        this(inventoryRepository, eventPublisher,
+                Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "low-stock-monitor");
+                    thread.setDaemon(true);
+                    return thread;
+                }));
+    }
+
+    LowStockMonitor(InventoryRepository inventoryRepository, ApplicationEventPublisher eventPublisher,
+                    Executor executor) {
+        this.inventoryRepository = inventoryRepository;
+        this.eventPublisher = eventPublisher;
+        this.executor = executor;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Products of an organization whose stock is at or below their reorder
+     * threshold, lowest stock first.
+     */
+    public List<LowStockItemDto> lowStock(Long organizationId) {
+        OrganizationStock stock = organization(organizationId);
+        synchronized (stock) {
+            return loaded(organizationId, stock).entrySet().stream()
+                    .filter(entry -> entry.getValue().low())
+                    .sorted(Comparator.comparing((Map.Entry<Long, Level> entry) -> entry.getValue().quantity())
+                            .thenComparing(entry -> entry.getValue().productName()))
+                    .map(entry -> new LowStockItemDto()
+                            .productId(entry.getKey())
+                            .productName(entry.getValue().productName())
+                            .quantity(entry.getValue().quantity())
+                            .reorderThreshold(entry.getValue().threshold())
+                            .since(entry.getValue().lowSince()))
+                    .toList();
+        }
+    }
+
+    /**
+     * Kept alerts of an organization with a sequence greater than {@code after},
+     * oldest first; all kept alerts when {@code after} is null.
+     */
+    public List<LowStockAlertDto> alerts(Long organizationId, Long after) {
+        OrganizationStock stock = organization(organizationId);
+        synchronized (stock) {
+            return stock.alerts.stream()
+                    .filter(alert -> after == null || alert.getSequence() > after)
+                    .toList();
+        }
+    }
+
+    /**
+     * Applies a new reorder threshold of a product once the current transaction
+     * commits. A null threshold stops tracking the product.
+     */
+    public void updateThreshold(Long organizationId, Long productId, String productName, BigDecimal quantity,
+                                BigDecimal threshold) {
+        TransactionUtils.afterCommit(() -> executor.execute(() -> {
+            OrganizationStock stock = organization(organizationId);
+            synchronized (stock) {
+                if (stock.levels == null) {
+                    // Loaded with the threshold already committed
+                    loaded(organizationId, stock);
+                    return;
+                }
+                if (threshold == null) {
+                    stock.levels.remove(productId);
+                    return;
+                }
+                Level current = stock.levels.get(productId);
+                Level previous = current != null ? current : new Level(productName, quantity, null, null);
+                apply(organizationId, stock, productId, previous,
+                        new Level(productName, quantity, threshold, previous.lowSince()));
+            }
+        }));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        executor.execute(() -> check(event));
+    }
+
+    private void check(InventoryChangedEvent event) {
+        Long organizationId = event.organizationId();
+        OrganizationStock stock = organization(organizationId);
+        synchronized (stock) {
+            if (event.changes().isEmpty()) {
+                // Products were added or removed
+                reload(organizationId, stock);
+                return;
+            }
+            // Loaded after the change committed; the stock before it tells whether it crossed
+            Map<Long, Level> levels = loaded(organizationId, stock);
+            for (InventoryChangedEvent.ProductChange change : event.changes()) {
+                Level known = levels.get(change.productId());
+                if (known == null || change.quantity() == null) {
+                    continue;
+                }
+                Level previous = change.quantityBefore() != null
+                        ? known.withQuantity(change.quantityBefore()) : known;
+                apply(organizationId, stock, change.productId(), previous, known.withQuantity(change.quantity()));
+            }
+        }
+    }
+
+    private void apply(Long organizationId, OrganizationStock stock, Long productId, Level previous, Level next) {
+        boolean wasLow = previous.low();
+        boolean isLow = next.low();
+        if (wasLow == isLow) {
+            stock.levels.put(productId, next);
+            return;
+        }
+
+        Instant now = Instant.now();
+        stock.levels.put(productId, isLow ? next.lowFrom(now) : next.lowFrom(null));
+
+        LowStockAlertDto alert = new LowStockAlertDto()
+                .sequence(nextSequence(stock, now))
+                .kind(isLow ? LowStockAlertDto.KindEnum.LOW : LowStockAlertDto.KindEnum.RESTOCKED)
+                .productId(productId)
+                .productName(next.productName())
+                .quantity(next.quantity())
+                .reorderThreshold(next.threshold())
+                .createdAt(now);
+        stock.alerts.addLast(alert);
+        if (stock.alerts.size() > MAX_ALERTS) {
+            stock.alerts.removeFirst();
+        }
+        log.info("Product {} of organization {} is {} ({} left, threshold {})", productId, organizationId,
+                isLow ? "running low" : "restocked", next.quantity(), next.threshold());
+        eventPublisher.publishEvent(new LowStockAlertEvent(organizationId, alert));
+    }
+
+    private static long nextSequence(OrganizationStock stock, Instant now) {
+        stock.sequence = Math.max(ChronoUnit.MICROS.between(Instant.EPOCH, now), stock.sequence + 1);
+        return stock.sequence;
+    }
+
+    private OrganizationStock organization(Long organizationId) {
+        return organizations.computeIfAbsent(organizationId, id -> new OrganizationStock());
+    }
+
+    private Map<Long, Level> loaded(Long organizationId, OrganizationStock stock) {
+        if (stock.levels == null) {
+            reload(organizationId, stock);
+        }
+        return stock.levels;
+    }
+
+    /**
+     * Replaces the tracked levels with the committed ones, keeping since when
+     * products already known to be low have been low. No alerts are raised.
+     */
+    private void reload(Long organizationId, OrganizationStock stock) {
+        Map<Long, Level> levels = new HashMap<>();
+        for (ReorderLevelView view : inventoryRepository.findReorderLevelsByOrganizationId(organizationId)) {
+            Level level = new Level(view.productName(), view.quantity(), view.reorderThreshold(), null);
+            Level known = stock.levels != null ? stock.levels.get(view.productId()) : null;
+            if (known != null && known.low() && level.low()) {
+                level = level.lowFrom(known.lowSince());
+            }
+            levels.put(view.productId(), level);
+        }
+        stock.levels = levels;
+        log.debug("Loaded {} reorder levels of organization {}", levels.size(), organizationId);
+    }
+
+    private static final class OrganizationStock {
+        // Null until loaded
+        private Map<Long, Level> levels;
+        private final Deque<LowStockAlertDto> alerts = new ArrayDeque<>();
+        private long sequence;
+    }
+
+    private record Level(String productName, BigDecimal quantity, BigDecimal threshold, Instant lowSince) {
+
+        boolean low() {
+            return threshold != null && quantity != null && quantity.compareTo(threshold) <= 0;
+        }
+
+        Level withQuantity(BigDecimal quantity) {
+            return new Level(productName, quantity, threshold, lowSince);
+        }
+
+        Level lowFrom(Instant lowSince) {
+            return new Level(productName, quantity, threshold, lowSince);
+        }
+    }
+}
@@ -21,6 +21,8 @@ public class OrganizationService {
 
     private final OrganizationRepository organizationRepository;
     private final OrganizationMapper organizationMapper;
+    private final PriceBook priceBook;
+    private final ReferenceDataCache referenceDataCache;
 
     @Transactional
     public OrganizationResponseDto create(OrganizationRequestDto request) {
@@ -54,6 +56,8 @@ public class OrganizationService {
         organizationMapper.updateEntity(organization, request);
         organization.setUpdatedAt(Instant.now());
         Organization saved = organizationRepository.save(organization);
+        priceBook.updateSteps(saved.getId(), saved.getPriceIncreaseStep(), saved.getPriceDecreaseStep());
+        referenceDataCache.evictOrganization(saved.getId());
         return organizationMapper.toResponse(saved);
     }
 
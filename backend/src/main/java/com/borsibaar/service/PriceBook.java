@@ -0,0 +1,374 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Organization;
+import com.borsibaar.entity.Product;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.ReferenceDataChangedEvent;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.util.TransactionUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Moves product prices by their organization's price steps, and keeps an
+ * in-memory copy of the committed prices for reads, per organization.
+ * <p>
+ * The source of a price is {@code inventory.adjusted_price}. Writers quote and
+ * move prices from the inventory row their transaction has locked, never from
+ * the book, and write the new price back to that row; so a price moved by
+ * another replica is not undone by a sale here. The book only answers reads
+ * such as boards and price lookups, which would otherwise load every row.
+ * Prices moved inside a transaction are staged and copied into the book when
+ * that transaction commits, while it still holds the row locks; an entry that
+ * disagrees with a locked row is corrected the same way.
+ * <p>
+ * Entries are seeded from inventory rows the first time they are needed, and an
+ * organization is loaded in one query the first time all of its prices are read.
+ * Products changed through other replicas are dropped when their change is
+ * relayed (see {@link ClusterChangeRelay}) and read from their rows again, and
+ * so is the whole organization when another replica changed its price steps.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PriceBook {
+
+    private final InventoryRepository inventoryRepository;
+    private final ConcurrentMap<Long, OrganizationPrices> organizations = new ConcurrentHashMap<>();
+
+    /**
+     * Current price of the product of an inventory row the current transaction
+     * has locked, as stored on the row. Callers write every price they move back
+     * to the row, so this includes their earlier changes in the transaction.
+     */
+    public BigDecimal quote(Inventory inventory) {
+        BigDecimal price = PriceEntry.of(inventory).price();
+        BigDecimal known = entry(inventory).price();
+        if (known.compareTo(price) != 0) {
+            // Moved through another replica; the book follows the row once this transaction commits
+            stage(PriceKey.of(inventory), price);
+        }
+        return price;
+    }
+
+    /**
+     * Committed price of a product as held in the book, or empty if the
+     * organization has no inventory for it. For reads; writers quote the
+     * locked row instead.
+     */
+    public Optional<BigDecimal> quote(Long organizationId, Long productId) {
+        return Optional.ofNullable(prices(organizationId).get(productId));
+    }
+
+    /**
+     * Committed prices of all products of an organization as held in the book,
+     * by product id.
+     */
+    public Map<Long, BigDecimal> prices(Long organizationId) {
+        OrganizationPrices prices = loaded(organizationId);
+        Map<Long, BigDecimal> result = new HashMap<>();
+        prices.entries.forEach((productId, entry) -> result.put(productId, entry.price()));
+        return result;
+    }
+
+    /**
+     * Moves the price up by one step after a sale, capped at the maximum price,
+     * if the product's category uses dynamic pricing. Returns the new price.
+     */
+    public BigDecimal raise(Inventory inventory) {
+        PriceEntry entry = PriceEntry.of(inventory);
+        BigDecimal price = quote(inventory);
+        if (!entry.dynamicPricing()) {
+            return price;
+        }
+
+        BigDecimal raised = price.add(increaseStep(inventory));
+        if (entry.maxPrice() != null && raised.compareTo(entry.maxPrice()) > 0) {
+            raised = entry.maxPrice();
+        }
+        stage(PriceKey.of(inventory), raised);
+        return raised;
+    }
+
+    /**
+     * Moves the price down by one step, not below the minimum price (or the step
+     * itself when no minimum is set). Returns the new price.
+     */
+    public BigDecimal lower(Inventory inventory) {
+        PriceEntry entry = PriceEntry.of(inventory);
+        BigDecimal price = quote(inventory);
+        BigDecimal decreaseStep = decreaseStep(inventory);
+
+        BigDecimal minPrice = Optional.ofNullable(entry.minPrice()).orElse(decreaseStep);
+        BigDecimal lowered = price.subtract(decreaseStep);
+        if (lowered.compareTo(minPrice) < 0) {
+            lowered = minPrice;
+        }
+        stage(PriceKey.of(inventory), lowered);
+        return lowered;
+    }
+
+    /**
+     * Sets the price of a product, e.g. to undo a change made earlier in the
+     * same transaction.
+     */
+    public void set(Inventory inventory, BigDecimal price) {
+        entry(inventory);
+        stage(PriceKey.of(inventory), price);
+    }
+
+    /**
+     * Sets the price of a product whose inventory row the current transaction
+     * updated directly in the database. A product the book has not seen yet is
+     * read from its row the next time it is needed.
+     */
+    public void set(Long organizationId, Long productId, BigDecimal price) {
+        stage(new PriceKey(organizationId, productId), price);
+    }
+
+    /**
+     * Replaces the price steps of an organization once the current transaction commits.
+     */
+    public void updateSteps(Long organizationId, BigDecimal increaseStep, BigDecimal decreaseStep) {
+        TransactionUtils.afterCommit(() -> {
+            OrganizationPrices prices = organizations.get(organizationId);
+            if (prices != null) {
+                prices.increaseStep = increaseStep;
+                prices.decreaseStep = decreaseStep;
+            }
+        });
+    }
+
+    /**
+     * Makes the next read of all prices of an organization pick up products
+     * added by the current transaction. Prices already in the book are kept.
+     */
+    public void refresh(Long organizationId) {
+        TransactionUtils.afterCommit(() -> {
+            OrganizationPrices prices = organizations.get(organizationId);
+            if (prices != null) {
+                prices.complete = false;
+            }
+        });
+    }
+
+    // Before the snapshot cache moves to a new version, so that no board of it is built from old prices
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (!event.remote()) {
+            return;
+        }
+        OrganizationPrices prices = organizations.get(event.organizationId());
+        if (prices == null) {
+            return;
+        }
+        // Not while a load is reading rows from before the change
+        synchronized (prices) {
+            if (event.changes().isEmpty()) {
+                prices.entries.clear();
+            }
+            event.changes().forEach(change -> prices.entries.remove(change.productId()));
+            prices.complete = false;
+        }
+    }
+
+    @EventListener
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.remote() && event.kind() == ReferenceDataChangedEvent.Kind.ORGANIZATION) {
+            // The new steps are not known here; they are read with the organization again
+            organizations.remove(event.id());
+        }
+    }
+
+    private PriceEntry entry(Inventory inventory) {
+        OrganizationPrices prices = organization(inventory);
+        return prices.entries.computeIfAbsent(inventory.getProduct().getId(), id -> PriceEntry.of(inventory));
+    }
+
+    // Steps of the organization loaded with the row, or the ones in the book if it was not loaded
+    private BigDecimal increaseStep(Inventory inventory) {
+        Organization organization = inventory.getProduct().getOrganization();
+        return organization != null && organization.getPriceIncreaseStep() != null
+                ? organization.getPriceIncreaseStep() : organization(inventory).increaseStep;
+    }
+
+    private BigDecimal decreaseStep(Inventory inventory) {
+        Organization organization = inventory.getProduct().getOrganization();
+        return organization != null && organization.getPriceDecreaseStep() != null
+                ? organization.getPriceDecreaseStep() : organization(inventory).decreaseStep;
+    }
+
+    private OrganizationPrices organization(Inventory inventory) {
+        Product product = inventory.getProduct();
+        OrganizationPrices prices = organizations.computeIfAbsent(product.getOrganizationId(),
+                id -> new OrganizationPrices());
+        if (prices.increaseStep == null && product.getOrganization() != null) {
+            prices.useSteps(product.getOrganization());
+        }
+        return prices;
+    }
+
+    private OrganizationPrices loaded(Long organizationId) {
+        OrganizationPrices prices = organizations.computeIfAbsent(organizationId, id -> new OrganizationPrices());
+        if (prices.complete) {
+            return prices;
+        }
+
+        synchronized (prices) {
+            if (!prices.complete) {
+                // Entries already in the book may be newer than the committed rows
+                for (Inventory inventory : inventoryRepository.findForPricingByOrganizationId(organizationId)) {
+                    prices.entries.putIfAbsent(inventory.getProduct().getId(), PriceEntry.of(inventory));
+                    if (prices.increaseStep == null && inventory.getProduct().getOrganization() != null) {
+                        prices.useSteps(inventory.getProduct().getOrganization());
+                    }
+                }
+                prices.complete = true;
+                log.debug("Loaded {} prices of organization {}", prices.entries.size(), organizationId);
+            }
+        }
+        return prices;
+    }
+
+    private void stage(PriceKey key, BigDecimal price) {
+        PendingPrices pending = pendingPrices();
+        if (pending != null) {
+            pending.prices.put(key, price);
+        } else {
+            publish(key, price);
+        }
+    }
+
+    /**
+     * Replaces the price of a product in the book and returns the previous one,
+     * or null if the book does not hold the product.
+     */
+    private BigDecimal publish(PriceKey key, BigDecimal price) {
+        OrganizationPrices prices = organizations.get(key.organizationId());
+        PriceEntry entry = prices != null ? prices.entries.get(key.productId()) : null;
+        if (entry == null) {
+            return null;
+        }
+        prices.entries.put(key.productId(), entry.withPrice(price));
+        return entry.price();
+    }
+
+    /**
+     * Drops a product from the book, so that it is read from its row again.
+     */
+    private void forget(PriceKey key) {
+        OrganizationPrices prices = organizations.get(key.organizationId());
+        if (prices == null) {
+            return;
+        }
+        synchronized (prices) {
+            if (prices.entries.remove(key.productId()) != null) {
+                prices.complete = false;
+            }
+        }
+    }
+
+    /**
+     * Prices staged by the current transaction, created on first use. Null
+     * outside a transaction.
+     */
+    private PendingPrices pendingPrices() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingPrices pending = (PendingPrices) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingPrices();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
+
+    private final class PendingPrices implements TransactionSynchronization {
+
+        private final Map<PriceKey, BigDecimal> prices = new LinkedHashMap<>();
+        private final Map<PriceKey, BigDecimal> replaced = new HashMap<>();
+        private final Set<PriceKey> unknown = new HashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Still holding the inventory row locks here
+            prices.forEach((key, price) -> {
+                BigDecimal previous = publish(key, price);
+                if (previous != null) {
+                    replaced.put(key, previous);
+                } else {
+                    unknown.add(key);
+                }
+            });
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PriceBook.this);
+            if (status == STATUS_COMMITTED) {
+                // A product that was not in the book may have been read meanwhile with its old price
+                unknown.forEach(PriceBook.this::forget);
+                return;
+            }
+            // The commit failed after publishing; put back prices nobody changed since
+            replaced.forEach((key, previous) -> {
+                OrganizationPrices organization = organizations.get(key.organizationId());
+                organization.entries.computeIfPresent(key.productId(),
+                        (id, entry) -> entry.price().equals(prices.get(key)) ? entry.withPrice(previous) : entry);
+            });
+        }
+    }
+
+    private static final class OrganizationPrices {
+        private final ConcurrentMap<Long, PriceEntry> entries = new ConcurrentHashMap<>();
+        private volatile BigDecimal increaseStep;
+        private volatile BigDecimal decreaseStep;
+        private volatile boolean complete;
+
+        private void useSteps(Organization organization) {
+            decreaseStep = organization.getPriceDecreaseStep();
+            increaseStep = organization.getPriceIncreaseStep();
+        }
+    }
+
+    private record PriceKey(Long organizationId, Long productId) {
+
+        static PriceKey of(Inventory inventory) {
+            return new PriceKey(inventory.getProduct().getOrganizationId(), inventory.getProduct().getId());
+        }
+    }
+
+    private record PriceEntry(BigDecimal price, BigDecimal minPrice, BigDecimal maxPrice, boolean dynamicPricing) {
+
+        static PriceEntry of(Inventory inventory) {
+            Product product = inventory.getProduct();
+            BigDecimal price = Optional.ofNullable(inventory.getAdjustedPrice()).orElse(product.getBasePrice());
+            boolean dynamicPricing = product.getCategory() != null && product.getCategory().isDynamicPricing();
+            return new PriceEntry(price, product.getMinPrice(), product.getMaxPrice(), dynamicPricing);
+        }
+
+        PriceEntry withPrice(BigDecimal newPrice) {
+            return new PriceEntry(newPrice, minPrice, maxPrice, dynamicPricing);
+        }
+    }
+}
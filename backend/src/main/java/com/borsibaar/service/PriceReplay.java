@@ -0,0 +1,195 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Product;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The step pricing rules applied in memory to sale lines fed in time order.
+ * A sale raises the price like {@link PriceBook#raise}, and a tick every
+ * {@code tickInterval} after {@code from} lowers the products that did not
+ * sell during the last interval like
+ * {@link com.borsibaar.repository.InventoryRepository#reduceIdlePrices}, as
+ * long as the organization sold something meanwhile.
+ * <p>
+ * A product enters the replay at the price recorded on its first sale line.
+ * Ticks in which nothing could move are jumped over, so a line costs
+ * the same however long the quiet time before it.
+ */
+final class PriceReplay {
+
+    private final Long organizationId;
+    private final Instant from;
+    private final BigDecimal increaseStep;
+    private final BigDecimal decreaseStep;
+    private final Duration tickInterval;
+    private final long tickMillis;
+    private final Map<Long, ReplayProduct> products = new HashMap<>();
+    private long nextTick;
+    private long lastSale = Long.MIN_VALUE;
+    private long saleLines;
+
+    PriceReplay(Long organizationId, List<Product> products, BigDecimal increaseStep, BigDecimal decreaseStep,
+                Duration tickInterval, Instant from) {
+        this.organizationId = organizationId;
+        this.from = from;
+        this.increaseStep = increaseStep;
+        this.decreaseStep = decreaseStep;
+        this.tickInterval = tickInterval;
+        this.tickMillis = tickInterval.toMillis();
+        this.nextTick = from.toEpochMilli() + tickMillis;
+        for (Product product : products) {
+            this.products.put(product.getId(), new ReplayProduct(product));
+        }
+    }
+
+    /**
+     * Applies one sale line, after the ticks due before it.
+     */
+    void sale(Long productId, BigDecimal quantity, BigDecimal recordedPrice, Instant at) {
+        long time = at.toEpochMilli();
+        tickUntil(time);
+
+        ReplayProduct product = products.get(productId);
+        if (product == null) {
+            // Inventory row added after the products were read
+            return;
+        }
+        if (product.price == null) {
+            product.open(recordedPrice != null ? recordedPrice : product.basePrice, at);
+        }
+
+        product.quantity = product.quantity.add(quantity);
+        product.revenue = product.revenue.add(product.price.multiply(quantity));
+        if (recordedPrice != null) {
+            product.recordedRevenue = product.recordedRevenue.add(recordedPrice.multiply(quantity));
+        }
+        product.lastSale = time;
+        lastSale = time;
+        saleLines++;
+
+        if (product.dynamicPricing) {
+            BigDecimal raised = product.price.add(increaseStep);
+            if (product.maxPrice != null && raised.compareTo(product.maxPrice) > 0) {
+                raised = product.maxPrice;
+            }
+            product.move(raised);
+        }
+    }
+
+    /**
+     * Runs the ticks due before {@code to} and reports the replay.
+     */
+    PricingBacktestReport finish(Instant to) {
+        tickUntil(to.toEpochMilli() - 1);
+
+        List<PricingBacktestReport.ProductResult> results = new ArrayList<>();
+        BigDecimal revenue = BigDecimal.ZERO;
+        BigDecimal recordedRevenue = BigDecimal.ZERO;
+        for (ReplayProduct product : products.values()) {
+            if (product.price == null) {
+                continue;
+            }
+            product.sample(to);
+            revenue = revenue.add(product.revenue);
+            recordedRevenue = recordedRevenue.add(product.recordedRevenue);
+            results.add(new PricingBacktestReport.ProductResult(product.id, product.name, product.quantity,
+                    product.revenue, product.recordedRevenue, product.lowPrice, product.highPrice, product.price,
+                    List.copyOf(product.path)));
+        }
+        results.sort((a, b) -> a.productId().compareTo(b.productId()));
+
+        return new PricingBacktestReport(organizationId, from, to, increaseStep, decreaseStep, tickInterval,
+                saleLines, revenue, recordedRevenue, results);
+    }
+
+    private void tickUntil(long time) {
+        while (nextTick <= time) {
+            if (lastSale < nextTick - tickMillis) {
+                // Nothing sold since the last tick, and nothing sells before time
+                nextTick += ((time - nextTick) / tickMillis + 1) * tickMillis;
+                return;
+            }
+            tick(nextTick);
+            nextTick += tickMillis;
+        }
+    }
+
+    private void tick(long time) {
+        long idleSince = time - tickMillis;
+        Instant at = Instant.ofEpochMilli(time);
+        for (ReplayProduct product : products.values()) {
+            if (product.price == null) {
+                continue;
+            }
+            if (product.dynamicPricing && product.active && product.lastSale < idleSince) {
+                BigDecimal minPrice = product.minPrice != null ? product.minPrice : decreaseStep;
+                if (product.price.compareTo(minPrice) > 0) {
+                    BigDecimal lowered = product.price.subtract(decreaseStep);
+                    product.move(lowered.compareTo(minPrice) < 0 ? minPrice : lowered);
+                }
+            }
+            product.sample(at);
+        }
+    }
+
+    private static final class ReplayProduct {
+        private final Long id;
+        private final String name;
+        private final BigDecimal basePrice;
+        private final BigDecimal minPrice;
+        private final BigDecimal maxPrice;
+        private final boolean dynamicPricing;
+        private final boolean active;
+        private final List<PricingBacktestReport.PricePoint> path = new ArrayList<>();
+        private BigDecimal price;
+        private BigDecimal lowPrice;
+        private BigDecimal highPrice;
+        private BigDecimal quantity = BigDecimal.ZERO;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal recordedRevenue = BigDecimal.ZERO;
+        private long lastSale = Long.MIN_VALUE;
+
+        private ReplayProduct(Product product) {
+            this.id = product.getId();
+            this.name = product.getName();
+            this.basePrice = product.getBasePrice();
+            this.minPrice = product.getMinPrice();
+            this.maxPrice = product.getMaxPrice();
+            this.dynamicPricing = product.getCategory() != null && product.getCategory().isDynamicPricing();
+            this.active = product.isActive();
+        }
+
+        private void open(BigDecimal price, Instant at) {
+            this.price = price;
+            this.lowPrice = price;
+            this.highPrice = price;
+            path.add(new PricingBacktestReport.PricePoint(at, price));
+        }
+
+        private void move(BigDecimal price) {
+            this.price = price;
+            if (price.compareTo(lowPrice) < 0) {
+                lowPrice = price;
+            }
+            if (price.compareTo(highPrice) > 0) {
+                highPrice = price;
+            }
+        }
+
+        /**
+         * Adds a point to the path if the price moved since the last one.
+         */
+        private void sample(Instant at) {
+            if (price.compareTo(path.get(path.size() - 1).price()) != 0) {
+                path.add(new PricingBacktestReport.PricePoint(at, price));
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.borsibaar.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Outcome of replaying the sales of an organization through the pricing rules,
+ * see {@link PricingBacktestService}. Revenues are given both as simulated and
+ * as recorded in the ledger, so a change of steps can be judged by the
+ * difference.
+ */
+public record PricingBacktestReport(
+        Long organizationId,
+        Instant from,
+        Instant to,
+        BigDecimal increaseStep,
+        BigDecimal decreaseStep,
+        Duration tickInterval,
+        long saleLines,
+        BigDecimal revenue,
+        BigDecimal recordedRevenue,
+        List<ProductResult> products) {
+
+    /**
+     * Replay of one product. The price path starts with the price of its first
+     * sale and has a point for every tick that found its price changed.
+     */
+    public record ProductResult(
+            Long productId,
+            String name,
+            BigDecimal quantity,
+            BigDecimal revenue,
+            BigDecimal recordedRevenue,
+            BigDecimal lowPrice,
+            BigDecimal highPrice,
+            BigDecimal closePrice,
+            List<PricePoint> path) {
+    }
+
+    public record PricePoint(Instant at, BigDecimal price) {
+    }
+}
@@ -0,0 +1,99 @@
+package com.borsibaar.service;
+
+import com.borsibaar.config.PricingDefaults;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Organization;
+import com.borsibaar.entity.Product;
+import com.borsibaar.exception.BadRequestException;
+import com.borsibaar.exception.NotFoundException;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.repository.OrganizationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Replays the past sales of an organization through the step pricing rules in
+ * memory, to see what other price steps or tick intervals would have made of
+ * them. Nothing is written.
+ * <p>
+ * The sale lines are streamed from the ledger in time order and applied one by
+ * one as they arrive (see {@link PriceReplay}), so memory does not grow with
+ * the number of lines and a replay of millions of lines is bound by reading
+ * them. Products are replayed with their current limits and category.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PricingBacktestService {
+
+    private final OrganizationRepository organizationRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryTransactionRepository inventoryTransactionRepository;
+
+    /**
+     * What to replay: the sales of an organization in [{@code from},
+     * {@code to}), with the given steps and tick interval. Settings left null
+     * are taken from the organization.
+     */
+    public record Scenario(Long organizationId, Instant from, Instant to, BigDecimal increaseStep,
+                           BigDecimal decreaseStep, Duration tickInterval) {
+
+        /**
+         * Replays with the organization's current steps and tick interval.
+         */
+        public static Scenario asConfigured(Long organizationId, Instant from, Instant to) {
+            return new Scenario(organizationId, from, to, null, null, null);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public PricingBacktestReport run(Scenario scenario) {
+        if (!scenario.from().isBefore(scenario.to())) {
+            throw new BadRequestException("Backtest must start before it ends");
+        }
+        Duration tickInterval = scenario.tickInterval();
+        if (tickInterval != null && (tickInterval.isNegative() || tickInterval.isZero())) {
+            throw new BadRequestException("Tick interval must be positive");
+        }
+
+        Long organizationId = scenario.organizationId();
+        Organization organization = organizationRepository.findById(organizationId)
+                .orElseThrow(() -> new NotFoundException("Organization not found: " + organizationId));
+        BigDecimal increaseStep = scenario.increaseStep() != null
+                ? scenario.increaseStep() : organization.getPriceIncreaseStep();
+        BigDecimal decreaseStep = scenario.decreaseStep() != null
+                ? scenario.decreaseStep() : organization.getPriceDecreaseStep();
+        if (tickInterval == null) {
+            tickInterval = organization.getPriceTickSeconds() != null
+                    ? Duration.ofSeconds(organization.getPriceTickSeconds())
+                    : PricingDefaults.TICK_INTERVAL;
+        }
+
+        List<Product> products = inventoryRepository.findForPricingByOrganizationId(organizationId).stream()
+                .map(Inventory::getProduct)
+                .toList();
+        PriceReplay replay = new PriceReplay(organizationId, products, increaseStep, decreaseStep, tickInterval,
+                scenario.from());
+
+        long start = System.nanoTime();
+        try (Stream<Object[]> lines = inventoryTransactionRepository.streamSaleLines(organizationId,
+                scenario.from(), scenario.to())) {
+            lines.forEach(row -> replay.sale((Long) row[0], (BigDecimal) row[1], (BigDecimal) row[2],
+                    (Instant) row[3]));
+        }
+        PricingBacktestReport report = replay.finish(scenario.to());
+
+        log.info("Replayed {} sale lines of organization {} in {} ms", report.saleLines(), organizationId,
+                (System.nanoTime() - start) / 1_000_000);
+        return report;
+    }
+}
@@ -0,0 +1,48 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.repository.PriceAdjustmentView;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Decides how prices move: when a product sells, and at the price ticks of its
+ * organization. Which strategy is used is set with {@code app.pricing.strategy}:
+ * {@code step} (the default, see {@link StepPricingStrategy}) or
+ * {@code velocity} (see {@link VelocityPricingStrategy}).
+ */
+public interface PricingStrategy {
+
+    /**
+     * Moves the price of a product selling {@code quantity} units, stages the
+     * new price in the {@link PriceBook} and returns it. Called for every sale
+     * line with the inventory row locked, so it must not read the database.
+     */
+    BigDecimal priceAfterSale(Inventory inventory, BigDecimal quantity, Instant at);
+
+    /**
+     * Takes note of the SALE lines of an organization once their transaction commits.
+     */
+    default void recordSales(Long organizationId, List<InventoryTransaction> transactions) {
+    }
+
+    /**
+     * Whether a tick of the organization covering the activity since
+     * {@code since} could move any price. A tick that cannot is skipped
+     * without opening a transaction.
+     */
+    default boolean needsTick(Long organizationId, Instant since) {
+        return true;
+    }
+
+    /**
+     * Moves prices at a tick of an organization in the caller's transaction,
+     * recording each move as an ADJUSTMENT ledger row under the given
+     * reference, and returns the moved prices. The caller puts them in the
+     * {@link PriceBook}.
+     */
+    List<PriceAdjustmentView> tick(Long organizationId, Instant since, String referenceId);
+}
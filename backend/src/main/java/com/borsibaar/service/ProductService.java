@@ -6,12 +6,14 @@ import com.borsibaar.entity.Category;
 import com.borsibaar.entity.Inventory;
 import com.borsibaar.entity.InventoryTransaction;
 import com.borsibaar.entity.Product;
+import com.borsibaar.event.InventoryChangedEvent;
 import com.borsibaar.mapper.ProductMapper;
 import com.borsibaar.repository.CategoryRepository;
 import com.borsibaar.repository.InventoryRepository;
 import com.borsibaar.repository.InventoryTransactionRepository;
 import com.borsibaar.repository.ProductRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,6 +32,10 @@ public class ProductService {
     private final ProductMapper productMapper;
     private final InventoryRepository inventoryRepository;
     private final InventoryTransactionRepository inventoryTransactionRepository;
+    private final PriceBook priceBook;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReferenceDataCache referenceDataCache;
+    private final LowStockMonitor lowStockMonitor;
 
     @Transactional
     public ProductResponseDto create(ProductRequestDto request, Long orgId) {
@@ -62,6 +68,8 @@ public class ProductService {
 
         // Automatically create inventory record with 0 quantity
         createInitialInventory(saved, orgId);
+        priceBook.refresh(orgId);
+        eventPublisher.publishEvent(new InventoryChangedEvent(orgId));
 
         ProductResponseDto base = productMapper.toResponse(saved);
         base.setCategoryName(cat.getName());
@@ -87,15 +95,41 @@ public class ProductService {
 
     @Transactional(readOnly = true)
     public ProductResponseDto getById(Long id) {
-        Product product = productRepository.findById(id)
+        Product product = productRepository.findWithCategoryById(id)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "Product not found: " + id));
+
+        ProductResponseDto base = productMapper.toResponse(product);
+        base.setCategoryName(product.getCategory() != null ? product.getCategory().getName() : null);
+        return base;
+    }
+
+    @Transactional
+    public ProductResponseDto setReorderThreshold(Long id, BigDecimal reorderThreshold, Long orgId) {
+        Product product = productRepository.findWithCategoryById(id)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Product not found: " + id));
 
+        if (!orgId.equals(product.getOrganizationId())) {
+            throw new ResponseStatusException(
+                    HttpStatus.FORBIDDEN, "Product does not belong to your organization");
+        }
+        if (!product.isActive()) {
+            throw new ResponseStatusException(HttpStatus.GONE, "Product is deleted");
+        }
+
+        product.setReorderThreshold(reorderThreshold);
+        product.setUpdatedAt(OffsetDateTime.now());
+        productRepository.save(product);
+        referenceDataCache.evictProduct(id);
+
+        BigDecimal quantity = inventoryRepository.findByOrganizationIdAndProductId(orgId, id)
+                .map(Inventory::getQuantity)
+                .orElse(BigDecimal.ZERO);
+        lowStockMonitor.updateThreshold(orgId, id, product.getName(), quantity, reorderThreshold);
+
         ProductResponseDto base = productMapper.toResponse(product);
-        String categoryName = categoryRepository.findById(product.getCategoryId())
-                .map(Category::getName)
-                .orElse(null);
-        base.setCategoryName(categoryName);
+        base.setCategoryName(product.getCategory() != null ? product.getCategory().getName() : null);
         return base;
     }
 
@@ -109,5 +143,7 @@ public class ProductService {
         product.setActive(false);
         product.setUpdatedAt(OffsetDateTime.now());
         productRepository.save(product);
+        referenceDataCache.evictProduct(id);
+        eventPublisher.publishEvent(new InventoryChangedEvent(product.getOrganizationId()));
     }
 }
@@ -0,0 +1,83 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Organization;
+import com.borsibaar.entity.Product;
+import com.borsibaar.event.ReferenceDataChangedEvent;
+import com.borsibaar.repository.CategoryRepository;
+import com.borsibaar.util.TransactionUtils;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Evicts organizations, categories and products from the Hibernate
+ * second-level cache when they are written.
+ * <p>
+ * The cache keeps itself up to date for writes made through Hibernate on this
+ * replica, but not for those of other replicas. The services call the
+ * evictions here whenever they write one of these rows; each eviction runs
+ * once the current transaction commits, so a concurrent read cannot put the
+ * old row back after it was evicted, and is relayed to the other replicas (see
+ * {@link ClusterChangeRelay}). Rows changed in any other way, e.g. by hand in
+ * the database, stay cached until they expire.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataCache {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public void evictOrganization(Long organizationId) {
+        changed(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ORGANIZATION, organizationId));
+    }
+
+    /**
+     * Evicts a category and the cached category lookups, which may list it.
+     * Pass a null id when a category was only added.
+     */
+    public void evictCategory(Long categoryId) {
+        changed(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.CATEGORY, categoryId));
+    }
+
+    public void evictProduct(Long productId) {
+        changed(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.PRODUCT, productId));
+    }
+
+    // Before the price book reloads an organization from the evicted rows
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onReferenceDataChanged(ReferenceDataChangedEvent event) {
+        if (event.remote()) {
+            evict(event);
+        }
+    }
+
+    private void changed(ReferenceDataChangedEvent event) {
+        eventPublisher.publishEvent(event);
+        TransactionUtils.afterCommit(() -> evict(event));
+    }
+
+    private void evict(ReferenceDataChangedEvent event) {
+        switch (event.kind()) {
+            case ORGANIZATION -> cache().evictEntityData(Organization.class, event.id());
+            case CATEGORY -> {
+                if (event.id() != null) {
+                    cache().evictEntityData(Category.class, event.id());
+                }
+                cache().evictQueryRegion(CategoryRepository.QUERY_CACHE_REGION);
+            }
+            case PRODUCT -> cache().evictEntityData(Product.class, event.id());
+        }
+    }
+
+    private Cache cache() {
+        return entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+}
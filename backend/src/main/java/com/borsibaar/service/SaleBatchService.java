@@ -0,0 +1,250 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleBatchEntryDto;
+import com.borsibaar.dto.SaleBatchResponseDto;
+import com.borsibaar.dto.SaleBatchResultDto;
+import com.borsibaar.dto.SaleItemRequestDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.dto.SaleResponseDto;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Sale;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.repository.SaleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Processes many sales in one call, e.g. a station replaying sales it buffered
+ * while offline.
+ * <p>
+ * Sales are applied in request order with the same rules as
+ * {@link SalesService#processSale}, but split into chunks that each run in one
+ * transaction: the inventory rows of a whole chunk are loaded and locked with
+ * one query, and their updates, sale headers and ledger inserts are written as JDBC batches.
+ * A rejected sale is rolled back in memory and reported, the rest of its chunk
+ * still commits.
+ */
+@Slf4j
+@Service
+public class SaleBatchService {
+
+    private final SalesService salesService;
+    private final SaleIdempotencyStore saleIdempotencyStore;
+    private final SalesRollupService salesRollupService;
+    private final PricingStrategy pricingStrategy;
+    private final PriceBook priceBook;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryTransactionRepository inventoryTransactionRepository;
+    private final SaleRepository saleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public SaleBatchService(SalesService salesService,
+                            SaleIdempotencyStore saleIdempotencyStore,
+                            SalesRollupService salesRollupService,
+                            PricingStrategy pricingStrategy,
+                            PriceBook priceBook,
+                            ApplicationEventPublisher eventPublisher,
+                            InventoryRepository inventoryRepository,
+                            InventoryTransactionRepository inventoryTransactionRepository,
+                            SaleRepository saleRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${app.sales.batch.chunk-size:50}") int chunkSize) {
+        this.salesService = salesService;
+        this.saleIdempotencyStore = saleIdempotencyStore;
+        this.salesRollupService = salesRollupService;
+        this.pricingStrategy = pricingStrategy;
+        this.priceBook = priceBook;
+        this.eventPublisher = eventPublisher;
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryTransactionRepository = inventoryTransactionRepository;
+        this.saleRepository = saleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    public SaleBatchResponseDto processBatch(List<SaleBatchEntryDto> entries, UUID userId, Long organizationId) {
+        List<SaleBatchResultDto> results = new ArrayList<>(entries.size());
+
+        for (int start = 0; start < entries.size(); start += chunkSize) {
+            int end = Math.min(start + chunkSize, entries.size());
+            results.addAll(processChunk(entries.subList(start, end), start, userId, organizationId));
+        }
+
+        long failed = results.stream()
+                .filter(result -> result.getStatus() == SaleBatchResultDto.StatusEnum.FAILED)
+                .count();
+        return new SaleBatchResponseDto()
+                .results(results)
+                .succeeded(results.size() - (int) failed)
+                .failed((int) failed);
+    }
+
+    private List<SaleBatchResultDto> processChunk(List<SaleBatchEntryDto> chunk, int offset,
+                                                  UUID userId, Long organizationId) {
+        try {
+            List<SaleCommand> commands = chunk.stream()
+                    .map(entry -> new SaleCommand(entry.getSale(), userId, entry.getIdempotencyKey()))
+                    .toList();
+            return transactionTemplate.execute(status -> applyChunk(commands, offset, organizationId));
+        } catch (ResponseStatusException | DataIntegrityViolationException e) {
+            // The whole chunk rolled back, e.g. a concurrent request used one of its idempotency keys
+            log.warn("Sale batch chunk at {} rolled back: {}", offset, e.getMessage());
+            HttpStatus status = e instanceof ResponseStatusException rse
+                    ? HttpStatus.valueOf(rse.getStatusCode().value())
+                    : HttpStatus.CONFLICT;
+            List<SaleBatchResultDto> failed = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                failed.add(failure(offset + i, status, "Chunk rolled back, retry this sale"));
+            }
+            return failed;
+        }
+    }
+
+    /**
+     * Applies the sales of one organization in the current transaction and writes
+     * them as JDBC batches. Rejected sales are undone in memory and reported;
+     * the caller decides what to do when the transaction itself fails.
+     */
+    List<SaleBatchResultDto> applyChunk(List<SaleCommand> chunk, int offset, Long organizationId) {
+        // Load and lock the inventory of every product sold in the chunk at once
+        List<SaleItemRequestDto> allItems = chunk.stream()
+                .flatMap(command -> command.sale().getItems().stream())
+                .toList();
+        Map<Long, Inventory> inventories = salesService.loadSaleInventories(allItems, organizationId);
+        Map<Long, BigDecimal> quantitiesBefore = InventoryChangedEvent.quantities(inventories.values());
+
+        List<Sale> sales = new ArrayList<>();
+        List<InventoryTransaction> transactions = new ArrayList<>();
+        Map<String, KeyedSale> keysInChunk = new HashMap<>();
+        List<SaleBatchResultDto> results = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            SaleCommand command = chunk.get(i);
+            int index = offset + i;
+            String key = normalizeKey(command.idempotencyKey());
+
+            if (key != null) {
+                Optional<SaleResponseDto> replay;
+                try {
+                    KeyedSale earlier = keysInChunk.get(key);
+                    if (earlier != null) {
+                        SaleIdempotencyStore.checkSameRequest(earlier.requestHash(),
+                                saleIdempotencyStore.requestHash(command.sale()));
+                        replay = Optional.of(earlier.sale());
+                    } else {
+                        replay = saleIdempotencyStore.find(organizationId, key, command.sale());
+                    }
+                } catch (ResponseStatusException e) {
+                    // The key was already used for a different sale
+                    results.add(failure(index, HttpStatus.valueOf(e.getStatusCode().value()), e.getReason()));
+                    continue;
+                }
+                if (replay.isPresent()) {
+                    results.add(new SaleBatchResultDto().index(index)
+                            .status(SaleBatchResultDto.StatusEnum.REPLAYED)
+                            .sale(replay.get()));
+                    continue;
+                }
+            }
+
+            List<InventoryState> before = snapshot(command.sale().getItems(), inventories);
+            List<InventoryTransaction> saleTransactions = new ArrayList<>();
+            try {
+                SaleResponseDto sale = salesService.applySale(command.sale(), command.userId(), organizationId,
+                        inventories, sales, saleTransactions);
+                transactions.addAll(saleTransactions);
+                if (key != null) {
+                    saleIdempotencyStore.record(organizationId, key, command.sale(), sale);
+                    keysInChunk.put(key, new KeyedSale(saleIdempotencyStore.requestHash(command.sale()), sale));
+                }
+                results.add(new SaleBatchResultDto().index(index)
+                        .status(SaleBatchResultDto.StatusEnum.CREATED)
+                        .sale(sale));
+            } catch (ResponseStatusException e) {
+                // Undo the items of this sale that were already applied
+                before.forEach(state -> state.restore(priceBook));
+                results.add(failure(index, HttpStatus.valueOf(e.getStatusCode().value()), e.getReason()));
+            }
+        }
+
+        // Flush the whole chunk as JDBC batches
+        inventoryRepository.saveAll(inventories.values());
+        saleRepository.saveAll(sales);
+        inventoryTransactionRepository.saveAll(transactions);
+        salesRollupService.record(organizationId, sales, transactions);
+        pricingStrategy.recordSales(organizationId, transactions);
+        if (!sales.isEmpty()) {
+            eventPublisher.publishEvent(InventoryChangedEvent.ofSales(organizationId, inventories.values(),
+                    quantitiesBefore, transactions));
+        }
+        return results;
+    }
+
+    private List<InventoryState> snapshot(List<SaleItemRequestDto> items, Map<Long, Inventory> inventories) {
+        return items.stream()
+                .map(item -> inventories.get(item.getProductId()))
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(inventory -> InventoryState.of(inventory, priceBook.quote(inventory)))
+                .toList();
+    }
+
+    private static String normalizeKey(String idempotencyKey) {
+        return idempotencyKey != null && !idempotencyKey.isBlank() ? idempotencyKey.trim() : null;
+    }
+
+    private static SaleBatchResultDto failure(int index, HttpStatus status, String error) {
+        return new SaleBatchResultDto().index(index)
+                .status(SaleBatchResultDto.StatusEnum.FAILED)
+                .errorStatus(status.value())
+                .error(error);
+    }
+
+    // A sale of the chunk made with an idempotency key, with the hash of its request
+    private record KeyedSale(String requestHash, SaleResponseDto sale) {
+    }
+
+    /**
+     * One sale to apply, with the user who made it and its optional idempotency key.
+     */
+    record SaleCommand(SaleRequestDto sale, UUID userId, String idempotencyKey) {
+    }
+
+    private record InventoryState(Inventory inventory, BigDecimal quantity, BigDecimal adjustedPrice,
+                                  BigDecimal price, OffsetDateTime updatedAt) {
+
+        static InventoryState of(Inventory inventory, BigDecimal price) {
+            return new InventoryState(inventory, inventory.getQuantity(), inventory.getAdjustedPrice(), price,
+                    inventory.getUpdatedAt());
+        }
+
+        void restore(PriceBook priceBook) {
+            inventory.setQuantity(quantity);
+            inventory.setAdjustedPrice(adjustedPrice);
+            inventory.setUpdatedAt(updatedAt);
+            priceBook.set(inventory, price);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleBatchResultDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.dto.SaleResponseDto;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Commits concurrent single sales together (group commit).
+ * <p>
+ * Request threads queue their sale and wait. Organizations are spread over a
+ * fixed number of writer threads by id, so one busy organization does not hold
+ * up the sales of the others. A writer takes every sale that queued up for its
+ * organizations while its previous group was committing and applies them in
+ * one transaction, with the same rules as {@link SaleBatchService}. So the
+ * inventory updates, sale headers, ledger inserts and rollups of many sales go
+ * out as one round of JDBC batches and one commit. Whole sales are grouped
+ * rather than only their ledger rows, so a ledger row never commits apart from
+ * the stock and price change it records. Waiting requests are completed as
+ * soon as that commit succeeds, so a sale is still acknowledged only once it is
+ * durable; listeners and caches then catch up on a dispatcher thread of the
+ * writer. Under light load a group holds a single sale, so no latency is added.
+ * <p>
+ * A rejected sale fails only its own request. If the group transaction fails as
+ * a whole, it is split in halves that are committed as groups again, down to
+ * the sale that fails alone. A sale that lost an idempotency key race is
+ * answered with the stored sale, or with {@code 409 Conflict}. A request that
+ * waits longer than the timeout, or comes in while shutting down, is answered
+ * with {@code 503 Service Unavailable}; a sale that timed out while its group
+ * was committing may still have been committed, so clients retry it with the
+ * same idempotency key.
+ */
+@Slf4j
+@Service
+public class SaleGroupCommitter {
+
+    private final SaleBatchService saleBatchService;
+    private final SaleIdempotencyStore saleIdempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxGroupSize;
+    private final Duration timeout;
+    private final List<BlockingQueue<PendingSale>> queues = new ArrayList<>();
+    private final ExecutorService writers;
+    private final List<ExecutorService> dispatchers = new ArrayList<>();
+    private volatile boolean closed;
+
+    public SaleGroupCommitter(SaleBatchService saleBatchService,
+                              SaleIdempotencyStore saleIdempotencyStore,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${app.sales.group-commit.max-size:50}") int maxGroupSize,
+                              @Value("${app.sales.group-commit.writers:4}") int writerCount,
+                              @Value("${app.sales.group-commit.timeout:PT30S}") Duration timeout) {
+        this.saleBatchService = saleBatchService;
+        this.saleIdempotencyStore = saleIdempotencyStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxGroupSize = maxGroupSize;
+        this.timeout = timeout;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(writerCount,
+                runnable -> daemon("sale-group-commit-" + threadNumber.incrementAndGet()).newThread(runnable));
+        for (int i = 0; i < writerCount; i++) {
+            BlockingQueue<PendingSale> queue = new LinkedBlockingQueue<>();
+            // One thread per writer keeps the after-commit work of its organizations in commit order
+            ExecutorService dispatcher = Executors.newSingleThreadExecutor(daemon("sale-group-dispatch-" + (i + 1)));
+            queues.add(queue);
+            dispatchers.add(dispatcher);
+            writers.execute(() -> run(queue, dispatcher));
+        }
+    }
+
+    /**
+     * Processes a sale as part of the next group and waits until it is committed.
+     * Returns a {@code CREATED} result, or a {@code REPLAYED} one when an earlier
+     * sale with the same idempotency key was found. Rejected sales are thrown as
+     * {@link ResponseStatusException}, like {@link SalesService#processSale} does.
+     */
+    public SaleBatchResultDto submit(SaleRequestDto request, UUID userId, Long organizationId,
+                                     String idempotencyKey) {
+        if (closed) {
+            throw shuttingDown();
+        }
+        PendingSale pending = new PendingSale(organizationId,
+                new SaleBatchService.SaleCommand(request, userId, idempotencyKey));
+        queues.get(Math.floorMod(organizationId.hashCode(), queues.size())).add(pending);
+        if (closed) {
+            // Shut down while queueing; the writers may be gone already
+            pending.result.completeExceptionally(shuttingDown());
+        }
+        try {
+            return pending.result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Sale not committed in time, retry the sale");
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        closed = true;
+        writers.shutdownNow();
+        List<PendingSale> abandoned = new ArrayList<>();
+        queues.forEach(queue -> queue.drainTo(abandoned));
+        abandoned.forEach(pending -> pending.result.completeExceptionally(shuttingDown()));
+        // Committed groups still get their listeners run
+        dispatchers.forEach(ExecutorService::shutdown);
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void run(BlockingQueue<PendingSale> queue, Executor dispatcher) {
+        List<PendingSale> group = new ArrayList<>(maxGroupSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                group.add(queue.take());
+                queue.drainTo(group, maxGroupSize - 1);
+                // Requests that gave up waiting are not committed behind their back
+                group.removeIf(pending -> pending.result.isDone());
+                if (!group.isEmpty()) {
+                    commit(group, dispatcher);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                // Anything else would end the writer and leave its organizations waiting forever
+                log.error("Sale group commit failed", e);
+                group.forEach(pending -> pending.result.completeExceptionally(e));
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private static ResponseStatusException shuttingDown() {
+        return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Shutting down, retry the sale");
+    }
+
+    private void commit(List<PendingSale> group, Executor dispatcher) {
+        // Organizations in id order, rows within one in id order: a fixed lock order
+        Map<Long, List<PendingSale>> byOrganization = group.stream()
+                .collect(Collectors.groupingBy(pending -> pending.organizationId, TreeMap::new,
+                        Collectors.toList()));
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                byOrganization.forEach((organizationId, sales) -> {
+                    List<SaleBatchResultDto> results = saleBatchService.applyChunk(
+                            sales.stream().map(pending -> pending.command).toList(), 0, organizationId);
+                    for (int i = 0; i < sales.size(); i++) {
+                        sales.get(i).outcome = results.get(i);
+                    }
+                });
+                GroupSynchronization.install(group, dispatcher);
+            });
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                fail(group.get(0), e);
+                return;
+            }
+            // Halves keep committing in groups; a single bad sale costs a few more rounds, not one per sale
+            log.warn("Sale group of {} rolled back, committing it in halves: {}", group.size(), e.getMessage());
+            int half = group.size() / 2;
+            commit(group.subList(0, half), dispatcher);
+            commit(group.subList(half, group.size()), dispatcher);
+        }
+    }
+
+    // A lost idempotency key race: the sale that won is replayed, anything else is a conflict
+    private void fail(PendingSale pending, RuntimeException e) {
+        if (!(e instanceof DataIntegrityViolationException)) {
+            pending.result.completeExceptionally(e);
+            return;
+        }
+        SaleBatchService.SaleCommand command = pending.command;
+        try {
+            Optional<SaleResponseDto> replay = command.idempotencyKey() != null
+                    ? saleIdempotencyStore.find(pending.organizationId, command.idempotencyKey(), command.sale())
+                    : Optional.empty();
+            if (replay.isPresent()) {
+                pending.result.complete(new SaleBatchResultDto()
+                        .status(SaleBatchResultDto.StatusEnum.REPLAYED)
+                        .sale(replay.get()));
+            } else {
+                pending.result.completeExceptionally(new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Sale conflicts with a concurrent request, retry the sale"));
+            }
+        } catch (RuntimeException lookupFailure) {
+            pending.result.completeExceptionally(lookupFailure);
+        }
+    }
+
+    /**
+     * Stands in for the synchronizations of a group transaction. Once it commits,
+     * the waiting requests are answered first; the after-commit work registered
+     * by the sales (listeners, caches) then runs on the writer's dispatcher, so
+     * the writer can start on the next group.
+     */
+    private static final class GroupSynchronization implements TransactionSynchronization {
+        private final List<PendingSale> group;
+        private final Executor dispatcher;
+        private final List<TransactionSynchronization> synchronizations;
+
+        private GroupSynchronization(List<PendingSale> group, Executor dispatcher,
+                                     List<TransactionSynchronization> synchronizations) {
+            this.group = group;
+            this.dispatcher = dispatcher;
+            this.synchronizations = synchronizations;
+        }
+
+        // Replaces the synchronizations registered so far in the current transaction
+        static void install(List<PendingSale> group, Executor dispatcher) {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+            TransactionSynchronizationManager.registerSynchronization(
+                    new GroupSynchronization(group, dispatcher, synchronizations));
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            synchronizations.forEach(synchronization -> synchronization.beforeCommit(readOnly));
+        }
+
+        @Override
+        public void beforeCompletion() {
+            synchronizations.forEach(TransactionSynchronization::beforeCompletion);
+        }
+
+        @Override
+        public void afterCommit() {
+            group.forEach(PendingSale::complete);
+            dispatcher.execute(() -> {
+                for (TransactionSynchronization synchronization : synchronizations) {
+                    try {
+                        synchronization.afterCommit();
+                        synchronization.afterCompletion(STATUS_COMMITTED);
+                    } catch (RuntimeException e) {
+                        log.error("After-commit work of a sale group failed", e);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (status != STATUS_COMMITTED) {
+                synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+            }
+        }
+    }
+
+    private static final class PendingSale {
+        private final Long organizationId;
+        private final SaleBatchService.SaleCommand command;
+        private final CompletableFuture<SaleBatchResultDto> result = new CompletableFuture<>();
+        private SaleBatchResultDto outcome;
+
+        private PendingSale(Long organizationId, SaleBatchService.SaleCommand command) {
+            this.organizationId = organizationId;
+            this.command = command;
+        }
+
+        private void complete() {
+            if (outcome.getStatus() == SaleBatchResultDto.StatusEnum.FAILED) {
+                result.completeExceptionally(new ResponseStatusException(
+                        HttpStatus.valueOf(outcome.getErrorStatus()), outcome.getError()));
+            } else {
+                result.complete(outcome);
+            }
+        }
+    }
+}
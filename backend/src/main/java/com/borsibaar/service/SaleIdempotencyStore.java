@@ -0,0 +1,157 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.dto.SaleResponseDto;
+import com.borsibaar.entity.SaleIdempotencyKey;
+import com.borsibaar.repository.SaleIdempotencyKeyRepository;
+import com.borsibaar.util.TransactionUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Dedupe store for sales submitted with an {@code Idempotency-Key}.
+ * <p>
+ * Responses are kept in a bounded in-memory cache with a TTL in front of the
+ * {@code sale_idempotency_keys} table, so a retried request usually costs a
+ * hash lookup. The table row is written in the sale's own transaction: a key
+ * is only remembered if its sale committed, and two racing requests with the
+ * same key cannot both commit because of the unique constraint.
+ * <p>
+ * Each key also remembers a hash of the request it was first used with. A
+ * request reusing the key with a different body is answered with 422 rather
+ * than with the response of another sale.
+ */
+@Slf4j
+@Service
+public class SaleIdempotencyStore {
+
+    private final SaleIdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    private final Cache<CacheKey, Stored> cache;
+
+    public SaleIdempotencyStore(SaleIdempotencyKeyRepository repository,
+                                ObjectMapper objectMapper,
+                                @Value("${app.sales.idempotency.cache-size:10000}") long cacheSize,
+                                @Value("${app.sales.idempotency.cache-ttl:PT10M}") Duration cacheTtl,
+                                @Value("${app.sales.idempotency.retention:PT24H}") Duration retention) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.retention = retention;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+    }
+
+    /**
+     * Returns the stored response of an earlier sale with the same key, if any.
+     * Throws 422 when that sale was made with a different request.
+     */
+    public Optional<SaleResponseDto> find(Long organizationId, String idempotencyKey, SaleRequestDto request) {
+        CacheKey cacheKey = new CacheKey(organizationId, idempotencyKey);
+        Stored stored = cache.getIfPresent(cacheKey);
+        if (stored == null) {
+            stored = repository.findByOrganizationIdAndIdempotencyKey(organizationId, idempotencyKey)
+                    .filter(key -> key.getCreatedAt().isAfter(Instant.now().minus(retention)))
+                    .map(key -> new Stored(fromJson(key.getResponse()), key.getRequestHash()))
+                    .orElse(null);
+            if (stored == null) {
+                return Optional.empty();
+            }
+            cache.put(cacheKey, stored);
+        }
+        checkSameRequest(stored.requestHash(), requestHash(request));
+        return Optional.of(stored.response());
+    }
+
+    /**
+     * Stores the response of a sale under its key. Must be called inside the
+     * sale's transaction; the cache is only filled once that transaction commits.
+     */
+    public void record(Long organizationId, String idempotencyKey, SaleRequestDto request,
+                       SaleResponseDto response) {
+        SaleIdempotencyKey key = new SaleIdempotencyKey();
+        key.setOrganizationId(organizationId);
+        key.setIdempotencyKey(idempotencyKey);
+        key.setSaleReference(response.getSaleId());
+        key.setResponse(toJson(response));
+        key.setRequestHash(requestHash(request));
+        key.setCreatedAt(Instant.now());
+        repository.save(key);
+
+        Stored stored = new Stored(response, key.getRequestHash());
+        TransactionUtils.afterCommit(() -> cache.put(new CacheKey(organizationId, idempotencyKey), stored));
+    }
+
+    /**
+     * Hex SHA-256 of a sale request as serialized to JSON.
+     */
+    String requestHash(SaleRequestDto request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Failed to hash sale request", e);
+        }
+    }
+
+    /**
+     * Rejects a request reusing a key with a different body. Keys stored
+     * without a hash are taken to match.
+     */
+    static void checkSameRequest(String storedHash, String requestHash) {
+        if (storedHash != null && !Objects.equals(storedHash, requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency key was already used for a different sale");
+        }
+    }
+
+    @Scheduled(cron = "0 0 * * * *")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = repository.deleteCreatedBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            log.info("Purged {} expired sale idempotency keys", deleted);
+        }
+    }
+
+    private String toJson(SaleResponseDto response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize sale response " + response.getSaleId(), e);
+        }
+    }
+
+    private SaleResponseDto fromJson(String json) {
+        try {
+            return objectMapper.readValue(json, SaleResponseDto.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize stored sale response", e);
+        }
+    }
+
+    private record CacheKey(Long organizationId, String idempotencyKey) {
+    }
+
+    private record Stored(SaleResponseDto response, String requestHash) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.borsibaar.service;
+
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Remembers when each product, and each organization, last sold something.
+ * <p>
+ * Sales are taken from the committed {@link InventoryChangedEvent}s of sales,
+ * including those made through other replicas (see {@link ClusterChangeRelay}),
+ * so the price correction can tell idle products from selling ones without
+ * reading the ledger. The last sales of an organization within
+ * {@code app.pricing.activity.rebuild-window} (one hour, the longest tick
+ * interval) are read from the ledger in one query the first time it is asked
+ * about, and again after relayed changes of it were lost.
+ */
+@Slf4j
+@Component
+public class SalesActivityTracker {
+
+    private final InventoryTransactionRepository inventoryTransactionRepository;
+    private final Duration rebuildWindow;
+    private final ConcurrentMap<Long, OrganizationActivity> organizations = new ConcurrentHashMap<>();
+
+    public SalesActivityTracker(InventoryTransactionRepository inventoryTransactionRepository,
+                                @Value("${app.pricing.activity.rebuild-window:PT1H}") Duration rebuildWindow) {
+        this.inventoryTransactionRepository = inventoryTransactionRepository;
+        this.rebuildWindow = rebuildWindow;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        if (event.remote() && event.changes().isEmpty()) {
+            // The relayed sales are not known; read them from the ledger when next asked
+            organizations.remove(event.organizationId());
+            return;
+        }
+        for (InventoryChangedEvent.ProductChange change : event.changes()) {
+            if (change.soldAt() != null) {
+                organization(event.organizationId()).sold(change.productId(), change.soldAt());
+            }
+        }
+    }
+
+    /**
+     * Whether the organization sold anything at or after {@code since}.
+     */
+    public boolean soldSince(Long organizationId, Instant since) {
+        return !loaded(organizationId).lastSale.get().isBefore(since);
+    }
+
+    /**
+     * Products of the organization sold at or after {@code since}.
+     */
+    public Set<Long> productsSoldSince(Long organizationId, Instant since) {
+        Set<Long> productIds = new HashSet<>();
+        loaded(organizationId).lastSales.forEach((productId, lastSale) -> {
+            if (!lastSale.isBefore(since)) {
+                productIds.add(productId);
+            }
+        });
+        return productIds;
+    }
+
+    private OrganizationActivity loaded(Long organizationId) {
+        OrganizationActivity activity = organization(organizationId);
+        if (!activity.loaded) {
+            synchronized (activity) {
+                if (!activity.loaded) {
+                    // Sales recorded meanwhile are kept; the later of both times wins
+                    List<Object[]> rows = inventoryTransactionRepository.findLastSalesSince(organizationId,
+                            Instant.now().minus(rebuildWindow));
+                    for (Object[] row : rows) {
+                        activity.sold((Long) row[0], (Instant) row[1]);
+                    }
+                    activity.loaded = true;
+                    log.debug("Loaded the last sales of {} products of organization {} from the ledger",
+                            rows.size(), organizationId);
+                }
+            }
+        }
+        return activity;
+    }
+
+    private OrganizationActivity organization(Long organizationId) {
+        return organizations.computeIfAbsent(organizationId, id -> new OrganizationActivity());
+    }
+
+    private static final class OrganizationActivity {
+        private final ConcurrentMap<Long, Instant> lastSales = new ConcurrentHashMap<>();
+        private final AtomicReference<Instant> lastSale = new AtomicReference<>(Instant.MIN);
+        private volatile boolean loaded;
+
+        private void sold(Long productId, Instant at) {
+            lastSales.merge(productId, at, SalesActivityTracker::latest);
+            lastSale.accumulateAndGet(at, SalesActivityTracker::latest);
+        }
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
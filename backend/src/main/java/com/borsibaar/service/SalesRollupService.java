@@ -0,0 +1,172 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Sale;
+import com.borsibaar.entity.SalesRollup;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.repository.SalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the hourly sales rollups that back the sales stats endpoints.
+ * <p>
+ * Rollups are updated in the same transaction as the sale. That transaction
+ * already holds the lock on the inventory row of every product it sells, and
+ * rollup rows are per product, so concurrent sales never update the same rollup
+ * row at the same time. {@link #rebuild} recomputes an organization's rollups
+ * from the ledger.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SalesRollupService {
+
+    private final SalesRollupRepository salesRollupRepository;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryTransactionRepository inventoryTransactionRepository;
+
+    /**
+     * Adds the given sales to the rollups. Must run in the transaction that
+     * writes the sales, after their inventory rows were locked.
+     */
+    public void record(Long organizationId, List<Sale> sales, List<InventoryTransaction> transactions) {
+        if (sales.isEmpty()) {
+            return;
+        }
+
+        Map<Sale, List<InventoryTransaction>> linesBySale = transactions.stream()
+                .collect(Collectors.groupingBy(InventoryTransaction::getSale));
+
+        Map<RollupKey, SalesRollup> deltas = new HashMap<>();
+        for (Sale sale : sales) {
+            List<InventoryTransaction> lines = linesBySale.getOrDefault(sale, List.of()).stream()
+                    .sorted(Comparator.comparing(this::productIdOf))
+                    .toList();
+            Set<Long> seenProducts = new HashSet<>();
+
+            for (InventoryTransaction line : lines) {
+                Long productId = productIdOf(line);
+                SalesRollup delta = deltas.computeIfAbsent(key(sale, productId), RollupKey::newRollup);
+                addLine(delta, line.getQuantityChange(), line.getPriceBefore());
+                // The sale itself is counted on the row of its lowest product id
+                if (seenProducts.isEmpty()) {
+                    delta.setSaleCount(delta.getSaleCount() + 1);
+                }
+                if (seenProducts.add(productId)) {
+                    delta.setLineCount(delta.getLineCount() + 1);
+                }
+            }
+        }
+
+        merge(organizationId, deltas);
+    }
+
+    /**
+     * Recomputes all rollups of an organization from its sale ledger. Sales of
+     * the organization are blocked while this runs.
+     */
+    @Transactional
+    public void rebuild(Long organizationId) {
+        inventoryRepository.lockByOrganizationId(organizationId);
+        int deleted = salesRollupRepository.deleteByOrganizationId(organizationId);
+
+        // Aggregated by the database; only the rollup rows come back
+        List<SalesRollup> rollups = inventoryTransactionRepository.aggregateSaleLinesHourly(organizationId).stream()
+                .map(row -> {
+                    SalesRollup rollup = new RollupKey(organizationId, (Long) row[0], (UUID) row[1], (Long) row[2],
+                            (Instant) row[3]).newRollup();
+                    rollup.setSaleCount((Long) row[4]);
+                    rollup.setLineCount((Long) row[5]);
+                    rollup.setQuantity((BigDecimal) row[6]);
+                    rollup.setRevenue((BigDecimal) row[7]);
+                    return rollup;
+                })
+                .toList();
+
+        salesRollupRepository.saveAll(rollups);
+        log.info("Rebuilt sales rollups of organization {}: {} rows replaced by {}",
+                organizationId, deleted, rollups.size());
+    }
+
+    private void merge(Long organizationId, Map<RollupKey, SalesRollup> deltas) {
+        Set<Long> productIds = deltas.keySet().stream().map(RollupKey::productId).collect(Collectors.toSet());
+        Set<Instant> hours = deltas.keySet().stream().map(RollupKey::hourStart).collect(Collectors.toSet());
+
+        Map<RollupKey, SalesRollup> existing = salesRollupRepository
+                .findByOrganizationIdAndProductIdInAndHourStartIn(organizationId, productIds, hours).stream()
+                .collect(Collectors.toMap(RollupKey::of, Function.identity()));
+
+        List<SalesRollup> changed = deltas.entrySet().stream()
+                .map(entry -> {
+                    SalesRollup rollup = existing.get(entry.getKey());
+                    if (rollup == null) {
+                        return entry.getValue();
+                    }
+                    SalesRollup delta = entry.getValue();
+                    rollup.setSaleCount(rollup.getSaleCount() + delta.getSaleCount());
+                    rollup.setLineCount(rollup.getLineCount() + delta.getLineCount());
+                    rollup.setQuantity(rollup.getQuantity().add(delta.getQuantity()));
+                    rollup.setRevenue(rollup.getRevenue().add(delta.getRevenue()));
+                    return rollup;
+                })
+                .toList();
+
+        salesRollupRepository.saveAll(changed);
+    }
+
+    private static void addLine(SalesRollup rollup, BigDecimal quantityChange, BigDecimal price) {
+        // Sale lines have a negative quantity change
+        BigDecimal quantity = quantityChange.negate();
+        rollup.setQuantity(rollup.getQuantity().add(quantity));
+        rollup.setRevenue(rollup.getRevenue().add(quantity.multiply(price)));
+    }
+
+    private Long productIdOf(InventoryTransaction line) {
+        return line.getInventory().getProduct().getId();
+    }
+
+    private static RollupKey key(Sale sale, Long productId) {
+        return new RollupKey(sale.getOrganizationId(), sale.getBarStationId(), sale.getUserId(), productId,
+                hourOf(sale.getCreatedAt()));
+    }
+
+    private static Instant hourOf(Instant timestamp) {
+        return timestamp.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    private record RollupKey(Long organizationId, Long barStationId, UUID userId, Long productId,
+                             Instant hourStart) {
+
+        static RollupKey of(SalesRollup rollup) {
+            return new RollupKey(rollup.getOrganizationId(), rollup.getBarStationId(), rollup.getUserId(),
+                    rollup.getProductId(), rollup.getHourStart());
+        }
+
+        SalesRollup newRollup() {
+            SalesRollup rollup = new SalesRollup();
+            rollup.setOrganizationId(organizationId);
+            rollup.setBarStationId(barStationId);
+            rollup.setUserId(userId);
+            rollup.setProductId(productId);
+            rollup.setHourStart(hourStart);
+            return rollup;
+        }
+    }
+}
@@ -4,14 +4,18 @@ import com.borsibaar.dto.SaleItemRequestDto;
 import com.borsibaar.dto.SaleItemResponseDto;
 import com.borsibaar.dto.SaleRequestDto;
 import com.borsibaar.dto.SaleResponseDto;
-import com.borsibaar.entity.Category;
 import com.borsibaar.entity.Inventory;
 import com.borsibaar.entity.InventoryTransaction;
 import com.borsibaar.entity.Product;
+import com.borsibaar.entity.Sale;
+import com.borsibaar.event.InventoryChangedEvent;
 import com.borsibaar.repository.InventoryRepository;
 import com.borsibaar.repository.InventoryTransactionRepository;
 import com.borsibaar.repository.ProductRepository;
+import com.borsibaar.repository.SaleRepository;
+import com.borsibaar.util.ReferenceIdGenerator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,8 +26,11 @@ import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -32,61 +39,116 @@ public class SalesService {
         private final InventoryRepository inventoryRepository;
         private final InventoryTransactionRepository inventoryTransactionRepository;
         private final ProductRepository productRepository;
+        private final SaleRepository saleRepository;
+        private final ReferenceIdGenerator referenceIdGenerator;
+        private final SaleIdempotencyStore saleIdempotencyStore;
+        private final SalesRollupService salesRollupService;
+        private final PricingStrategy pricingStrategy;
+        private final PriceBook priceBook;
+        private final ApplicationEventPublisher eventPublisher;
 
         @Transactional
         public SaleResponseDto processSale(SaleRequestDto request, UUID userId, Long organizationId) {
-                // Generate unique sale reference ID
-                String saleId = "SALE-" + System.currentTimeMillis();
+                return processSale(request, userId, organizationId, null);
+        }
+
+        /**
+         * Processes a sale. When an idempotency key is given, the response is stored
+         * under it in the same transaction so that retries can be replayed.
+         */
+        @Transactional
+        public SaleResponseDto processSale(SaleRequestDto request, UUID userId, Long organizationId,
+                                           String idempotencyKey) {
+                // Load every product and inventory row of the sale in one round trip
+                Map<Long, Inventory> inventories = loadSaleInventories(request.getItems(), organizationId);
+                Map<Long, BigDecimal> quantitiesBefore = InventoryChangedEvent.quantities(inventories.values());
+                List<Sale> sales = new ArrayList<>();
+                List<InventoryTransaction> transactions = new ArrayList<>();
+
+                SaleResponseDto response = applySale(request, userId, organizationId, inventories, sales,
+                                transactions);
+
+                // Flush inventory updates, the sale header and ledger inserts as JDBC batches
+                inventoryRepository.saveAll(inventories.values());
+                saleRepository.saveAll(sales);
+                inventoryTransactionRepository.saveAll(transactions);
+                salesRollupService.record(organizationId, sales, transactions);
+                pricingStrategy.recordSales(organizationId, transactions);
+                eventPublisher.publishEvent(InventoryChangedEvent.ofSales(organizationId, inventories.values(),
+                                quantitiesBefore, transactions));
+
+                if (idempotencyKey != null) {
+                        saleIdempotencyStore.record(organizationId, idempotencyKey, request, response);
+                }
+
+                return response;
+        }
+
+        /**
+         * Applies one sale to already loaded (and locked) inventory rows in memory and
+         * collects its header and ledger entries. Nothing is written; the caller saves
+         * the inventories, sales and transactions, possibly together with those of
+         * other sales. The header is only added once every item has been accepted.
+         */
+        SaleResponseDto applySale(SaleRequestDto request, UUID userId, Long organizationId,
+                                  Map<Long, Inventory> inventories, List<Sale> sales,
+                                  List<InventoryTransaction> transactions) {
+                Instant now = Instant.now();
+
+                // Generate unique, time-ordered sale reference ID
+                Sale sale = new Sale();
+                sale.setReferenceId(referenceIdGenerator.nextReference("SALE"));
+                sale.setOrganizationId(organizationId);
+                sale.setBarStationId(request.getBarStationId());
+                sale.setUserId(userId);
+                sale.setCreatedAt(now);
 
                 List<SaleItemResponseDto> saleItems = new ArrayList<>();
                 BigDecimal totalAmount = BigDecimal.ZERO;
 
-                // Process each item in the sale
+                // Process each item in the sale in memory
                 for (SaleItemRequestDto item : request.getItems()) {
-                        SaleItemResponseDto saleItem = processSaleItem(item, userId, organizationId, saleId,
-                                        request.getBarStationId());
+                        SaleItemResponseDto saleItem = processSaleItem(item, inventories, organizationId, userId,
+                                        sale, request.getBarStationId(), transactions);
                         saleItems.add(saleItem);
                         totalAmount = totalAmount.add(saleItem.getTotalPrice());
                 }
 
+                sale.setTotalAmount(totalAmount);
+                sale.setItemCount(saleItems.size());
+                sales.add(sale);
+
                 return new SaleResponseDto()
-                        .saleId(saleId)
+                        .saleId(sale.getReferenceId())
                         .items(saleItems)
                         .totalAmount(totalAmount)
                         .notes(request.getNotes())
-                        .timestamp(Instant.now());
+                        .timestamp(now);
         }
 
-        private SaleItemResponseDto processSaleItem(SaleItemRequestDto item, UUID userId, Long organizationId,
-                                                     String saleId, Long barStationId) {
-                // Verify product exists and belongs to organization
-                Product product = productRepository.findById(item.getProductId())
-                                .orElseThrow(() -> new ResponseStatusException(
-                                                HttpStatus.NOT_FOUND, "Product not found: " + item.getProductId()));
+        Map<Long, Inventory> loadSaleInventories(List<SaleItemRequestDto> items, Long organizationId) {
+                Set<Long> productIds = items.stream()
+                                .map(SaleItemRequestDto::getProductId)
+                                .collect(Collectors.toSet());
 
-                if (!product.getOrganizationId().equals(organizationId)) {
-                        throw new ResponseStatusException(
-                                        HttpStatus.FORBIDDEN, "Product does not belong to your organization");
+                return inventoryRepository.findAllForSale(organizationId, productIds).stream()
+                                .collect(Collectors.toMap(Inventory::getProductId, inventory -> inventory));
+        }
+
+        private SaleItemResponseDto processSaleItem(SaleItemRequestDto item, Map<Long, Inventory> inventories,
+                                                     Long organizationId, UUID userId, Sale sale,
+                                                     Long barStationId, List<InventoryTransaction> transactions) {
+                Inventory inventory = inventories.get(item.getProductId());
+                if (inventory == null) {
+                        throw unsellableProduct(item.getProductId(), organizationId);
                 }
+                Product product = inventory.getProduct();
 
                 if (!product.isActive()) {
                         throw new ResponseStatusException(
                                         HttpStatus.BAD_REQUEST, "Product is not active: " + product.getName());
                 }
 
-                // Get inventory for this product
-                /*
-                 * Inventory inventory = inventoryRepository
-                 * .findByOrganizationIdAndProductId(organizationId, item.productId())
-                 * .orElseThrow(() -> new ResponseStatusException(
-                 * HttpStatus.NOT_FOUND, "No inventory found for product: " +
-                 * product.getName()));
-                 */
-                Inventory inventory = Optional.ofNullable(product.getInventory())
-                                .orElseThrow(() -> new ResponseStatusException(
-                                                HttpStatus.NOT_FOUND,
-                                                "No inventory found for product: " + product.getName()));
-
                 // Check stock availability
                 BigDecimal oldQuantity = inventory.getQuantity();
                 BigDecimal newQuantity = oldQuantity.subtract(item.getQuantity());
@@ -99,32 +161,21 @@ public class SalesService {
                                                         + item.getQuantity());
                 }
 
-                // Calculate pricing
-                BigDecimal priceBeforeSale = Optional.ofNullable(inventory.getAdjustedPrice())
-                                .orElse(product.getBasePrice());
+                // Quote the price from the price book and let the pricing strategy move it
+                BigDecimal priceBeforeSale = priceBook.quote(inventory);
                 BigDecimal totalPrice = priceBeforeSale.multiply(item.getQuantity());
+                BigDecimal priceAfterSale = pricingStrategy.priceAfterSale(inventory, item.getQuantity(),
+                                sale.getCreatedAt());
 
-                BigDecimal priceAfterSale = priceBeforeSale;
-                Category category = product.getCategory();
-                if (category != null && category.isDynamicPricing()) {
-                        priceAfterSale = priceBeforeSale.add(product.getOrganization().getPriceIncreaseStep());
-                        if (product.getMaxPrice() != null && priceAfterSale.compareTo(product.getMaxPrice()) > 0) {
-                                priceAfterSale = product.getMaxPrice();
-                        }
-                }
-
-
-                // Update inventory
+                // Update inventory, the row carries the new price to the database at commit
                 inventory.setQuantity(newQuantity);
                 inventory.setUpdatedAt(OffsetDateTime.now());
                 inventory.setAdjustedPrice(priceAfterSale);
 
-                inventory = inventoryRepository.save(inventory);
-
                 // Create sale transaction
-                createSaleTransaction(inventory, item.getQuantity(),
+                transactions.add(createSaleTransaction(inventory, item.getQuantity(),
                                 newQuantity, priceBeforeSale, priceAfterSale,
-                                saleId, userId, barStationId);
+                                sale, userId, barStationId));
 
                 return new SaleItemResponseDto()
                         .productId(item.getProductId())
@@ -134,9 +185,30 @@ public class SalesService {
                         .totalPrice(totalPrice);
         }
 
-        private void createSaleTransaction(Inventory inventory, BigDecimal quantity,
+        /**
+         * Works out why a product of the sale had no sellable inventory row. Only
+         * runs on the error path, so the extra lookup does not affect normal sales.
+         */
+        private ResponseStatusException unsellableProduct(Long productId, Long organizationId) {
+                Optional<Product> product = productRepository.findById(productId);
+                if (product.isEmpty()) {
+                        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Product not found: " + productId);
+                }
+                if (!product.get().getOrganizationId().equals(organizationId)) {
+                        return new ResponseStatusException(
+                                        HttpStatus.FORBIDDEN, "Product does not belong to your organization");
+                }
+                if (!product.get().isActive()) {
+                        return new ResponseStatusException(
+                                        HttpStatus.BAD_REQUEST, "Product is not active: " + product.get().getName());
+                }
+                return new ResponseStatusException(
+                                HttpStatus.NOT_FOUND, "No inventory found for product: " + product.get().getName());
+        }
+
+        private InventoryTransaction createSaleTransaction(Inventory inventory, BigDecimal quantity,
                         BigDecimal quantityAfter, BigDecimal priceBefore, BigDecimal priceAfter,
-                        String saleId, UUID userId, Long barStationId) {
+                        Sale sale, UUID userId, Long barStationId) {
                 InventoryTransaction transaction = new InventoryTransaction();
                 transaction.setInventory(inventory);
                 transaction.setTransactionType("SALE");
@@ -144,11 +216,12 @@ public class SalesService {
                 transaction.setQuantityAfter(quantityAfter);
                 transaction.setPriceBefore(priceBefore);
                 transaction.setPriceAfter(priceAfter);
-                transaction.setReferenceId(saleId);
+                transaction.setReferenceId(sale.getReferenceId());
+                transaction.setSale(sale);
                 transaction.setNotes("POS Sale");
                 transaction.setCreatedBy(userId);
                 transaction.setBarStationId(barStationId);
                 transaction.setCreatedAt(Instant.now());
-                inventoryTransactionRepository.save(transaction);
+                return transaction;
         }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.PriceAdjustmentView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Fixed steps: every sale raises the price by the organization's
+ * {@code priceIncreaseStep} up to the maximum price, and every tick lowers the
+ * price of each product that did not sell since the last one by
+ * {@code priceDecreaseStep} down to the minimum price, provided the
+ * organization sold something meanwhile.
+ * <p>
+ * What sold is known in memory, see {@link SalesActivityTracker}, so a tick
+ * does not read the ledger.
+ */
+@Component
+@ConditionalOnProperty(name = "app.pricing.strategy", havingValue = "step", matchIfMissing = true)
+@RequiredArgsConstructor
+public class StepPricingStrategy implements PricingStrategy {
+
+    private final PriceBook priceBook;
+    private final SalesActivityTracker salesActivityTracker;
+    private final InventoryRepository inventoryRepository;
+
+    @Override
+    public BigDecimal priceAfterSale(Inventory inventory, BigDecimal quantity, Instant at) {
+        return priceBook.raise(inventory);
+    }
+
+    @Override
+    public boolean needsTick(Long organizationId, Instant since) {
+        return salesActivityTracker.soldSince(organizationId, since);
+    }
+
+    @Override
+    public List<PriceAdjustmentView> tick(Long organizationId, Instant since, String referenceId) {
+        return inventoryRepository.reduceIdlePrices(organizationId,
+                salesActivityTracker.productsSoldSince(organizationId, since), referenceId);
+    }
+}
@@ -0,0 +1,336 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Product;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.repository.OrganizationRepository;
+import com.borsibaar.repository.PriceAdjustmentView;
+import com.borsibaar.util.TransactionUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Prices from sales velocity: a product selling faster than the products of
+ * its category usually do gets dearer, one selling slower gets cheaper.
+ * <p>
+ * The velocity of a product is its sales rate over the last
+ * {@code app.pricing.velocity.half-life}, the units it sold weighted by an
+ * exponential decay with that half-life. It is compared with the average rate
+ * of the active, dynamically priced products of its category over the longer
+ * {@code app.pricing.velocity.baseline-half-life}, products that did not sell
+ * included. A product selling at the baseline is priced at its base price, and
+ * every baseline of velocity above or below it moves the price by
+ * {@code app.pricing.velocity.sensitivity} times the base price, between the
+ * minimum price (or the organization's decrease step when none is set) and the
+ * maximum price. Ticks price every such product of a category that sold, so
+ * one that stops selling, or never sold, is walked down as its velocity fades.
+ * <p>
+ * Velocities and baselines are kept in memory and updated in constant time per
+ * sale line, so quoting a sale reads neither the database nor the other
+ * products of the category. A local sale counts once its transaction commits.
+ * Every replica seeds them from the sale ledger of the last four baseline
+ * half-lives and adds the lines committed since every
+ * {@code app.pricing.velocity.refresh-interval}, so the sales of other
+ * replicas and of earlier runs count too.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.pricing.strategy", havingValue = "velocity")
+public class VelocityPricingStrategy implements PricingStrategy {
+
+    // Sales are stamped before they commit; lines are read again this far back so late commits are not missed
+    private static final Duration COMMIT_LAG = Duration.ofMinutes(2);
+
+    private final PriceBook priceBook;
+    private final InventoryRepository inventoryRepository;
+    private final InventoryTransactionRepository inventoryTransactionRepository;
+    private final OrganizationRepository organizationRepository;
+    // Time constants of the exponential decays, in milliseconds
+    private final double velocityTau;
+    private final double baselineTau;
+    private final double sensitivity;
+    private final Duration seedWindow;
+    private final ConcurrentMap<Long, OrganizationDemand> organizations = new ConcurrentHashMap<>();
+
+    public VelocityPricingStrategy(PriceBook priceBook,
+                                   InventoryRepository inventoryRepository,
+                                   InventoryTransactionRepository inventoryTransactionRepository,
+                                   OrganizationRepository organizationRepository,
+                                   @Value("${app.pricing.velocity.half-life:PT10M}") Duration halfLife,
+                                   @Value("${app.pricing.velocity.baseline-half-life:PT2H}") Duration baselineHalfLife,
+                                   @Value("${app.pricing.velocity.sensitivity:0.25}") double sensitivity) {
+        this.priceBook = priceBook;
+        this.inventoryRepository = inventoryRepository;
+        this.inventoryTransactionRepository = inventoryTransactionRepository;
+        this.organizationRepository = organizationRepository;
+        this.velocityTau = halfLife.toMillis() / Math.log(2);
+        this.baselineTau = baselineHalfLife.toMillis() / Math.log(2);
+        this.sensitivity = sensitivity;
+        // Older sales weigh less than 1/16 of the baseline
+        this.seedWindow = baselineHalfLife.multipliedBy(4);
+    }
+
+    @Override
+    public BigDecimal priceAfterSale(Inventory inventory, BigDecimal quantity, Instant at) {
+        Product product = inventory.getProduct();
+        if (!isDynamic(product)) {
+            return priceBook.quote(inventory);
+        }
+
+        OrganizationDemand demand = organization(product.getOrganizationId());
+        BigDecimal price;
+        synchronized (demand) {
+            price = demand.priceWith(product.getCategoryId(), product.getId(), Limits.of(product),
+                    quantity.doubleValue(), at.toEpochMilli());
+        }
+        priceBook.set(inventory, price);
+        return price;
+    }
+
+    @Override
+    public void recordSales(Long organizationId, List<InventoryTransaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        TransactionUtils.afterCommit(() -> {
+            OrganizationDemand demand = organization(organizationId);
+            synchronized (demand) {
+                for (InventoryTransaction transaction : transactions) {
+                    Product product = transaction.getInventory().getProduct();
+                    if (isDynamic(product)) {
+                        demand.add(transaction.getId(), product.getCategoryId(), product.getId(),
+                                -transaction.getQuantityChange().doubleValue(),
+                                transaction.getCreatedAt().toEpochMilli());
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds the sale lines committed through any replica since the last refresh,
+     * for every organization. The first refresh of an organization seeds it.
+     */
+    @Scheduled(initialDelayString = "${app.pricing.velocity.refresh-interval:PT15S}",
+            fixedDelayString = "${app.pricing.velocity.refresh-interval:PT15S}")
+    public void refreshAll() {
+        for (Long organizationId : organizationRepository.findAllIds()) {
+            try {
+                refresh(organizationId);
+            } catch (RuntimeException e) {
+                log.warn("Could not refresh the sales velocity of organization {}", organizationId, e);
+            }
+        }
+    }
+
+    void refresh(Long organizationId) {
+        OrganizationDemand demand = organization(organizationId);
+        Instant now = Instant.now();
+        Instant from;
+        synchronized (demand) {
+            from = demand.refreshedTo != null ? demand.refreshedTo.minus(COMMIT_LAG) : now.minus(seedWindow);
+        }
+
+        List<Object[]> lines = inventoryTransactionRepository.findDynamicSaleLinesSince(organizationId, from);
+        Map<Long, Integer> members = new HashMap<>();
+        for (Object[] row : inventoryRepository.countDynamicProductsByCategory(organizationId)) {
+            members.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+
+        synchronized (demand) {
+            for (Object[] line : lines) {
+                demand.add((Long) line[0], (Long) line[2], (Long) line[1], ((BigDecimal) line[3]).doubleValue(),
+                        ((Instant) line[4]).toEpochMilli());
+            }
+            demand.members = members;
+            demand.refreshedTo = now;
+            // Lines before the next refresh window are not read again
+            long forgetBefore = now.minus(COMMIT_LAG).toEpochMilli();
+            demand.counted.values().removeIf(at -> at < forgetBefore);
+        }
+    }
+
+    @Override
+    public List<PriceAdjustmentView> tick(Long organizationId, Instant since, String referenceId) {
+        refresh(organizationId);
+
+        OrganizationDemand demand = organization(organizationId);
+        long now = Instant.now().toEpochMilli();
+        List<Long> productIds = new ArrayList<>();
+        List<BigDecimal> prices = new ArrayList<>();
+        for (Inventory inventory : inventoryRepository.findForPricingByOrganizationId(organizationId)) {
+            Product product = inventory.getProduct();
+            if (!product.isActive() || !isDynamic(product)) {
+                continue;
+            }
+            BigDecimal price;
+            synchronized (demand) {
+                price = demand.price(product.getCategoryId(), product.getId(), Limits.of(product), now);
+            }
+            BigDecimal currentPrice = Optional.ofNullable(inventory.getAdjustedPrice()).orElse(product.getBasePrice());
+            if (price != null && currentPrice.compareTo(price) != 0) {
+                productIds.add(product.getId());
+                prices.add(price);
+            }
+        }
+
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        return inventoryRepository.setPrices(organizationId, productIds.toArray(Long[]::new),
+                prices.toArray(BigDecimal[]::new), referenceId);
+    }
+
+    private OrganizationDemand organization(Long organizationId) {
+        return organizations.computeIfAbsent(organizationId, id -> new OrganizationDemand());
+    }
+
+    private static boolean isDynamic(Product product) {
+        return product.getCategory() != null && product.getCategory().isDynamicPricing();
+    }
+
+    /**
+     * Demand of the products of one organization. Guarded by its own monitor.
+     */
+    private final class OrganizationDemand {
+        private final Map<Long, CategoryDemand> categories = new HashMap<>();
+        // Sale lines already added, by transaction id, with their time
+        private final Map<Long, Long> counted = new HashMap<>();
+        // Active dynamic products per category, as of the last refresh
+        private Map<Long, Integer> members = Map.of();
+        private Instant refreshedTo;
+        // First sale seen; rates before it are unknown rather than zero
+        private long historyFrom = Long.MAX_VALUE;
+
+        /**
+         * Price of a product as if it sold {@code quantity} more units at {@code at}.
+         */
+        BigDecimal priceWith(Long categoryId, Long productId, Limits limits, double quantity, long at) {
+            CategoryDemand category = categories.get(categoryId);
+            ProductDemand product = category != null ? category.products.get(productId) : null;
+            double demand = quantity
+                    + (product != null ? decay(product.demand(), product.at(), at, velocityTau) : 0);
+            double total = quantity
+                    + (category != null ? decay(category.total, category.totalAt, at, baselineTau) : 0);
+            int sold = (category != null ? category.products.size() : 0) + (product == null ? 1 : 0);
+            return priceOf(limits, demand, total, Math.max(members.getOrDefault(categoryId, 0), sold),
+                    at - Math.min(historyFrom, at));
+        }
+
+        /**
+         * Current price of a product, which need not have sold, or null if
+         * nothing of its category sold, leaving nothing to compare it with.
+         */
+        BigDecimal price(Long categoryId, Long productId, Limits limits, long at) {
+            CategoryDemand category = categories.get(categoryId);
+            if (category == null) {
+                return null;
+            }
+            ProductDemand product = category.products.get(productId);
+            double demand = product != null ? decay(product.demand(), product.at(), at, velocityTau) : 0;
+            int count = Math.max(members.getOrDefault(categoryId, 0), category.products.size());
+            return priceOf(limits, demand, decay(category.total, category.totalAt, at, baselineTau), count,
+                    at - Math.min(historyFrom, at));
+        }
+
+        /**
+         * Adds a sale line once, however often it is read.
+         */
+        void add(Long transactionId, Long categoryId, Long productId, double quantity, long at) {
+            if (transactionId != null && counted.putIfAbsent(transactionId, at) != null) {
+                return;
+            }
+            categories.computeIfAbsent(categoryId, id -> new CategoryDemand()).add(productId, quantity, at);
+            historyFrom = Math.min(historyFrom, at);
+        }
+
+        private BigDecimal priceOf(Limits limits, double demand, double total, int count, long age) {
+            // Both sums only cover the time since the first sale; dividing by the
+            // weight of that time turns them into rates that compare fairly
+            double velocity = demand / weight(velocityTau, age);
+            double baseline = total / count / weight(baselineTau, age);
+            double relativeVelocity = baseline > 0 ? velocity / baseline : 0;
+            BigDecimal price = limits.basePrice()
+                    .multiply(BigDecimal.valueOf(1 + sensitivity * (relativeVelocity - 1)))
+                    .setScale(2, RoundingMode.HALF_UP);
+            if (price.compareTo(limits.minPrice()) < 0) {
+                return limits.minPrice();
+            }
+            if (limits.maxPrice() != null && price.compareTo(limits.maxPrice()) > 0) {
+                return limits.maxPrice();
+            }
+            return price;
+        }
+    }
+
+    /**
+     * Demand of the products of one category that sold.
+     */
+    private final class CategoryDemand {
+        private final Map<Long, ProductDemand> products = new HashMap<>();
+        // Units sold by all products, decayed with the baseline half-life, as of totalAt
+        private double total;
+        private long totalAt;
+
+        void add(Long productId, double quantity, long at) {
+            ProductDemand product = products.get(productId);
+            if (product == null) {
+                products.put(productId, new ProductDemand(quantity, at));
+            } else {
+                products.put(productId, new ProductDemand(
+                        decay(product.demand(), product.at(), at, velocityTau) + quantity,
+                        Math.max(product.at(), at)));
+            }
+            total = decay(total, totalAt, at, baselineTau) + quantity;
+            totalAt = Math.max(totalAt, at);
+        }
+    }
+
+    /**
+     * Value decayed from {@code from} to {@code to}; values from the future
+     * (sales committed out of order) are not grown back.
+     */
+    private static double decay(double value, long from, long to, double tau) {
+        return to <= from ? value : value * Math.exp((from - to) / tau);
+    }
+
+    /**
+     * Total weight the decay gives to {@code age} milliseconds of history.
+     */
+    private static double weight(double tau, long age) {
+        return age <= 0 ? 1 : -tau * Math.expm1(-age / tau);
+    }
+
+    private record ProductDemand(double demand, long at) {
+    }
+
+    private record Limits(BigDecimal basePrice, BigDecimal minPrice, BigDecimal maxPrice) {
+
+        static Limits of(Product product) {
+            BigDecimal minPrice = product.getMinPrice();
+            if (minPrice == null) {
+                minPrice = product.getOrganization() != null && product.getOrganization().getPriceDecreaseStep() != null
+                        ? product.getOrganization().getPriceDecreaseStep()
+                        : BigDecimal.ZERO;
+            }
+            return new Limits(product.getBasePrice(), minPrice, product.getMaxPrice());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.borsibaar.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Generates unique, time-ordered ids for sale and price adjustment references
+ * without a database round trip.
+ * <p>
+ * Ids are 63-bit longs laid out like Twitter's Snowflake ids: 41 bits of
+ * milliseconds since {@link #EPOCH}, 10 bits of node id and 12 bits of
+ * per-millisecond sequence. Every backend replica must use a different node id
+ * ({@code app.ids.node-id}); when it is not set, one is derived from the host
+ * name. References are zero-padded so that sorting them as strings also sorts
+ * them chronologically.
+ */
+@Slf4j
+@Component
+public class ReferenceIdGenerator {
+
+    public static final Instant EPOCH = Instant.parse("2025-01-01T00:00:00Z");
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+    private static final int MAX_SEQUENCE = (1 << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final Clock clock;
+
+    private long lastTimestamp = -1;
+    private long sequence;
+
+    @Autowired
+    public ReferenceIdGenerator(@Value("${app.ids.node-id:-1}") int nodeId) {
+        this(nodeId >= 0 ? nodeId : nodeIdFromHostName(), Clock.systemUTC());
+    }
+
+    public ReferenceIdGenerator(int nodeId, Clock clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+    }
+
+    public synchronized long nextId() {
+        // Never go backwards, even if the wall clock does
+        long timestamp = Math.max(clock.millis() - EPOCH.toEpochMilli(), lastTimestamp);
+
+        if (timestamp == lastTimestamp) {
+            sequence = (sequence + 1) & MAX_SEQUENCE;
+            if (sequence == 0) {
+                // Sequence exhausted for this millisecond, borrow the next one
+                timestamp++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastTimestamp = timestamp;
+
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Returns a new reference such as {@code SALE-0000012345678901234}.
+     */
+    public String nextReference(String prefix) {
+        return format(prefix, nextId());
+    }
+
+    public static String format(String prefix, long id) {
+        return prefix + "-" + String.format("%019d", id);
+    }
+
+    public static Instant timestampOf(long id) {
+        return EPOCH.plusMillis(id >>> (NODE_BITS + SEQUENCE_BITS));
+    }
+
+    public static int nodeIdOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+
+    private static int nodeIdFromHostName() {
+        try {
+            String hostName = InetAddress.getLocalHost().getHostName();
+            int nodeId = Math.floorMod(hostName.hashCode(), MAX_NODE_ID + 1);
+            log.info("Derived reference id node {} from host name {}", nodeId, hostName);
+            return nodeId;
+        } catch (Exception e) {
+            int nodeId = (int) (Math.random() * (MAX_NODE_ID + 1));
+            log.warn("Could not resolve host name, using random reference id node {}", nodeId);
+            return nodeId;
+        }
+    }
+}
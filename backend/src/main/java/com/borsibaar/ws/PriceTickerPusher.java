@@ -0,0 +1,148 @@
+package com.borsibaar.ws;
+
+import com.borsibaar.dto.LowStockAlertDto;
+import com.borsibaar.entity.User;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.LowStockAlertEvent;
+import com.borsibaar.service.InventorySnapshotCache;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pushes the market board of an organization to its price ticker sessions.
+ * <p>
+ * A new session first gets the whole board as a {@code snapshot} message.
+ * After that, every committed change is pushed as a {@code delta} message
+ * holding the new stock and price of the changed products only. Changes that
+ * cannot be described per product, like a product being added or removed,
+ * are pushed as a new snapshot, and so are changes relayed from other
+ * replicas, which may arrive after a later local change. Deltas carry absolute
+ * values, so one that is already part of a snapshot can be applied again safely.
+ * <p>
+ * Products crossing their reorder threshold are pushed as {@code alert} messages,
+ * only to sessions signed in as a user of the organization; the board itself
+ * is public.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PriceTickerPusher {
+
+    private final PriceTickerSessionRegistry registry;
+    private final InventorySnapshotCache inventorySnapshotCache;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Sends the current board to a session that just subscribed.
+     */
+    public void sendSnapshot(Long organizationId, WebSocketSession session) {
+        // Built under the session lock, so no delta sent meanwhile can be overtaken by an older board
+        synchronized (session) {
+            TextMessage message = snapshot(organizationId);
+            if (message != null) {
+                send(session, message, organizationId);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(InventoryChangedEvent event) {
+        Long organizationId = event.organizationId();
+        Set<WebSocketSession> targets = registry.getSessions(organizationId);
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        TextMessage message = event.changes().isEmpty() || event.remote()
+                ? snapshot(organizationId)
+                : serialize(PriceTickerMessage.delta(event.changes()), organizationId);
+        broadcast(targets, message, organizationId);
+    }
+
+    // Raised by the low-stock monitor once the change is committed
+    @EventListener
+    public void onLowStockAlert(LowStockAlertEvent event) {
+        Long organizationId = event.organizationId();
+        Set<WebSocketSession> targets = registry.getSessions(organizationId).stream()
+                .filter(session -> isMember(session, organizationId))
+                .collect(Collectors.toSet());
+        if (targets.isEmpty()) {
+            return;
+        }
+        broadcast(targets, serialize(PriceTickerMessage.alert(event.alert()), organizationId), organizationId);
+    }
+
+    private static boolean isMember(WebSocketSession session, Long organizationId) {
+        return session.getPrincipal() instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof User user
+                && organizationId.equals(user.getOrganizationId());
+    }
+
+    private void broadcast(Set<WebSocketSession> targets, TextMessage message, Long organizationId) {
+        if (message == null) {
+            return;
+        }
+        for (WebSocketSession session : targets) {
+            synchronized (session) {
+                send(session, message, organizationId);
+            }
+        }
+    }
+
+    private TextMessage snapshot(Long organizationId) {
+        String board = new String(inventorySnapshotCache.board(organizationId).json(), StandardCharsets.UTF_8);
+        return serialize(PriceTickerMessage.snapshot(board), organizationId);
+    }
+
+    private TextMessage serialize(PriceTickerMessage message, Long organizationId) {
+        try {
+            return new TextMessage(objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.error("Failed to serialize {} for organization {}", message.type(), organizationId, e);
+            return null;
+        }
+    }
+
+    private void send(WebSocketSession session, TextMessage message, Long organizationId) {
+        if (!session.isOpen()) return;
+        try {
+            session.sendMessage(message);
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Failed to send to session={} organization={}", session.getId(), organizationId, e);
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record PriceTickerMessage(String type,
+                                     @JsonRawValue String board,
+                                     List<InventoryChangedEvent.ProductChange> changes,
+                                     LowStockAlertDto alert) {
+
+        static PriceTickerMessage snapshot(String board) {
+            return new PriceTickerMessage("snapshot", board, null, null);
+        }
+
+        static PriceTickerMessage delta(List<InventoryChangedEvent.ProductChange> changes) {
+            return new PriceTickerMessage("delta", null, changes, null);
+        }
+
+        static PriceTickerMessage alert(LowStockAlertDto alert) {
+            return new PriceTickerMessage("alert", null, null, alert);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.borsibaar.ws;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+@Slf4j
+@Service
+public class PriceTickerSessionRegistry {
+
+    private final Map<Long, Set<WebSocketSession>> sessions =
+            new ConcurrentHashMap<>();
+
+    public void register(Long organizationId, WebSocketSession session) {
+        sessions
+                .computeIfAbsent(organizationId, k -> new CopyOnWriteArraySet<>())
+                .add(session);
+        log.debug("Registered session {} for organization {}", session.getId(), organizationId);
+    }
+
+    public void deregister(Long organizationId, WebSocketSession session) {
+        sessions.computeIfPresent(organizationId, (id, set) -> {
+            set.remove(session);
+            return set.isEmpty() ? null : set;
+        });
+        log.debug("Deregistered session {} for organization {}", session.getId(), organizationId);
+    }
+
+    public Set<WebSocketSession> getSessions(Long organizationId) {
+        Set<WebSocketSession> set = sessions.get(organizationId);
+        return set != null ? Set.copyOf(set) : Collections.emptySet();
+    }
+}
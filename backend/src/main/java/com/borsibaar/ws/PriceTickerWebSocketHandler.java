@@ -0,0 +1,86 @@
+package com.borsibaar.ws;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+
+import java.net.URI;
+import java.util.Arrays;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PriceTickerWebSocketHandler extends TextWebSocketHandler {
+
+    private static final String ORGANIZATION_ID = "organizationId";
+    private static final String TICKER_SESSION = "priceTickerSession";
+
+    // A board that stops reading is dropped instead of holding up the thread that commits a sale
+    private static final int SEND_TIME_LIMIT_MS = 5_000;
+    private static final int BUFFER_SIZE_LIMIT = 512 * 1024;
+
+    private final PriceTickerSessionRegistry registry;
+    private final PriceTickerPusher pusher;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        Long organizationId = parseOrganizationId(session.getUri());
+
+        if (organizationId == null) {
+            log.warn("Price ticker connection without a valid organizationId, closing: {}", session.getId());
+            try {
+                session.close(CloseStatus.BAD_DATA);
+            } catch (Exception ex) {
+                log.error("Failed to close websocket session", ex);
+            }
+            return;
+        }
+
+        WebSocketSession tickerSession =
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, BUFFER_SIZE_LIMIT);
+        session.getAttributes().put(ORGANIZATION_ID, organizationId);
+        session.getAttributes().put(TICKER_SESSION, tickerSession);
+
+        // Registered before the snapshot is built, so no change can fall between the two
+        registry.register(organizationId, tickerSession);
+        pusher.sendSnapshot(organizationId, tickerSession);
+        log.info("Price ticker connected – organization={} session={}", organizationId, session.getId());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Long organizationId = (Long) session.getAttributes().get(ORGANIZATION_ID);
+        WebSocketSession tickerSession = (WebSocketSession) session.getAttributes().get(TICKER_SESSION);
+        if (organizationId != null && tickerSession != null) {
+            registry.deregister(organizationId, tickerSession);
+        }
+        log.info("Price ticker disconnected – organization={} session={} status={}", organizationId,
+                session.getId(), status);
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable ex) {
+        log.error("Price ticker transport error – session={}", session.getId(), ex);
+    }
+
+    private Long parseOrganizationId(URI uri) {
+        if (uri == null || uri.getQuery() == null) return null;
+        return Arrays.stream(uri.getQuery().split("&"))
+                .map(p -> p.split("=", 2))
+                .filter(p -> p.length == 2 && p[0].equals(ORGANIZATION_ID))
+                .map(p -> p[1])
+                .findFirst()
+                .map(value -> {
+                    try {
+                        return Long.valueOf(value);
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                })
+                .orElse(null);
+    }
+}
@@ -4,6 +4,8 @@ import com.borsibaar.dto.*;
 import com.borsibaar.entity.Role;
 import com.borsibaar.entity.User;
 import com.borsibaar.service.InventoryService;
+import com.borsibaar.service.LowStockMonitor;
+import com.borsibaar.service.SalesRollupService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -27,10 +29,15 @@ import java.util.UUID;
 import static org.hamcrest.Matchers.hasSize;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -47,6 +54,12 @@ class InventoryApiDelegateImplTest {
         @MockitoBean
         private InventoryService inventoryService;
 
+        @MockitoBean
+        private SalesRollupService salesRollupService;
+
+        @MockitoBean
+        private LowStockMonitor lowStockMonitor;
+
         @MockitoBean
         private ClientRegistrationRepository clientRegistrationRepository;
 
@@ -105,6 +118,48 @@ class InventoryApiDelegateImplTest {
                 verify(inventoryService).getByOrganization(99L, 7L);
         }
 
+        @Test
+        void getOrganizationInventory_ReturnsNotModified_WhenETagMatches() throws Exception {
+                when(inventoryService.getByOrganization(77L, null)).thenReturn(List.of());
+
+                String etag = mockMvc.perform(get("/api/inventory").param("organizationId", "77"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists("ETag"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/inventory").param("organizationId", "77")
+                                .header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", etag));
+
+                // Unchanged inventory is served from the snapshot
+                verify(inventoryService, times(1)).getByOrganization(77L, null);
+        }
+
+        @Test
+        void getMarketBoard_ReturnsBoard_ThenNotModified() throws Exception {
+                var board = new MarketBoardDto().organizationId(88L).categories(List.of(
+                        new MarketBoardCategoryDto().categoryId(3L).categoryName("Beers").products(List.of(
+                                new MarketBoardProductDto().productId(10L).productName("Lager")
+                                        .unitPrice(new BigDecimal("5.50")).basePrice(new BigDecimal("5.00"))
+                                        .trend(MarketBoardProductDto.TrendEnum.UP)))));
+                when(inventoryService.getMarketBoard(88L)).thenReturn(board);
+
+                String etag = mockMvc.perform(get("/api/inventory/board").param("organizationId", "88"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().exists("ETag"))
+                                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                                .andExpect(jsonPath("$.categories[0].categoryName").value("Beers"))
+                                .andExpect(jsonPath("$.categories[0].products[0].trend").value("UP"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/inventory/board").param("organizationId", "88")
+                                .header("If-None-Match", etag))
+                                .andExpect(status().isNotModified());
+
+                verify(inventoryService, times(1)).getMarketBoard(88L);
+        }
+
         @Test
         void getProductInventory_DelegatesToService() throws Exception {
                 User user = userWithOrg(5L, "USER");
@@ -121,6 +176,63 @@ class InventoryApiDelegateImplTest {
                 verify(inventoryService).getByProductAndOrganization(10L, 5L);
         }
 
+        @Test
+        void getPriceSeries_PassesRangeAndInterval() throws Exception {
+                User user = userWithOrg(5L, "USER");
+                setAuth(user);
+                Instant from = Instant.parse("2026-01-01T10:00:00Z");
+                var series = new PriceSeriesDto().productId(10L).interval(CandleIntervalDto.MINUTE).candles(List.of(
+                        new PriceCandleDto().start(from).open(BigDecimal.ONE).close(BigDecimal.TEN)));
+                when(inventoryService.getPriceSeries(10L, 5L, from, null, CandleIntervalDto.MINUTE)).thenReturn(series);
+
+                mockMvc.perform(get("/api/inventory/product/{productId}/price-series", 10L)
+                                .param("from", "2026-01-01T10:00:00Z")
+                                .param("interval", "MINUTE"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.interval").value("MINUTE"))
+                                .andExpect(jsonPath("$.candles", hasSize(1)));
+
+                verify(inventoryService).getPriceSeries(10L, 5L, from, null, CandleIntervalDto.MINUTE);
+        }
+
+        @Test
+        void getLowStock_UsesUsersOrganization() throws Exception {
+                User user = userWithOrg(12L, "USER");
+                setAuth(user);
+                when(lowStockMonitor.lowStock(12L)).thenReturn(List.of(new LowStockItemDto().productId(10L)
+                        .productName("Lager").quantity(BigDecimal.ONE).reorderThreshold(new BigDecimal("5"))));
+
+                mockMvc.perform(get("/api/inventory/low-stock").param("organizationId", "99"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$", hasSize(1)))
+                                .andExpect(jsonPath("$[0].productName").value("Lager"));
+        }
+
+        @Test
+        void getLowStock_Anonymous_IsUnauthorized() throws Exception {
+                mockMvc.perform(get("/api/inventory/low-stock").param("organizationId", "12"))
+                                .andExpect(status().isUnauthorized());
+                mockMvc.perform(get("/api/inventory/low-stock/alerts").param("organizationId", "12"))
+                                .andExpect(status().isUnauthorized());
+
+                verifyNoInteractions(lowStockMonitor);
+        }
+
+        @Test
+        void getLowStockAlerts_PassesSequence() throws Exception {
+                User user = userWithOrg(5L, "USER");
+                setAuth(user);
+                when(lowStockMonitor.alerts(5L, 3L)).thenReturn(List.of(new LowStockAlertDto().sequence(4L)
+                        .kind(LowStockAlertDto.KindEnum.LOW).productId(10L)));
+
+                mockMvc.perform(get("/api/inventory/low-stock/alerts").param("after", "3"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].sequence").value(4))
+                                .andExpect(jsonPath("$[0].kind").value("LOW"));
+
+                verify(lowStockMonitor).alerts(5L, 3L);
+        }
+
         @Test
         void removeStock_ReturnsOk() throws Exception {
                 User user = userWithOrg(2L, "USER");
@@ -163,7 +275,7 @@ class InventoryApiDelegateImplTest {
         }
 
         @Test
-        void getTransactionHistory_ReturnsList() throws Exception {
+        void getTransactionHistory_ReturnsPage() throws Exception {
                 User user = userWithOrg(4L, "USER");
                 setAuth(user);
                 var resp = new InventoryTransactionResponseDto().id(1L).inventoryId(99L).transactionType("SALE")
@@ -171,13 +283,18 @@ class InventoryApiDelegateImplTest {
                         .priceBefore(new BigDecimal("9")).priceAfter(BigDecimal.TEN).referenceId("ref").notes("n")
                         .createdBy(UUID.randomUUID().toString()).createdByName("Alice").createdByEmail("a@b.c")
                         .createdAt(Instant.now());
-                when(inventoryService.getTransactionHistory(40L, 4L)).thenReturn(List.of(resp));
+                when(inventoryService.getTransactionHistory(40L, 4L, null, null, "SALE", "abc", 20))
+                                .thenReturn(new InventoryTransactionPageDto().items(List.of(resp)).nextCursor("def"));
 
-                mockMvc.perform(get("/api/inventory/product/{productId}/history", 40L))
+                mockMvc.perform(get("/api/inventory/product/{productId}/history", 40L)
+                                .param("type", "SALE")
+                                .param("cursor", "abc")
+                                .param("limit", "20"))
                                 .andExpect(status().isOk())
-                                .andExpect(jsonPath("$", hasSize(1)));
+                                .andExpect(jsonPath("$.items", hasSize(1)))
+                                .andExpect(jsonPath("$.nextCursor").value("def"));
 
-                verify(inventoryService).getTransactionHistory(40L, 4L);
+                verify(inventoryService).getTransactionHistory(40L, 4L, null, null, "SALE", "abc", 20);
         }
 
         @Test
@@ -211,6 +328,28 @@ class InventoryApiDelegateImplTest {
                 verify(inventoryService).getStationSalesStats(7L);
         }
 
+        @Test
+        void rebuildSalesStats_Admin_RebuildsOwnOrganization() throws Exception {
+                User user = userWithOrg(8L, "ADMIN");
+                setAuth(user);
+
+                mockMvc.perform(post("/api/inventory/sales-stats/rebuild"))
+                                .andExpect(status().isNoContent());
+
+                verify(salesRollupService).rebuild(8L);
+        }
+
+        @Test
+        void rebuildSalesStats_NonAdmin_Forbidden() throws Exception {
+                User user = userWithOrg(8L, "USER");
+                setAuth(user);
+
+                mockMvc.perform(post("/api/inventory/sales-stats/rebuild"))
+                                .andExpect(status().isForbidden());
+
+                verify(salesRollupService, never()).rebuild(any());
+        }
+
         private static User userWithOrg(Long orgId, String roleName) {
                 Role role = Role.builder().id(1L).name(roleName).build();
                 return User.builder()
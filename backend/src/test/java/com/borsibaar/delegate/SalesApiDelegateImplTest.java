@@ -1,18 +1,25 @@
 package com.borsibaar.delegate;
 
+import com.borsibaar.dto.SaleBatchEntryDto;
+import com.borsibaar.dto.SaleBatchRequestDto;
+import com.borsibaar.dto.SaleBatchResponseDto;
+import com.borsibaar.dto.SaleBatchResultDto;
 import com.borsibaar.dto.SaleItemRequestDto;
 import com.borsibaar.dto.SaleItemResponseDto;
 import com.borsibaar.dto.SaleRequestDto;
 import com.borsibaar.dto.SaleResponseDto;
 import com.borsibaar.entity.Role;
 import com.borsibaar.entity.User;
-import com.borsibaar.service.SalesService;
+import com.borsibaar.service.SaleBatchService;
+import com.borsibaar.service.SaleGroupCommitter;
+import com.borsibaar.service.SaleIdempotencyStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -20,18 +27,24 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -46,7 +59,13 @@ class SalesApiDelegateImplTest {
     private ObjectMapper objectMapper;
 
     @MockitoBean
-    private SalesService salesService;
+    private SaleGroupCommitter saleGroupCommitter;
+
+    @MockitoBean
+    private SaleIdempotencyStore saleIdempotencyStore;
+
+    @MockitoBean
+    private SaleBatchService saleBatchService;
 
     @MockitoBean
     private ClientRegistrationRepository clientRegistrationRepository;
@@ -68,7 +87,8 @@ class SalesApiDelegateImplTest {
                 .totalPrice(new BigDecimal("6.00"));
         var resp = new SaleResponseDto().saleId("SALE-1").items(List.of(item))
                 .totalAmount(new BigDecimal("6.00")).notes("note").timestamp(Instant.now());
-        when(salesService.processSale(any(SaleRequestDto.class), any(UUID.class), anyLong())).thenReturn(resp);
+        when(saleGroupCommitter.submit(any(SaleRequestDto.class), any(UUID.class), anyLong(), isNull()))
+                .thenReturn(created(resp));
 
         mockMvc.perform(post("/api/sales")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -78,7 +98,125 @@ class SalesApiDelegateImplTest {
                 .andExpect(jsonPath("$.items[0].productName").value("Cola"))
                 .andExpect(jsonPath("$.totalAmount").value(6.00));
 
-        verify(salesService).processSale(any(SaleRequestDto.class), any(UUID.class), anyLong());
+        verify(saleGroupCommitter).submit(any(SaleRequestDto.class), any(UUID.class), anyLong(), isNull());
+    }
+
+    @Test
+    void processSaleBatch_ReturnsPerSaleResults() throws Exception {
+        User user = userWithOrg(1L, "USER");
+        setAuth(user);
+
+        var sale = new SaleRequestDto().items(List.of(new SaleItemRequestDto().productId(10L)
+                .quantity(new BigDecimal("1"))));
+        var req = new SaleBatchRequestDto().sales(List.of(
+                new SaleBatchEntryDto().idempotencyKey("offline-1").sale(sale),
+                new SaleBatchEntryDto().idempotencyKey("offline-2").sale(sale)));
+        var resp = new SaleBatchResponseDto().succeeded(1).failed(1).results(List.of(
+                new SaleBatchResultDto().index(0).status(SaleBatchResultDto.StatusEnum.CREATED)
+                        .sale(new SaleResponseDto().saleId("SALE-1").items(List.of())
+                                .totalAmount(new BigDecimal("3.00")).timestamp(Instant.now())),
+                new SaleBatchResultDto().index(1).status(SaleBatchResultDto.StatusEnum.FAILED)
+                        .errorStatus(400).error("Insufficient stock for Cola")));
+        when(saleBatchService.processBatch(any(), any(UUID.class), eq(1L))).thenReturn(resp);
+
+        mockMvc.perform(post("/api/sales/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.results[0].sale.saleId").value("SALE-1"))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].errorStatus").value(400));
+    }
+
+    @Test
+    void processSale_WithIdempotencyKey_PassesKeyToService() throws Exception {
+        User user = userWithOrg(1L, "USER");
+        setAuth(user);
+
+        var req = new SaleRequestDto().items(List.of(new SaleItemRequestDto().productId(10L)
+                .quantity(new BigDecimal("1"))));
+        var resp = new SaleResponseDto().saleId("SALE-2").items(List.of())
+                .totalAmount(new BigDecimal("3.00")).timestamp(Instant.now());
+        when(saleIdempotencyStore.find(eq(1L), eq("tablet-7-42"), any(SaleRequestDto.class))).thenReturn(Optional.empty());
+        when(saleGroupCommitter.submit(any(SaleRequestDto.class), any(UUID.class), eq(1L), eq("tablet-7-42")))
+                .thenReturn(created(resp));
+
+        mockMvc.perform(post("/api/sales")
+                        .header("Idempotency-Key", "tablet-7-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andExpect(jsonPath("$.saleId").value("SALE-2"));
+    }
+
+    @Test
+    void processSale_RepeatedIdempotencyKey_ReplaysWithoutSellingAgain() throws Exception {
+        User user = userWithOrg(1L, "USER");
+        setAuth(user);
+
+        var req = new SaleRequestDto().items(List.of(new SaleItemRequestDto().productId(10L)
+                .quantity(new BigDecimal("1"))));
+        var stored = new SaleResponseDto().saleId("SALE-2").items(List.of())
+                .totalAmount(new BigDecimal("3.00")).timestamp(Instant.now());
+        when(saleIdempotencyStore.find(eq(1L), eq("tablet-7-42"), any(SaleRequestDto.class))).thenReturn(Optional.of(stored));
+
+        mockMvc.perform(post("/api/sales")
+                        .header("Idempotency-Key", "tablet-7-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.saleId").value("SALE-2"));
+
+        verify(saleGroupCommitter, never()).submit(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void processSale_IdempotencyKeyUsedForDifferentSale_Returns422() throws Exception {
+        User user = userWithOrg(1L, "USER");
+        setAuth(user);
+
+        var req = new SaleRequestDto().items(List.of(new SaleItemRequestDto().productId(10L)
+                .quantity(new BigDecimal("2"))));
+        when(saleIdempotencyStore.find(eq(1L), eq("tablet-7-42"), any(SaleRequestDto.class)))
+                .thenThrow(new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency key was already used for a different sale"));
+
+        mockMvc.perform(post("/api/sales")
+                        .header("Idempotency-Key", "tablet-7-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isUnprocessableEntity());
+
+        verify(saleGroupCommitter, never()).submit(any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void processSale_KeyReplayedWithinCommitGroup_SetsReplayedHeader() throws Exception {
+        User user = userWithOrg(1L, "USER");
+        setAuth(user);
+
+        var req = new SaleRequestDto().items(List.of(new SaleItemRequestDto().productId(10L)
+                .quantity(new BigDecimal("1"))));
+        var resp = new SaleResponseDto().saleId("SALE-3").items(List.of())
+                .totalAmount(new BigDecimal("3.00")).timestamp(Instant.now());
+        when(saleIdempotencyStore.find(eq(1L), eq("tablet-7-43"), any(SaleRequestDto.class))).thenReturn(Optional.empty());
+        when(saleGroupCommitter.submit(any(SaleRequestDto.class), any(UUID.class), eq(1L), eq("tablet-7-43")))
+                .thenReturn(new SaleBatchResultDto().status(SaleBatchResultDto.StatusEnum.REPLAYED).sale(resp));
+
+        mockMvc.perform(post("/api/sales")
+                        .header("Idempotency-Key", "tablet-7-43")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(req)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.saleId").value("SALE-3"));
+    }
+
+    private static SaleBatchResultDto created(SaleResponseDto sale) {
+        return new SaleBatchResultDto().status(SaleBatchResultDto.StatusEnum.CREATED).sale(sale);
     }
 
     private static User userWithOrg(Long orgId, String roleName) {
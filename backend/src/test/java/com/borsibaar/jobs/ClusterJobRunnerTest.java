@@ -0,0 +1,120 @@
+package com.borsibaar.jobs;
+
+import com.borsibaar.repository.JobLockRepository;
+import com.borsibaar.testing.JpaTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ClusterJobRunnerTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T20:00:00Z");
+    private static final Duration AT_MOST = Duration.ofSeconds(50);
+    private static final Duration AT_LEAST = Duration.ofSeconds(30);
+
+    @Autowired
+    private JobLockRepository jobLockRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final AtomicInteger runs = new AtomicInteger();
+    private final ThreadPoolTaskScheduler taskScheduler = scheduler();
+
+    @AfterEach
+    void tearDown() {
+        taskScheduler.shutdown();
+    }
+
+    @Test
+    void runExclusively_SameTickOnTwoReplicas_RunsOnce() {
+        String job = "same-tick";
+
+        assertTrue(replica("a", START).runExclusively(job, AT_MOST, AT_LEAST, runs::incrementAndGet));
+        assertFalse(replica("b", START.plusSeconds(2)).runExclusively(job, AT_MOST, AT_LEAST, runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void runExclusively_NextTick_RunsOnAnyReplica() {
+        String job = "next-tick";
+
+        replica("a", START).runExclusively(job, AT_MOST, AT_LEAST, runs::incrementAndGet);
+        assertTrue(replica("b", START.plusSeconds(60)).runExclusively(job, AT_MOST, AT_LEAST, runs::incrementAndGet));
+
+        assertEquals(2, runs.get());
+        assertEquals("b", jobLockRepository.findById(job).orElseThrow().getLockedBy());
+    }
+
+    @Test
+    void runExclusively_ReplicaDiedWhileRunning_AnotherTakesOverWhenLeaseExpires() {
+        String job = "died";
+        // Replica a took the lease and never released it
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jobLockRepository.create(job, "a", START, START.plus(AT_MOST)));
+
+        assertFalse(replica("b", START.plusSeconds(40)).runExclusively(job, AT_MOST, AT_LEAST, runs::incrementAndGet));
+        assertTrue(replica("b", START.plusSeconds(60)).runExclusively(job, AT_MOST, AT_LEAST, runs::incrementAndGet));
+
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void runExclusively_RunLongerThanLease_KeepsLeaseWhileRunning() {
+        String job = "slow";
+        Duration lease = Duration.ofMillis(300);
+        ClusterJobRunner a = replica("a", Clock.systemUTC());
+        ClusterJobRunner b = replica("b", Clock.systemUTC());
+
+        assertTrue(a.runExclusively(job, lease, lease, () -> {
+            sleep(lease.multipliedBy(3));
+            // Past the first lease, but a's renewals keep it
+            assertFalse(b.runExclusively(job, lease, lease, runs::incrementAndGet));
+        }));
+
+        assertEquals(0, runs.get());
+        sleep(lease);
+        assertTrue(b.runExclusively(job, lease, lease, runs::incrementAndGet));
+    }
+
+    private ClusterJobRunner replica(String owner, Instant now) {
+        return replica(owner, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private ClusterJobRunner replica(String owner, Clock clock) {
+        return new ClusterJobRunner(jobLockRepository, transactionManager, taskScheduler, clock, owner);
+    }
+
+    private static ThreadPoolTaskScheduler scheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.borsibaar.jobs;
+
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.repository.PriceAdjustmentView;
+import com.borsibaar.service.PriceBook;
+import com.borsibaar.service.PricingStrategy;
+import com.borsibaar.util.ReferenceIdGenerator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceCorrectionJobTest {
+
+    private static final Duration INTERVAL = Duration.ofSeconds(10);
+
+    @Mock private PricingStrategy pricingStrategy;
+    @Mock private ReferenceIdGenerator referenceIdGenerator;
+    @Mock private PriceBook priceBook;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private ClusterJobRunner clusterJobRunner;
+
+    private PriceCorrectionJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new PriceCorrectionJob(pricingStrategy, referenceIdGenerator, priceBook, transactionManager,
+                eventPublisher, clusterJobRunner);
+    }
+
+    @Test
+    void adjustPrices_PutsMovedPricesInBookAndPublishesOneEvent() {
+        holdLock();
+        tickNeeded();
+        when(pricingStrategy.tick(eq(1L), any(), eq("REDUCE-1"))).thenReturn(List.of(
+                adjustment(1L, 10L, "4.50"),
+                adjustment(1L, 11L, "3.00")));
+
+        job.adjustPrices(1L, INTERVAL);
+
+        verify(pricingStrategy, times(1)).tick(eq(1L), any(), eq("REDUCE-1"));
+        verify(priceBook).set(1L, 10L, new BigDecimal("4.50"));
+        verify(priceBook).set(1L, 11L, new BigDecimal("3.00"));
+
+        ArgumentCaptor<InventoryChangedEvent> event = ArgumentCaptor.forClass(InventoryChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().organizationId());
+        assertEquals(List.of(10L, 11L), event.getValue().changes().stream()
+                .map(InventoryChangedEvent.ProductChange::productId).toList());
+        assertEquals(0, new BigDecimal("4.50").compareTo(event.getValue().changes().get(0).unitPrice()));
+    }
+
+    @Test
+    void adjustPrices_LooksBackOneInterval() {
+        holdLock();
+        ArgumentCaptor<Instant> since = ArgumentCaptor.forClass(Instant.class);
+        when(pricingStrategy.needsTick(eq(1L), since.capture())).thenReturn(false);
+
+        Instant before = Instant.now();
+        job.adjustPrices(1L, INTERVAL);
+
+        Duration lookBack = Duration.between(since.getValue(), before);
+        assertTrue(lookBack.compareTo(INTERVAL.minusSeconds(1)) > 0 && lookBack.compareTo(INTERVAL) <= 0);
+    }
+
+    @Test
+    void adjustPrices_TickNotNeeded_SkipsDatabase() {
+        holdLock();
+        when(pricingStrategy.needsTick(eq(1L), any())).thenReturn(false);
+
+        job.adjustPrices(1L, INTERVAL);
+
+        verify(pricingStrategy, never()).tick(any(), any(), any());
+        verifyNoInteractions(referenceIdGenerator, priceBook, eventPublisher,
+                transactionManager);
+    }
+
+    @Test
+    void adjustPrices_NothingToMove_PublishesNothing() {
+        holdLock();
+        tickNeeded();
+        when(pricingStrategy.tick(eq(1L), any(), eq("REDUCE-1"))).thenReturn(List.of());
+
+        job.adjustPrices(1L, INTERVAL);
+
+        verifyNoInteractions(priceBook);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void adjustPrices_LockHeldElsewhere_DoesNothing() {
+        when(clusterJobRunner.runExclusively(eq(PriceCorrectionJob.JOB_NAME + ":1"), any(), any(), any()))
+                .thenReturn(false);
+
+        job.adjustPrices(1L, INTERVAL);
+
+        verifyNoInteractions(pricingStrategy, referenceIdGenerator, priceBook, eventPublisher);
+    }
+
+    private void tickNeeded() {
+        when(referenceIdGenerator.nextReference("REDUCE")).thenReturn("REDUCE-1");
+        when(pricingStrategy.needsTick(eq(1L), any())).thenReturn(true);
+    }
+
+    private void holdLock() {
+        when(clusterJobRunner.runExclusively(eq(PriceCorrectionJob.JOB_NAME + ":1"), any(), any(), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Runnable>getArgument(3).run();
+                    return true;
+                });
+    }
+
+    private static PriceAdjustmentView adjustment(Long organizationId, Long productId, String priceAfter) {
+        return new PriceAdjustmentView() {
+            @Override
+            public Long getOrganizationId() {
+                return organizationId;
+            }
+
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public BigDecimal getQuantity() {
+                return BigDecimal.TEN;
+            }
+
+            @Override
+            public BigDecimal getPriceBefore() {
+                return new BigDecimal(priceAfter).add(BigDecimal.ONE);
+            }
+
+            @Override
+            public BigDecimal getPriceAfter() {
+                return new BigDecimal(priceAfter);
+            }
+        };
+    }
+}
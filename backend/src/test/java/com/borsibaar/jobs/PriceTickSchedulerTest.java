@@ -0,0 +1,86 @@
+package com.borsibaar.jobs;
+
+import com.borsibaar.config.PricingDefaults;
+import com.borsibaar.repository.OrganizationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceTickSchedulerTest {
+
+    @Mock private OrganizationRepository organizationRepository;
+    @Mock private PriceCorrectionJob priceCorrectionJob;
+    @Mock private TaskScheduler taskScheduler;
+
+    private PriceTickScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new PriceTickScheduler(organizationRepository, priceCorrectionJob, taskScheduler);
+    }
+
+    @Test
+    void syncSchedules_SchedulesEachOrganizationWithItsInterval() {
+        when(organizationRepository.findPriceTickSeconds()).thenReturn(List.of(
+                new Object[]{1L, 10},
+                new Object[]{2L, null}));
+        doReturn(mock(ScheduledFuture.class)).when(taskScheduler).scheduleWithFixedDelay(any(), any(), any());
+
+        scheduler.syncSchedules();
+        scheduler.syncSchedules();
+
+        verify(taskScheduler).scheduleWithFixedDelay(any(), any(), eq(Duration.ofSeconds(10)));
+        verify(taskScheduler).scheduleWithFixedDelay(any(), any(), eq(PricingDefaults.TICK_INTERVAL));
+    }
+
+    @Test
+    void syncSchedules_IntervalChangedOrOrganizationGone_CancelsOldSchedule() {
+        ScheduledFuture<?> first = mock(ScheduledFuture.class);
+        ScheduledFuture<?> second = mock(ScheduledFuture.class);
+        doReturn(first, second).when(taskScheduler).scheduleWithFixedDelay(any(), any(), any());
+
+        when(organizationRepository.findPriceTickSeconds()).thenReturn(List.<Object[]>of(new Object[]{1L, 10}));
+        scheduler.syncSchedules();
+        when(organizationRepository.findPriceTickSeconds()).thenReturn(List.<Object[]>of(new Object[]{1L, 300}));
+        scheduler.syncSchedules();
+        when(organizationRepository.findPriceTickSeconds()).thenReturn(List.of());
+        scheduler.syncSchedules();
+
+        verify(first).cancel(false);
+        verify(taskScheduler).scheduleWithFixedDelay(any(), any(), eq(Duration.ofSeconds(300)));
+        verify(second).cancel(false);
+    }
+
+    @Test
+    void tick_PreviousTickStillRunning_IsSkipped() {
+        Duration interval = Duration.ofSeconds(10);
+        // A tick of the rescheduled organization fires while the old one is still running
+        doAnswer(invocation -> {
+            scheduler.tick(1L, interval);
+            return null;
+        }).when(priceCorrectionJob).adjustPrices(1L, interval);
+
+        scheduler.tick(1L, interval);
+        scheduler.tick(2L, interval);
+
+        verify(priceCorrectionJob, times(1)).adjustPrices(1L, interval);
+        verify(priceCorrectionJob).adjustPrices(2L, interval);
+    }
+}
@@ -0,0 +1,184 @@
+package com.borsibaar.repository;
+
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Product;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs the native pricing statements of {@link InventoryRepository}, which
+ * H2 cannot, against PostgreSQL with the schema built by Liquibase. Skipped
+ * where Docker is not available.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=true",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class InventoryRepositoryPostgresTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:17");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+    }
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long organizationId;
+    private Product lager;
+    private Product cider;
+    private Product stout;
+    private Product porter;
+    private Product water;
+    private Product ale;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, BigDecimal.ONE).getId();
+        Category beers = TestData.category(entityManager, organizationId, "Beers", true);
+        Category soft = TestData.category(entityManager, organizationId, "Soft drinks", false);
+
+        lager = TestData.product(entityManager, beers, "Lager", new BigDecimal("5.00"), null);
+        TestData.inventory(entityManager, lager, BigDecimal.TEN, null);
+        // One step would take it below its minimum price
+        cider = TestData.product(entityManager, beers, "Cider", new BigDecimal("5.00"), null);
+        cider.setMinPrice(new BigDecimal("1.00"));
+        TestData.inventory(entityManager, cider, BigDecimal.TEN, new BigDecimal("1.50"));
+        // Already at its minimum price
+        stout = TestData.product(entityManager, beers, "Stout", new BigDecimal("5.00"), null);
+        stout.setMinPrice(new BigDecimal("2.00"));
+        TestData.inventory(entityManager, stout, BigDecimal.TEN, new BigDecimal("2.00"));
+        porter = TestData.product(entityManager, beers, "Porter", new BigDecimal("5.00"), null);
+        TestData.inventory(entityManager, porter, BigDecimal.TEN, null);
+        water = TestData.product(entityManager, soft, "Water", new BigDecimal("2.00"), null);
+        TestData.inventory(entityManager, water, BigDecimal.TEN, null);
+        ale = TestData.product(entityManager, beers, "Ale", new BigDecimal("5.00"), null);
+        ale.setActive(false);
+        TestData.inventory(entityManager, ale, BigDecimal.TEN, null);
+        entityManager.flush();
+    }
+
+    @Test
+    void reduceIdlePrices_LowersIdleDynamicProductsDownToTheirFloor() {
+        List<PriceAdjustmentView> moved = sorted(inventoryRepository.reduceIdlePrices(organizationId,
+                Set.of(porter.getId()), "REDUCE-1"));
+
+        // The porter sold, the stout is at its minimum, the water is static and the ale inactive
+        assertEquals(List.of(lager.getId(), cider.getId()),
+                moved.stream().map(PriceAdjustmentView::getProductId).toList());
+        assertMoved(moved.get(0), "5.00", "4.00");
+        assertMoved(moved.get(1), "1.50", "1.00");
+        assertEquals(0, BigDecimal.TEN.compareTo(moved.get(0).getQuantity()));
+        assertLedger("REDUCE-1", moved);
+    }
+
+    @Test
+    void setPrices_MovesDynamicProductsWhosePriceDiffers() {
+        List<PriceAdjustmentView> moved = sorted(inventoryRepository.setPrices(organizationId,
+                new Long[] {lager.getId(), stout.getId(), water.getId(), ale.getId(), porter.getId()},
+                new BigDecimal[] {new BigDecimal("6.20"), new BigDecimal("2.00"), new BigDecimal("3.00"),
+                        new BigDecimal("4.00"), new BigDecimal("4.40")},
+                "VELOCITY-1"));
+
+        // The stout already costs 2.00, the water is static and the ale inactive
+        assertEquals(List.of(lager.getId(), porter.getId()),
+                moved.stream().map(PriceAdjustmentView::getProductId).toList());
+        assertMoved(moved.get(0), "5.00", "6.20");
+        assertMoved(moved.get(1), "5.00", "4.40");
+        assertLedger("VELOCITY-1", moved);
+    }
+
+    @Test
+    void reduceIdlePrices_LedgerIdsDoNotCollideWithHibernateIds() {
+        inventoryRepository.reduceIdlePrices(organizationId, Set.of(), "REDUCE-1");
+        List<Long> ledgerIds = jdbcTemplate.queryForList(
+                "SELECT id FROM inventory_transactions WHERE reference_id = 'REDUCE-1'", Long.class);
+
+        Inventory inventory = inventoryRepository.findByOrganizationIdAndProductId(organizationId, lager.getId())
+                .orElseThrow();
+        for (int i = 0; i < 60; i++) {
+            InventoryTransaction purchase = new InventoryTransaction();
+            purchase.setInventory(inventory);
+            purchase.setTransactionType("PURCHASE");
+            purchase.setQuantityChange(BigDecimal.ONE);
+            purchase.setQuantityAfter(BigDecimal.TEN);
+            purchase.setPriceBefore(new BigDecimal("4.00"));
+            purchase.setPriceAfter(new BigDecimal("4.00"));
+            purchase.setCreatedAt(Instant.now());
+            entityManager.persist(purchase);
+            assertFalse(ledgerIds.contains(purchase.getId()));
+        }
+        entityManager.flush();
+    }
+
+    private void assertLedger(String referenceId, List<PriceAdjustmentView> moved) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT inv.product_id, t.transaction_type, t.quantity_change, t.quantity_after,
+                       t.price_before, t.price_after, t.notes
+                FROM inventory_transactions t
+                JOIN inventory inv ON inv.id = t.inventory_id
+                WHERE t.reference_id = ?
+                ORDER BY inv.product_id
+                """, referenceId);
+
+        assertEquals(moved.size(), rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Map<String, Object> row = rows.get(i);
+            PriceAdjustmentView view = moved.get(i);
+            assertEquals(view.getProductId(), ((Number) row.get("product_id")).longValue());
+            assertEquals("ADJUSTMENT", row.get("transaction_type"));
+            assertEquals(0, ((BigDecimal) row.get("quantity_change")).signum());
+            assertEquals(0, view.getQuantity().compareTo((BigDecimal) row.get("quantity_after")));
+            assertEquals(0, view.getPriceBefore().compareTo((BigDecimal) row.get("price_before")));
+            assertEquals(0, view.getPriceAfter().compareTo((BigDecimal) row.get("price_after")));
+            assertEquals("PriceCorrectionJob", row.get("notes"));
+        }
+    }
+
+    private void assertMoved(PriceAdjustmentView view, String priceBefore, String priceAfter) {
+        assertEquals(organizationId, view.getOrganizationId());
+        assertEquals(0, new BigDecimal(priceBefore).compareTo(view.getPriceBefore()));
+        assertEquals(0, new BigDecimal(priceAfter).compareTo(view.getPriceAfter()));
+    }
+
+    private static List<PriceAdjustmentView> sorted(List<PriceAdjustmentView> views) {
+        return views.stream().sorted(Comparator.comparing(PriceAdjustmentView::getProductId)).toList();
+    }
+}
@@ -3,6 +3,7 @@ package com.borsibaar.service;
 import com.borsibaar.dto.CategoryRequestDto;
 import com.borsibaar.dto.CategoryResponseDto;
 import com.borsibaar.entity.Category;
+import com.borsibaar.event.InventoryChangedEvent;
 import com.borsibaar.exception.BadRequestException;
 import com.borsibaar.exception.DuplicateResourceException;
 import com.borsibaar.exception.NotFoundException;
@@ -15,6 +16,7 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.List;
 import java.util.Optional;
@@ -30,6 +32,10 @@ class CategoryServiceTest {
     private CategoryRepository categoryRepository;
     @Mock
     private CategoryMapper categoryMapper;
+    @Mock
+    private ReferenceDataCache referenceDataCache;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private CategoryService categoryService;
@@ -61,6 +67,7 @@ class CategoryServiceTest {
         verify(categoryRepository).save(captor.capture());
         assertEquals("Drinks", captor.getValue().getName());
         assertEquals(1L, captor.getValue().getOrganizationId());
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(1L));
     }
 
     @Test
@@ -105,5 +112,7 @@ class CategoryServiceTest {
         CategoryResponseDto dto = categoryService.deleteReturningDto(5L, 1L);
         assertEquals(5L, dto.getId());
         verify(categoryRepository).delete(cat);
+        verify(referenceDataCache).evictCategory(5L);
+        verify(eventPublisher).publishEvent(new InventoryChangedEvent(1L));
     }
 }
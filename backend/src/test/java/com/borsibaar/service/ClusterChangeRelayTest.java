@@ -0,0 +1,135 @@
+package com.borsibaar.service;
+
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.ReferenceDataChangedEvent;
+import com.borsibaar.repository.OrganizationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.ApplicationEventPublisher;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterChangeRelayTest {
+
+    @Mock private DataSource dataSource;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private OrganizationRepository organizationRepository;
+
+    private ClusterChangeRelay relay;
+    private ClusterChangeRelay otherReplica;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        relay = new ClusterChangeRelay(dataSource, new DataSourceProperties(), objectMapper, eventPublisher,
+                organizationRepository);
+        otherReplica = new ClusterChangeRelay(dataSource, new DataSourceProperties(), objectMapper, eventPublisher,
+                organizationRepository);
+    }
+
+    @Test
+    void receive_OwnChanges_AreSkipped() {
+        relay.receive(List.of(relay.payload(new InventoryChangedEvent(1L, List.of(change(10L, "5.00"))))));
+
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void receive_OtherReplica_CollectsChangesPerOrganization() {
+        relay.receive(List.of(
+                otherReplica.payload(new InventoryChangedEvent(1L, List.of(change(10L, "5.00"), change(11L, "3.00")))),
+                otherReplica.payload(new InventoryChangedEvent(2L, List.of(change(20L, "4.00")))),
+                otherReplica.payload(new InventoryChangedEvent(1L, List.of(change(10L, "5.50"))))));
+
+        List<InventoryChangedEvent> events = published(2);
+        InventoryChangedEvent first = events.get(0);
+        assertTrue(first.remote());
+        assertEquals(1L, first.organizationId());
+        // In commit order, so the last change of a product is the latest
+        assertEquals(List.of(10L, 11L, 10L),
+                first.changes().stream().map(InventoryChangedEvent.ProductChange::productId).toList());
+        assertEquals(0, new BigDecimal("5.50").compareTo(first.changes().get(2).unitPrice()));
+        assertEquals(2L, events.get(1).organizationId());
+    }
+
+    @Test
+    void receive_Reload_CoversOtherChangesOfOrganization() {
+        relay.receive(List.of(
+                otherReplica.payload(new InventoryChangedEvent(1L, List.of(change(10L, "5.00")))),
+                otherReplica.payload(new InventoryChangedEvent(1L)),
+                otherReplica.payload(new InventoryChangedEvent(1L, List.of(change(11L, "3.00"))))));
+
+        InventoryChangedEvent event = published(1).get(0);
+        assertTrue(event.remote());
+        assertTrue(event.changes().isEmpty());
+    }
+
+    @Test
+    void receive_ReferenceData_IsRepublishedBeforeInventory() {
+        relay.receive(List.of(
+                otherReplica.payload(new InventoryChangedEvent(1L, List.of(change(10L, "5.00")))),
+                otherReplica.payload(new ReferenceDataChangedEvent(ReferenceDataChangedEvent.Kind.ORGANIZATION, 1L))));
+
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        verify(eventPublisher, times(2)).publishEvent(captor.capture());
+        assertEquals(ReferenceDataChangedEvent.remote(ReferenceDataChangedEvent.Kind.ORGANIZATION, 1L),
+                captor.getAllValues().get(0));
+        assertTrue(((InventoryChangedEvent) captor.getAllValues().get(1)).remote());
+    }
+
+    @Test
+    void receive_SaleTimes_AreKept() {
+        Instant soldAt = Instant.parse("2026-01-01T22:00:00Z");
+        relay.receive(List.of(otherReplica.payload(new InventoryChangedEvent(1L, List.of(
+                new InventoryChangedEvent.ProductChange(10L, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ONE, soldAt),
+                change(11L, "3.00"))))));
+
+        InventoryChangedEvent event = published(1).get(0);
+        assertEquals(soldAt, event.changes().get(0).soldAt());
+        assertNull(event.changes().get(1).soldAt());
+    }
+
+    @Test
+    void payload_TooLarge_IsSentWithoutProducts() {
+        List<InventoryChangedEvent.ProductChange> changes = new ArrayList<>();
+        for (long productId = 1; productId <= 500; productId++) {
+            changes.add(change(productId, "5.00"));
+        }
+
+        String payload = otherReplica.payload(new InventoryChangedEvent(1L, changes));
+        assertTrue(payload.getBytes(StandardCharsets.UTF_8).length <= ClusterChangeRelay.MAX_PAYLOAD_BYTES);
+
+        relay.receive(List.of(payload));
+        assertTrue(published(1).get(0).changes().isEmpty());
+    }
+
+    private List<InventoryChangedEvent> published(int count) {
+        ArgumentCaptor<InventoryChangedEvent> captor = ArgumentCaptor.forClass(InventoryChangedEvent.class);
+        verify(eventPublisher, times(count)).publishEvent(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private static InventoryChangedEvent.ProductChange change(Long productId, String price) {
+        return new InventoryChangedEvent.ProductChange(productId, BigDecimal.TEN, BigDecimal.TEN, new BigDecimal(price));
+    }
+}
@@ -0,0 +1,132 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.AddStockRequestDto;
+import com.borsibaar.dto.InventoryTransactionPageDto;
+import com.borsibaar.dto.ProductResponseDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Product;
+import com.borsibaar.mapper.InventoryMapperImpl;
+import com.borsibaar.mapper.ProductMapperImpl;
+import com.borsibaar.repository.ProductRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pins the statements each read path issues, so that lazy associations that
+ * get touched one row at a time show up as failures instead of N+1 queries.
+ */
+@JpaTest
+@Import({InventoryService.class, ProductService.class, PriceBook.class, ReferenceDataCache.class,
+        LowStockMonitor.class, InventoryMapperImpl.class, ProductMapperImpl.class})
+class EntityFetchPlanTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long organizationId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, BigDecimal.ONE).getId();
+        Category category = TestData.category(entityManager, organizationId, "Beers", true);
+        Product product = TestData.product(entityManager, category, "Lager", BigDecimal.valueOf(5), null);
+        productId = product.getId();
+
+        Inventory inventory = TestData.inventory(entityManager, product, BigDecimal.TEN);
+        for (int i = 0; i < 5; i++) {
+            InventoryTransaction transaction = new InventoryTransaction();
+            transaction.setInventory(inventory);
+            transaction.setTransactionType("SALE");
+            transaction.setQuantityChange(BigDecimal.ONE.negate());
+            transaction.setQuantityAfter(BigDecimal.TEN);
+            transaction.setPriceBefore(BigDecimal.valueOf(5));
+            transaction.setPriceAfter(BigDecimal.valueOf(6));
+            transaction.setCreatedAt(Instant.now().minusSeconds(i));
+            entityManager.persist(transaction);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findProduct_LoadsOnlyTheProductRow() {
+        Statistics statistics = statistics();
+
+        productRepository.findById(productId).orElseThrow();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getProduct_LoadsCategoryInTheSameQuery() {
+        Statistics statistics = statistics();
+
+        ProductResponseDto product = productService.getById(productId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals("Beers", product.getCategoryName());
+    }
+
+    @Test
+    void addStock_LoadsPricingDataUpFront() {
+        Statistics statistics = statistics();
+
+        inventoryService.addStock(new AddStockRequestDto().productId(productId).quantity(BigDecimal.ONE),
+                UUID.randomUUID(), organizationId);
+
+        // Product with category and organization, then the inventory row; the price
+        // book is cold, so nothing may be fetched lazily to build its entry
+        assertEquals(0, statistics.getEntityFetchCount());
+        assertEquals(4, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getTransactionHistory_DoesNotLoadInventoryPerRow() {
+        Statistics statistics = statistics();
+
+        InventoryTransactionPageDto page = inventoryService.getTransactionHistory(productId, organizationId,
+                null, null, null, null, null);
+
+        assertEquals(5, page.getItems().size());
+        assertEquals(0, statistics.getEntityFetchCount());
+        // Inventory lookup and the page itself
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
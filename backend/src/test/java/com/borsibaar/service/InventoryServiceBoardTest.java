@@ -0,0 +1,93 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.MarketBoardCategoryDto;
+import com.borsibaar.dto.MarketBoardDto;
+import com.borsibaar.dto.MarketBoardProductDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Product;
+import com.borsibaar.mapper.InventoryMapper;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JpaTest
+@Import({InventoryService.class, PriceBook.class})
+class InventoryServiceBoardTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private PriceBook priceBook;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private InventoryMapper inventoryMapper;
+
+    private Long organizationId;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, BigDecimal.ONE).getId();
+
+        Category beers = category("Beers");
+        Category ciders = category("Ciders");
+        product(beers, "Lager", BigDecimal.valueOf(6), true);
+        product(beers, "Ale", BigDecimal.valueOf(4), true);
+        product(beers, "Stout", BigDecimal.valueOf(5), false);
+        product(ciders, "Pear", BigDecimal.valueOf(5), true);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getMarketBoard_GroupsActiveProductsByCategory_InOneQuery() {
+        // Prices are held by the price book once loaded
+        priceBook.prices(organizationId);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        MarketBoardDto board = inventoryService.getMarketBoard(organizationId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(List.of("Beers", "Ciders"),
+                board.getCategories().stream().map(MarketBoardCategoryDto::getCategoryName).toList());
+
+        List<MarketBoardProductDto> beers = board.getCategories().get(0).getProducts();
+        assertEquals(List.of("Ale", "Lager"), beers.stream().map(MarketBoardProductDto::getProductName).toList());
+        assertEquals(MarketBoardProductDto.TrendEnum.DOWN, beers.get(0).getTrend());
+        assertEquals(0, BigDecimal.valueOf(-20).compareTo(beers.get(0).getChangePercent()));
+        assertEquals(MarketBoardProductDto.TrendEnum.UP, beers.get(1).getTrend());
+        assertEquals(0, BigDecimal.valueOf(20).compareTo(beers.get(1).getChangePercent()));
+        assertEquals(MarketBoardProductDto.TrendEnum.FLAT,
+                board.getCategories().get(1).getProducts().get(0).getTrend());
+    }
+
+    private Category category(String name) {
+        return TestData.category(entityManager, organizationId, name, true);
+    }
+
+    private void product(Category category, String name, BigDecimal price, boolean active) {
+        Product product = TestData.product(entityManager, category, name, BigDecimal.valueOf(5), null);
+        product.setActive(active);
+        TestData.inventory(entityManager, product, BigDecimal.TEN, price);
+    }
+}
@@ -0,0 +1,122 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.InventoryTransactionPageDto;
+import com.borsibaar.dto.InventoryTransactionResponseDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Product;
+import com.borsibaar.mapper.InventoryMapper;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@JpaTest
+@Import({InventoryService.class, PriceBook.class})
+class InventoryServiceHistoryTest {
+
+    private static final Instant START = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private InventoryMapper inventoryMapper;
+
+    private Long organizationId;
+    private Long productId;
+    private Inventory inventory;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, null).getId();
+        Category category = TestData.category(entityManager, organizationId, "Beers", false);
+        Product product = TestData.product(entityManager, category, "Beer", BigDecimal.valueOf(5), null);
+        productId = product.getId();
+        inventory = TestData.inventory(entityManager, product, BigDecimal.TEN);
+
+        // Two transactions per second, so pages have to break ties on id
+        for (int i = 0; i < 10; i++) {
+            ids.add(transaction(i % 3 == 0 ? "PURCHASE" : "SALE", START.plusSeconds(i / 2)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        when(inventoryMapper.toTransactionResponse(any())).thenAnswer(invocation -> {
+            InventoryTransaction transaction = invocation.getArgument(0);
+            return new InventoryTransactionResponseDto().id(transaction.getId())
+                    .transactionType(transaction.getTransactionType());
+        });
+    }
+
+    @Test
+    void getTransactionHistory_WalksLedgerNewestFirst() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            InventoryTransactionPageDto page = inventoryService.getTransactionHistory(productId, organizationId,
+                    null, null, null, cursor, 3);
+            page.getItems().forEach(item -> seen.add(item.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(ids.reversed(), seen);
+    }
+
+    @Test
+    void getTransactionHistory_FiltersByRangeAndType() {
+        InventoryTransactionPageDto page = inventoryService.getTransactionHistory(productId, organizationId,
+                START.plusSeconds(1), START.plusSeconds(4), "SALE", null, 50);
+
+        // Seconds 1 to 3 hold transactions 2 to 7, of which 3 and 6 are purchases
+        assertEquals(List.of(ids.get(7), ids.get(5), ids.get(4), ids.get(2)),
+                page.getItems().stream().map(InventoryTransactionResponseDto::getId).toList());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getTransactionHistory_RejectsInvalidCursor() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> inventoryService.getTransactionHistory(productId, organizationId, null, null, null,
+                        "not a cursor", 10));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    private Long transaction(String type, Instant createdAt) {
+        InventoryTransaction transaction = new InventoryTransaction();
+        transaction.setInventory(inventory);
+        transaction.setTransactionType(type);
+        transaction.setQuantityChange(BigDecimal.ONE);
+        transaction.setQuantityAfter(BigDecimal.TEN);
+        transaction.setPriceBefore(BigDecimal.ONE);
+        transaction.setPriceAfter(BigDecimal.ONE);
+        transaction.setCreatedAt(createdAt);
+        entityManager.persist(transaction);
+        return transaction.getId();
+    }
+}
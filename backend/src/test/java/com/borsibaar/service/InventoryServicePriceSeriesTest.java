@@ -0,0 +1,137 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.CandleIntervalDto;
+import com.borsibaar.dto.PriceCandleDto;
+import com.borsibaar.dto.PriceSeriesDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Product;
+import com.borsibaar.mapper.InventoryMapper;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@JpaTest
+@Import({InventoryService.class, PriceBook.class})
+class InventoryServicePriceSeriesTest {
+
+    private static final Instant FROM = Instant.parse("2026-01-01T10:00:00Z");
+    private static final Instant TO = Instant.parse("2026-01-01T10:03:00Z");
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private InventoryMapper inventoryMapper;
+
+    private Long organizationId;
+    private Long productId;
+    private Inventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, null).getId();
+        Category category = TestData.category(entityManager, organizationId, "Beers", true);
+        Product product = TestData.product(entityManager, category, "Beer", BigDecimal.valueOf(5), null);
+        productId = product.getId();
+        inventory = TestData.inventory(entityManager, product, BigDecimal.TEN);
+
+        transaction("SALE", "-1", "5.00", "5.50", "2026-01-01T10:00:10Z");
+        transaction("SALE", "-2", "5.50", "6.00", "2026-01-01T10:00:30Z");
+        transaction("ADJUSTMENT", "0", "6.00", "5.80", "2026-01-01T10:01:30Z");
+        // Outside the range
+        transaction("SALE", "-1", "5.80", "6.30", "2026-01-01T10:03:00Z");
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getPriceSeries_AggregatesTransactionsPerInterval() {
+        PriceSeriesDto series = inventoryService.getPriceSeries(productId, organizationId, FROM, TO,
+                CandleIntervalDto.MINUTE);
+
+        List<PriceCandleDto> candles = series.getCandles();
+        assertEquals(2, candles.size());
+
+        PriceCandleDto first = candles.get(0);
+        assertEquals(FROM, first.getStart());
+        assertEquals(0, new BigDecimal("5.00").compareTo(first.getOpen()));
+        assertEquals(0, new BigDecimal("6.00").compareTo(first.getHigh()));
+        assertEquals(0, new BigDecimal("5.00").compareTo(first.getLow()));
+        assertEquals(0, new BigDecimal("6.00").compareTo(first.getClose()));
+        assertEquals(0, new BigDecimal("3").compareTo(first.getVolume()));
+        assertEquals(2, first.getTransactions());
+
+        PriceCandleDto second = candles.get(1);
+        assertEquals(Instant.parse("2026-01-01T10:01:00Z"), second.getStart());
+        assertEquals(0, new BigDecimal("6.00").compareTo(second.getOpen()));
+        assertEquals(0, new BigDecimal("5.80").compareTo(second.getClose()));
+        assertEquals(0, new BigDecimal("5.80").compareTo(second.getLow()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(second.getVolume()));
+    }
+
+    @Test
+    void getPriceSeries_OpensAndClosesByTimeNotId() {
+        // Recorded after the adjustment, so with a higher id, but earlier in the interval
+        transaction("SALE", "-1", "5.90", "6.10", "2026-01-01T10:01:10Z");
+        entityManager.flush();
+        entityManager.clear();
+
+        PriceSeriesDto series = inventoryService.getPriceSeries(productId, organizationId, FROM, TO,
+                CandleIntervalDto.MINUTE);
+
+        PriceCandleDto second = series.getCandles().get(1);
+        assertEquals(0, new BigDecimal("5.90").compareTo(second.getOpen()));
+        assertEquals(0, new BigDecimal("5.80").compareTo(second.getClose()));
+        assertEquals(2, second.getTransactions());
+    }
+
+    @Test
+    void getPriceSeries_PicksIntervalForRange() {
+        PriceSeriesDto series = inventoryService.getPriceSeries(productId, organizationId, FROM,
+                FROM.plusSeconds(24 * 3600), null);
+
+        assertEquals(CandleIntervalDto.FIVE_MINUTES, series.getInterval());
+        assertEquals(1, series.getCandles().size());
+        assertEquals(0, new BigDecimal("6.30").compareTo(series.getCandles().get(0).getClose()));
+    }
+
+    @Test
+    void getPriceSeries_RejectsTooManyCandles() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> inventoryService.getPriceSeries(productId, organizationId, FROM,
+                        FROM.plusSeconds(24 * 3600), CandleIntervalDto.MINUTE));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+    }
+
+    private void transaction(String type, String quantityChange, String priceBefore, String priceAfter,
+                             String createdAt) {
+        InventoryTransaction transaction = new InventoryTransaction();
+        transaction.setInventory(inventory);
+        transaction.setTransactionType(type);
+        transaction.setQuantityChange(new BigDecimal(quantityChange));
+        transaction.setQuantityAfter(BigDecimal.TEN);
+        transaction.setPriceBefore(new BigDecimal(priceBefore));
+        transaction.setPriceAfter(new BigDecimal(priceAfter));
+        transaction.setCreatedAt(Instant.parse(createdAt));
+        entityManager.persist(transaction);
+    }
+}
@@ -0,0 +1,128 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.InventoryResponseDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Product;
+import com.borsibaar.mapper.InventoryMapperImpl;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@JpaTest
+@Import({InventoryService.class, PriceBook.class, InventoryMapperImpl.class})
+class InventoryServiceProjectionTest {
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private PriceBook priceBook;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long organizationId;
+    private Long ciderCategoryId;
+    private Long lagerId;
+    private Long stoutId;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, null).getId();
+
+        Category beers = category("Beers");
+        Category ciders = category("Ciders");
+        ciderCategoryId = ciders.getId();
+        lagerId = product(beers, "Lager", BigDecimal.valueOf(6), true);
+        product(beers, "Ale", BigDecimal.valueOf(4), true);
+        stoutId = product(beers, "Stout", BigDecimal.valueOf(5), false);
+        product(ciders, "Pear", BigDecimal.valueOf(5), true);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getByOrganization_ListsActiveProducts_InOneQuery() {
+        // Prices are held by the price book once loaded
+        priceBook.prices(organizationId);
+        Statistics statistics = statistics();
+
+        List<InventoryResponseDto> inventory = inventoryService.getByOrganization(organizationId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(List.of("Ale", "Lager", "Pear"),
+                inventory.stream().map(InventoryResponseDto::getProductName).toList());
+        InventoryResponseDto lager = inventory.get(1);
+        assertEquals(0, BigDecimal.valueOf(6).compareTo(lager.getUnitPrice()));
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(lager.getBasePrice()));
+        assertEquals(0, BigDecimal.TEN.compareTo(lager.getQuantity()));
+        assertEquals(organizationId, lager.getOrganizationId());
+    }
+
+    @Test
+    void getByOrganization_FiltersByCategory_InOneQuery() {
+        priceBook.prices(organizationId);
+        Statistics statistics = statistics();
+
+        List<InventoryResponseDto> inventory = inventoryService.getByOrganization(organizationId, ciderCategoryId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(List.of("Pear"), inventory.stream().map(InventoryResponseDto::getProductName).toList());
+    }
+
+    @Test
+    void getByProductAndOrganization_InOneQuery() {
+        priceBook.prices(organizationId);
+        Statistics statistics = statistics();
+
+        InventoryResponseDto lager = inventoryService.getByProductAndOrganization(lagerId, organizationId);
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals("Lager", lager.getProductName());
+        assertEquals(0, BigDecimal.valueOf(6).compareTo(lager.getUnitPrice()));
+    }
+
+    @Test
+    void getByProductAndOrganization_InactiveProduct_Gone() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> inventoryService.getByProductAndOrganization(stoutId, organizationId));
+        assertEquals(HttpStatus.GONE, ex.getStatusCode());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+
+    private Category category(String name) {
+        return TestData.category(entityManager, organizationId, name, true);
+    }
+
+    private Long product(Category category, String name, BigDecimal price, boolean active) {
+        Product product = TestData.product(entityManager, category, name, BigDecimal.valueOf(5), null);
+        product.setActive(active);
+        TestData.inventory(entityManager, product, BigDecimal.TEN, price);
+        return product.getId();
+    }
+}
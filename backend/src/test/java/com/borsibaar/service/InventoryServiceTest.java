@@ -9,7 +9,10 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
 import org.springframework.web.server.ResponseStatusException;
@@ -18,10 +21,12 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
@@ -43,12 +48,21 @@ class InventoryServiceTest {
     @Mock
     private BarStationRepository barStationRepository;
 
+    @Mock
+    private SalesRollupRepository salesRollupRepository;
+
     @Mock
     private InventoryMapper inventoryMapper;
 
     @Mock
     private ClientRegistrationRepository clientRegistrationRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private PriceBook priceBook = new PriceBook(mock(InventoryRepository.class));
+
     @InjectMocks private InventoryService inventoryService;
 
     private final UUID userId = UUID.randomUUID();
@@ -56,10 +70,10 @@ class InventoryServiceTest {
     @Test
     void addStock_CreatesInventoryIfMissing() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(true); product.setBasePrice(BigDecimal.valueOf(2));
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.empty());
+        when(productRepository.findForPricingById(5L)).thenReturn(Optional.of(product));
+        when(inventoryRepository.findForUpdateByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.empty());
         when(inventoryRepository.save(any(Inventory.class))).thenAnswer(inv -> { Inventory i = inv.getArgument(0); i.setId(77L); return i; });
-        when(inventoryMapper.toResponse(any())).thenAnswer(inv -> {
+        when(inventoryMapper.toResponse(any(Inventory.class))).thenAnswer(inv -> {
             Inventory i = inv.getArgument(0); return new InventoryResponseDto().id(i.getId())
                     .organizationId(i.getOrganizationId()).productId(i.getProductId()).productName("P")
                     .quantity(i.getQuantity()).unitPrice(i.getAdjustedPrice()).description(product.getDescription())
@@ -76,7 +90,7 @@ class InventoryServiceTest {
     @Test
     void addStock_ProductInactive_ThrowsGone() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(false);
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
+        when(productRepository.findForPricingById(5L)).thenReturn(Optional.of(product));
         var req = new AddStockRequestDto().productId(5L).quantity(BigDecimal.ONE);
         ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> inventoryService.addStock(req, userId, 1L));
         assertEquals(HttpStatus.GONE, ex.getStatusCode());
@@ -86,8 +100,8 @@ class InventoryServiceTest {
     void removeStock_Insufficient_ThrowsBadRequest() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(true); product.setBasePrice(BigDecimal.ONE);
         Inventory inv = new Inventory(); inv.setId(9L); inv.setOrganizationId(1L); inv.setProduct(product); inv.setProductId(5L); inv.setQuantity(BigDecimal.valueOf(2)); inv.setAdjustedPrice(BigDecimal.ONE); inv.setUpdatedAt(OffsetDateTime.now());
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.of(inv));
+        when(productRepository.findForPricingById(5L)).thenReturn(Optional.of(product));
+        when(inventoryRepository.findForUpdateByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.of(inv));
         var req = new RemoveStockRequestDto().productId(5L).quantity(BigDecimal.valueOf(5));
         ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> inventoryService.removeStock(req, userId, 1L));
         assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
@@ -97,11 +111,11 @@ class InventoryServiceTest {
     void adjustStock_Success_CreatesTransaction() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(true); product.setBasePrice(BigDecimal.valueOf(2));
         Inventory inv = new Inventory(); inv.setId(9L); inv.setOrganizationId(1L); inv.setProduct(product); inv.setProductId(5L); inv.setQuantity(BigDecimal.valueOf(5)); inv.setAdjustedPrice(BigDecimal.valueOf(2)); inv.setUpdatedAt(OffsetDateTime.now());
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.of(inv));
+        when(productRepository.findForPricingById(5L)).thenReturn(Optional.of(product));
+        when(inventoryRepository.findForUpdateByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.of(inv));
         when(inventoryRepository.save(any(Inventory.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
-        when(inventoryMapper.toResponse(any())).thenAnswer(a -> {
+        when(inventoryMapper.toResponse(any(Inventory.class))).thenAnswer(a -> {
             Inventory i = a.getArgument(0); return new InventoryResponseDto().id(i.getId())
                     .organizationId(i.getOrganizationId()).productId(i.getProductId()).productName("Prod")
                     .quantity(i.getQuantity()).unitPrice(i.getAdjustedPrice()).description(product.getDescription())
@@ -115,26 +129,27 @@ class InventoryServiceTest {
     }
 
     @Test
-    void getByOrganization_FiltersInactiveProducts() {
-        Inventory inv1 = new Inventory(); inv1.setId(1L); inv1.setOrganizationId(1L); inv1.setProductId(10L); inv1.setQuantity(BigDecimal.ONE); inv1.setUpdatedAt(OffsetDateTime.now());
-        Inventory inv2 = new Inventory(); inv2.setId(2L); inv2.setOrganizationId(1L); inv2.setProductId(11L); inv2.setQuantity(BigDecimal.ONE); inv2.setUpdatedAt(OffsetDateTime.now());
-        when(inventoryRepository.findByOrganizationId(1L)).thenReturn(List.of(inv1, inv2));
-        Product p1 = new Product(); p1.setId(10L); p1.setActive(true); p1.setBasePrice(BigDecimal.ONE); p1.setName("A");
-        Product p2 = new Product(); p2.setId(11L); p2.setActive(false); p2.setBasePrice(BigDecimal.ONE); p2.setName("B");
-        when(productRepository.findAllById(List.of(10L, 11L))).thenReturn(List.of(p1, p2));
-        var resp = new InventoryResponseDto().id(1L).organizationId(1L).productId(10L).productName("A")
-                .quantity(BigDecimal.ONE).unitPrice(BigDecimal.ONE).description("abc").updatedAt(Instant.now());
-        when(inventoryMapper.toResponse(inv1)).thenReturn(resp);
+    void getByOrganization_PricesFromPriceBook() {
+        InventoryView view1 = view(10L, "A", true);
+        InventoryView view2 = view(11L, "B", true);
+        when(inventoryRepository.findViewsByOrganizationId(1L)).thenReturn(List.of(view1, view2));
+        doReturn(Map.of(10L, new BigDecimal("2.50"))).when(priceBook).prices(1L);
+        when(inventoryMapper.toResponse(any(InventoryView.class))).thenAnswer(a -> {
+            InventoryView v = a.getArgument(0);
+            return new InventoryResponseDto().productId(v.productId()).productName(v.productName())
+                    .unitPrice(v.adjustedPrice());
+        });
         List<InventoryResponseDto> result = inventoryService.getByOrganization(1L);
-        assertEquals(1, result.size());
+        assertEquals(2, result.size());
+        assertEquals(new BigDecimal("2.50"), result.get(0).getUnitPrice());
+        assertEquals(BigDecimal.ONE, result.get(1).getUnitPrice());
+        verifyNoInteractions(productRepository);
     }
 
     @Test
     void getByProductAndOrganization_ProductInactive_Gone() {
-        Inventory inv = new Inventory(); inv.setId(1L); inv.setOrganizationId(1L); inv.setProductId(10L); inv.setQuantity(BigDecimal.ONE); inv.setUpdatedAt(OffsetDateTime.now());
-        when(inventoryRepository.findByOrganizationIdAndProductId(1L, 10L)).thenReturn(Optional.of(inv));
-        Product p = new Product(); p.setId(10L); p.setActive(false); p.setBasePrice(BigDecimal.ONE); p.setName("A");
-        when(productRepository.findById(10L)).thenReturn(Optional.of(p));
+        when(inventoryRepository.findViewByOrganizationIdAndProductId(1L, 10L))
+                .thenReturn(Optional.of(view(10L, "A", false)));
         ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> inventoryService.getByProductAndOrganization(10L, 1L));
         assertEquals(HttpStatus.GONE, ex.getStatusCode());
     }
@@ -142,7 +157,7 @@ class InventoryServiceTest {
     @Test
     void addStock_ProductWrongOrg_Forbidden() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(2L); product.setActive(true);
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
+        when(productRepository.findForPricingById(5L)).thenReturn(Optional.of(product));
         var req = new AddStockRequestDto().productId(5L).quantity(BigDecimal.ONE);
         ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> inventoryService.addStock(req, userId, 1L));
         assertEquals(HttpStatus.FORBIDDEN, ex.getStatusCode());
@@ -152,10 +167,10 @@ class InventoryServiceTest {
     void removeStock_Success_CreatesNegativeTransaction() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(true); product.setBasePrice(new BigDecimal("2.00"));
         Inventory inv = new Inventory(); inv.setId(10L); inv.setOrganizationId(1L); inv.setProduct(product); inv.setProductId(5L); inv.setQuantity(new BigDecimal("10")); inv.setAdjustedPrice(new BigDecimal("2.00")); inv.setUpdatedAt(OffsetDateTime.now());
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.findByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.of(inv));
+        when(productRepository.findForPricingById(5L)).thenReturn(Optional.of(product));
+        when(inventoryRepository.findForUpdateByOrganizationIdAndProductId(1L, 5L)).thenReturn(Optional.of(inv));
         when(inventoryRepository.save(any(Inventory.class))).thenAnswer(a -> a.getArgument(0));
-        when(inventoryMapper.toResponse(any())).thenAnswer(a -> { Inventory i = a.getArgument(0); return new InventoryResponseDto().id(i.getId()).organizationId(i.getOrganizationId()).productId(i.getProductId()).productName("Prod").quantity(i.getQuantity()).unitPrice(i.getAdjustedPrice()).description(product.getDescription()).updatedAt(i.getUpdatedAt().toInstant());});
+        when(inventoryMapper.toResponse(any(Inventory.class))).thenAnswer(a -> { Inventory i = a.getArgument(0); return new InventoryResponseDto().id(i.getId()).organizationId(i.getOrganizationId()).productId(i.getProductId()).productName("Prod").quantity(i.getQuantity()).unitPrice(i.getAdjustedPrice()).description(product.getDescription()).updatedAt(i.getUpdatedAt().toInstant());});
 
         var req = new RemoveStockRequestDto().productId(5L).quantity(new BigDecimal("3")).referenceId("sale-1").notes("note");
         InventoryResponseDto dto = inventoryService.removeStock(req, userId, 1L);
@@ -176,67 +191,56 @@ class InventoryServiceTest {
         tx.setQuantityChange(new BigDecimal("-1")); tx.setQuantityAfter(new BigDecimal("9"));
         tx.setPriceBefore(BigDecimal.ONE); tx.setPriceAfter(BigDecimal.ONE); tx.setReferenceId("ref"); tx.setNotes("n");
         tx.setCreatedBy(uid); tx.setCreatedAt(Instant.now());
-        when(inventoryTransactionRepository.findByInventoryIdOrderByCreatedAtDesc(100L)).thenReturn(List.of(tx));
+        when(inventoryTransactionRepository.findPageByInventoryId(eq(100L), any(Instant.class), any(Instant.class),
+                any(Long.class), any(Limit.class))).thenReturn(List.of(tx));
         User user = new User(); user.setId(uid); user.setName("Alice"); user.setEmail("a@b.c");
         when(userRepository.findAllById(anyList())).thenReturn(List.of(user));
 
         var base = new InventoryTransactionResponseDto().id(1L).transactionType("SALE").quantityChange(new BigDecimal("-1"));
         when(inventoryMapper.toTransactionResponse(tx)).thenReturn(base);
 
-        List<InventoryTransactionResponseDto> result = inventoryService.getTransactionHistory(10L, 1L);
+        InventoryTransactionPageDto page = inventoryService.getTransactionHistory(10L, 1L, null, null, null, null, null);
+        List<InventoryTransactionResponseDto> result = page.getItems();
         assertEquals(1, result.size());
+        assertNull(page.getNextCursor());
         assertEquals(uid.toString(), result.get(0).getCreatedBy());
         assertEquals("Alice", result.get(0).getCreatedByName());
     }
 
     @Test
-    void getUserSalesStats_ComputesCountsAndRevenue() {
+    void getUserSalesStats_MapsAggregatedRows() {
         Long orgId = 1L;
         UUID uid = UUID.randomUUID();
         Long stationId = 7L;
-        // two transactions for same user/station, different inventories
-        InventoryTransaction t1 = new InventoryTransaction(); t1.setId(1L); t1.setInventoryId(11L); t1.setTransactionType("SALE"); t1.setReferenceId("o1"); t1.setQuantityChange(new BigDecimal("-2")); t1.setCreatedBy(uid); t1.setBarStationId(stationId);
-        InventoryTransaction t2 = new InventoryTransaction(); t2.setId(2L); t2.setInventoryId(12L); t2.setTransactionType("SALE"); t2.setReferenceId("o2"); t2.setQuantityChange(new BigDecimal("-1")); t2.setCreatedBy(uid); t2.setBarStationId(stationId);
-        when(inventoryTransactionRepository.findSaleTransactionsByOrganizationId(orgId)).thenReturn(List.of(t1, t2));
-
-        // inventories map to products with base prices
-        Inventory inv1 = new Inventory(); inv1.setId(11L); inv1.setProductId(101L);
-        Inventory inv2 = new Inventory(); inv2.setId(12L); inv2.setProductId(102L);
-        Product p1 = new Product(); p1.setId(101L); p1.setBasePrice(new BigDecimal("3.00"));
-        Product p2 = new Product(); p2.setId(102L); p2.setBasePrice(new BigDecimal("5.00"));
+        UUID otherUid = UUID.randomUUID();
+        when(salesRollupRepository.sumByUserAndStation(orgId)).thenReturn(List.of(
+                new Object[] {otherUid, null, 1L, new BigDecimal("4.00")},
+                new Object[] {uid, stationId, 2L, new BigDecimal("11.00")}
+        ));
 
         User user = new User(); user.setId(uid); user.setName("Bob"); user.setEmail("b@c.d");
         when(userRepository.findAllById(anyList())).thenReturn(List.of(user));
         BarStation station = new BarStation(); station.setId(stationId); station.setName("Main");
         when(barStationRepository.findAllById(anyList())).thenReturn(List.of(station));
-        when(productRepository.findRevenueData(List.of(1L, 2L))).thenReturn(
-                List.of(new Object[] {p1.getBasePrice(), t1.getQuantityChange()}, new Object[] {p2.getBasePrice(), t2.getQuantityChange()})
-        );
 
         List<UserSalesStatsResponseDto> stats = inventoryService.getUserSalesStats(orgId);
-        assertEquals(1, stats.size());
+        assertEquals(2, stats.size());
         UserSalesStatsResponseDto s = stats.get(0);
         assertEquals(2L, s.getSalesCount());
-        // revenue = 2*3 + 1*5 = 11
         assertEquals(new BigDecimal("11.00"), s.getTotalRevenue());
         assertEquals("Bob", s.getUserName());
+        assertEquals("Main", s.getBarStationName());
+        assertEquals("Unknown User", stats.get(1).getUserName());
+        assertNull(stats.get(1).getBarStationName());
     }
 
     @Test
-    void getStationSalesStats_ComputesCountsAndRevenue() {
+    void getStationSalesStats_MapsAggregatedRows() {
         Long orgId = 1L;
         Long stationId = 7L;
-        InventoryTransaction t1 = new InventoryTransaction(); t1.setId(1L); t1.setInventoryId(11L); t1.setTransactionType("SALE"); t1.setReferenceId("o1"); t1.setQuantityChange(new BigDecimal("-2")); t1.setBarStationId(stationId);
-        InventoryTransaction t2 = new InventoryTransaction(); t2.setId(2L); t2.setInventoryId(12L); t2.setTransactionType("SALE"); t2.setReferenceId("o2"); t2.setQuantityChange(new BigDecimal("-1")); t2.setBarStationId(stationId);
-        when(inventoryTransactionRepository.findSaleTransactionsByOrganizationId(orgId)).thenReturn(List.of(t1, t2));
-
-        Inventory inv1 = new Inventory(); inv1.setId(11L); inv1.setProductId(101L);
-        Inventory inv2 = new Inventory(); inv2.setId(12L); inv2.setProductId(102L);
-        Product p1 = new Product(); p1.setId(101L); p1.setBasePrice(new BigDecimal("3.00"));
-        Product p2 = new Product(); p2.setId(102L); p2.setBasePrice(new BigDecimal("5.00"));
-        when(productRepository.findRevenueData(List.of(1L, 2L))).thenReturn(
-          List.of(new Object[] {p1.getBasePrice(), t1.getQuantityChange()}, new Object[] {p2.getBasePrice(), t2.getQuantityChange()})
-        );
+        when(salesRollupRepository.sumByStation(orgId)).thenReturn(List.<Object[]>of(
+                new Object[] {stationId, 2L, new BigDecimal("11.00")}
+        ));
 
         BarStation station = new BarStation(); station.setId(stationId); station.setName("Main");
         when(barStationRepository.findAllById(anyList())).thenReturn(List.of(station));
@@ -248,4 +252,9 @@ class InventoryServiceTest {
         assertEquals(new BigDecimal("11.00"), s.getTotalRevenue());
         assertEquals("Main", s.getBarStationName());
     }
+
+    private static InventoryView view(Long productId, String name, boolean active) {
+        return new InventoryView(productId + 100, 1L, productId, name, null, BigDecimal.ONE, BigDecimal.ONE,
+                BigDecimal.ONE, null, null, OffsetDateTime.now(), active);
+    }
 }
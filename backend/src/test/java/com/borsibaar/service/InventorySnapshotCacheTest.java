@@ -0,0 +1,52 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.InventoryResponseDto;
+import com.borsibaar.event.InventoryChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class InventorySnapshotCacheTest {
+
+    @Mock private InventoryService inventoryService;
+
+    @InjectMocks private InventorySnapshotCache inventorySnapshotCache;
+
+    @Test
+    void get_ReusesSnapshotUntilInventoryChanges() {
+        List<InventoryResponseDto> first = List.of(new InventoryResponseDto().id(1L));
+        List<InventoryResponseDto> second = List.of(new InventoryResponseDto().id(2L));
+        when(inventoryService.getByOrganization(1L, null)).thenReturn(first, second);
+
+        InventorySnapshotCache.Snapshot snapshot = inventorySnapshotCache.get(1L, null);
+        assertSame(first, inventorySnapshotCache.get(1L, null).items());
+        assertEquals(snapshot.etag(), inventorySnapshotCache.etag(1L, null));
+
+        inventorySnapshotCache.onInventoryChanged(new InventoryChangedEvent(1L));
+
+        assertNotEquals(snapshot.etag(), inventorySnapshotCache.etag(1L, null));
+        InventorySnapshotCache.Snapshot rebuilt = inventorySnapshotCache.get(1L, null);
+        assertSame(second, rebuilt.items());
+        assertEquals(rebuilt.etag(), inventorySnapshotCache.etag(1L, null));
+        verify(inventoryService, times(2)).getByOrganization(1L, null);
+    }
+
+    @Test
+    void etag_DiffersPerCategoryAndOrganization() {
+        assertNotEquals(inventorySnapshotCache.etag(1L, null), inventorySnapshotCache.etag(1L, 3L));
+        inventorySnapshotCache.onInventoryChanged(new InventoryChangedEvent(2L));
+        assertNotEquals(inventorySnapshotCache.etag(1L, null), inventorySnapshotCache.etag(2L, null));
+    }
+}
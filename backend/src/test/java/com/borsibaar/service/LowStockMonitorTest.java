@@ -0,0 +1,205 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.LowStockAlertDto;
+import com.borsibaar.dto.LowStockItemDto;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.LowStockAlertEvent;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.ReorderLevelView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LowStockMonitorTest {
+
+    @Mock private InventoryRepository inventoryRepository;
+    @Mock private ApplicationEventPublisher eventPublisher;
+
+    private LowStockMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        // Checks right away instead of on the monitor thread
+        monitor = new LowStockMonitor(inventoryRepository, eventPublisher, Runnable::run);
+    }
+
+    @Test
+    void lowStock_LoadsOnce_AndListsProductsAtOrBelowThreshold() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L)).thenReturn(List.of(
+                level(10L, "Lager", "2", "5"),
+                level(11L, "Cider", "5", "5"),
+                level(12L, "Stout", "20", "5")));
+
+        List<LowStockItemDto> low = monitor.lowStock(1L);
+        monitor.lowStock(1L);
+
+        assertEquals(List.of(10L, 11L), low.stream().map(LowStockItemDto::getProductId).toList());
+        // Already low when loaded, so not known since when
+        assertNull(low.get(0).getSince());
+        verify(inventoryRepository, times(1)).findReorderLevelsByOrganizationId(1L);
+    }
+
+    @Test
+    void onInventoryChanged_AlertsOnceWhenCrossingThreshold() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L))
+                .thenReturn(List.of(level(10L, "Lager", "8", "5")));
+        monitor.lowStock(1L);
+
+        monitor.onInventoryChanged(change(10L, "8", "6"));
+        monitor.onInventoryChanged(change(10L, "6", "5"));
+        monitor.onInventoryChanged(change(10L, "5", "4"));
+
+        List<LowStockAlertDto> alerts = monitor.alerts(1L, null);
+        assertEquals(1, alerts.size());
+        assertEquals(LowStockAlertDto.KindEnum.LOW, alerts.get(0).getKind());
+        assertEquals(0, new BigDecimal("5").compareTo(alerts.get(0).getQuantity()));
+
+        List<LowStockItemDto> low = monitor.lowStock(1L);
+        assertEquals(0, new BigDecimal("4").compareTo(low.get(0).getQuantity()));
+        assertNotNull(low.get(0).getSince());
+
+        ArgumentCaptor<LowStockAlertEvent> event = ArgumentCaptor.forClass(LowStockAlertEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1L, event.getValue().organizationId());
+    }
+
+    @Test
+    void onInventoryChanged_AlertsWhenRestocked() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L))
+                .thenReturn(List.of(level(10L, "Lager", "2", "5")));
+        monitor.lowStock(1L);
+
+        monitor.onInventoryChanged(change(10L, "2", "24"));
+
+        List<LowStockAlertDto> alerts = monitor.alerts(1L, null);
+        assertEquals(1, alerts.size());
+        assertEquals(LowStockAlertDto.KindEnum.RESTOCKED, alerts.get(0).getKind());
+        assertTrue(monitor.lowStock(1L).isEmpty());
+    }
+
+    @Test
+    void onInventoryChanged_IgnoresProductsWithoutThreshold() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L)).thenReturn(List.of());
+        monitor.lowStock(1L);
+
+        monitor.onInventoryChanged(change(10L, "3", "0"));
+
+        assertTrue(monitor.alerts(1L, null).isEmpty());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void onInventoryChanged_FirstChangeOfOrganization_Alerts() {
+        // Loaded after the change committed
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L))
+                .thenReturn(List.of(level(10L, "Lager", "4", "5")));
+
+        monitor.onInventoryChanged(change(10L, "6", "4"));
+
+        List<LowStockAlertDto> alerts = monitor.alerts(1L, null);
+        assertEquals(1, alerts.size());
+        assertEquals(LowStockAlertDto.KindEnum.LOW, alerts.get(0).getKind());
+        assertNotNull(monitor.lowStock(1L).get(0).getSince());
+    }
+
+    @Test
+    void onInventoryChanged_LoadsEachOrganizationOnce() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L))
+                .thenReturn(List.of(level(10L, "Lager", "1", "5")));
+
+        monitor.onInventoryChanged(change(10L, "3", "2"));
+        monitor.onInventoryChanged(change(10L, "2", "1"));
+
+        assertEquals(1, monitor.lowStock(1L).size());
+        verify(inventoryRepository, times(1)).findReorderLevelsByOrganizationId(1L);
+        verify(inventoryRepository, never()).findReorderLevelsByOrganizationId(2L);
+    }
+
+    @Test
+    void onInventoryChanged_ReloadsWhenProductsChange() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L))
+                .thenReturn(List.of())
+                .thenReturn(List.of(level(10L, "Lager", "0", "5")));
+        monitor.lowStock(1L);
+
+        monitor.onInventoryChanged(new InventoryChangedEvent(1L));
+
+        assertEquals(1, monitor.lowStock(1L).size());
+        assertTrue(monitor.alerts(1L, null).isEmpty());
+    }
+
+    @Test
+    void updateThreshold_AlertsWhenProductBecomesLow() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L)).thenReturn(List.of());
+        monitor.lowStock(1L);
+
+        monitor.updateThreshold(1L, 10L, "Lager", new BigDecimal("3"), new BigDecimal("5"));
+
+        assertEquals(LowStockAlertDto.KindEnum.LOW, monitor.alerts(1L, null).get(0).getKind());
+        assertEquals(1, monitor.lowStock(1L).size());
+
+        monitor.updateThreshold(1L, 10L, "Lager", new BigDecimal("3"), null);
+
+        assertTrue(monitor.lowStock(1L).isEmpty());
+    }
+
+    @Test
+    void alerts_KeepsMostRecentAfterSequence() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L))
+                .thenReturn(List.of(level(10L, "Lager", "8", "5")));
+        monitor.lowStock(1L);
+
+        for (int i = 0; i < LowStockMonitor.MAX_ALERTS + 10; i++) {
+            monitor.onInventoryChanged(i % 2 == 0 ? change(10L, "8", "1") : change(10L, "1", "8"));
+        }
+
+        List<LowStockAlertDto> alerts = monitor.alerts(1L, null);
+        assertEquals(LowStockMonitor.MAX_ALERTS, alerts.size());
+        for (int i = 1; i < alerts.size(); i++) {
+            assertTrue(alerts.get(i).getSequence() > alerts.get(i - 1).getSequence());
+        }
+
+        List<LowStockAlertDto> newer = monitor.alerts(1L, alerts.get(LowStockMonitor.MAX_ALERTS - 3).getSequence());
+        assertEquals(alerts.subList(LowStockMonitor.MAX_ALERTS - 2, LowStockMonitor.MAX_ALERTS), newer);
+    }
+
+    @Test
+    void alerts_SequenceKeepsGrowingAfterRestart() {
+        when(inventoryRepository.findReorderLevelsByOrganizationId(1L))
+                .thenReturn(List.of(level(10L, "Lager", "8", "5")));
+        monitor.onInventoryChanged(change(10L, "8", "1"));
+        Long before = monitor.alerts(1L, null).get(0).getSequence();
+
+        LowStockMonitor restarted = new LowStockMonitor(inventoryRepository, eventPublisher, Runnable::run);
+        restarted.onInventoryChanged(change(10L, "8", "1"));
+
+        assertEquals(1, restarted.alerts(1L, before).size());
+    }
+
+    private static ReorderLevelView level(Long productId, String name, String quantity, String threshold) {
+        return new ReorderLevelView(productId, name, new BigDecimal(quantity), new BigDecimal(threshold));
+    }
+
+    private static InventoryChangedEvent change(Long productId, String quantityBefore, String quantity) {
+        return new InventoryChangedEvent(1L, List.of(new InventoryChangedEvent.ProductChange(productId,
+                new BigDecimal(quantityBefore), new BigDecimal(quantity), BigDecimal.ONE)));
+    }
+}
@@ -29,6 +29,10 @@ class OrganizationServiceTest {
     private OrganizationRepository organizationRepository;
     @Mock
     private OrganizationMapper organizationMapper;
+    @Mock
+    private PriceBook priceBook;
+    @Mock
+    private ReferenceDataCache referenceDataCache;
 
     @InjectMocks
     private OrganizationService organizationService;
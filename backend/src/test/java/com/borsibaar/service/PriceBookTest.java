@@ -0,0 +1,207 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Product;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.ReferenceDataChangedEvent;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JpaTest
+@Import(PriceBook.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PriceBookTest {
+
+    @Autowired
+    private PriceBook priceBook;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private Long organizationId;
+    private Long productId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            organizationId = TestData.organization(entityManager, BigDecimal.ONE).getId();
+            Category category = TestData.category(entityManager, organizationId, "Beers", true);
+            Product product = TestData.product(entityManager, category, "Beer", BigDecimal.valueOf(5),
+                    BigDecimal.valueOf(7));
+            TestData.inventory(entityManager, product, BigDecimal.TEN);
+            productId = product.getId();
+        });
+    }
+
+    @Test
+    void raise_IsStagedUntilCommit() {
+        tx.executeWithoutResult(status -> {
+            Inventory inventory = lockInventory();
+            assertEquals(0, BigDecimal.valueOf(6).compareTo(sell(inventory)));
+            assertEquals(0, BigDecimal.valueOf(7).compareTo(sell(inventory)));
+            // Capped at the maximum price
+            assertEquals(0, BigDecimal.valueOf(7).compareTo(sell(inventory)));
+            assertEquals(0, BigDecimal.valueOf(7).compareTo(priceBook.quote(inventory)));
+
+            // Other threads still see the committed price
+            assertEquals(0, BigDecimal.valueOf(5).compareTo(quoteFromOtherThread()));
+        });
+
+        assertEquals(0, BigDecimal.valueOf(7).compareTo(quoteFromOtherThread()));
+    }
+
+    @Test
+    void raise_PricesFromLockedRowWhenBookIsBehind() {
+        priceBook.prices(organizationId);
+        // Another replica lowered the price; this book still holds 5
+        tx.executeWithoutResult(status -> lockInventory().setAdjustedPrice(BigDecimal.valueOf(3)));
+
+        tx.executeWithoutResult(status -> {
+            Inventory inventory = lockInventory();
+            assertEquals(0, BigDecimal.valueOf(3).compareTo(priceBook.quote(inventory)));
+            assertEquals(0, BigDecimal.valueOf(4).compareTo(sell(inventory)));
+        });
+
+        assertEquals(0, BigDecimal.valueOf(4).compareTo(quoteFromOtherThread()));
+    }
+
+    @Test
+    void quote_CorrectsBookFromLockedRow() {
+        priceBook.prices(organizationId);
+        tx.executeWithoutResult(status -> lockInventory().setAdjustedPrice(BigDecimal.valueOf(3)));
+
+        tx.executeWithoutResult(status -> priceBook.quote(lockInventory()));
+
+        assertEquals(0, BigDecimal.valueOf(3).compareTo(quoteFromOtherThread()));
+    }
+
+    @Test
+    void rolledBackChanges_AreDiscarded() {
+        tx.executeWithoutResult(status -> {
+            priceBook.lower(lockInventory());
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(priceBook.quote(organizationId, productId).orElseThrow()));
+    }
+
+    @Test
+    void prices_AreReadFromMemoryAfterFirstLoad() {
+        priceBook.prices(organizationId);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, BigDecimal.valueOf(5).compareTo(priceBook.prices(organizationId).get(productId)));
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void setById_IsStagedUntilCommit() {
+        priceBook.prices(organizationId);
+
+        tx.executeWithoutResult(status -> {
+            lockInventory();
+            priceBook.set(organizationId, productId, BigDecimal.valueOf(4));
+            assertEquals(0, BigDecimal.valueOf(5).compareTo(quoteFromOtherThread()));
+        });
+
+        assertEquals(0, BigDecimal.valueOf(4).compareTo(quoteFromOtherThread()));
+    }
+
+    @Test
+    void setById_UnknownProduct_IsReadFromItsRowAfterCommit() {
+        tx.executeWithoutResult(status -> {
+            Inventory inventory = lockInventory();
+            inventory.setAdjustedPrice(BigDecimal.valueOf(4));
+            priceBook.set(organizationId, productId, BigDecimal.valueOf(4));
+            // Seeded by another reader before the commit
+            assertEquals(0, BigDecimal.valueOf(5).compareTo(quoteFromOtherThread()));
+        });
+
+        assertEquals(0, BigDecimal.valueOf(4).compareTo(quoteFromOtherThread()));
+    }
+
+    @Test
+    void remoteChange_RereadsProductFromItsRow() {
+        priceBook.prices(organizationId);
+        // Committed through another replica
+        tx.executeWithoutResult(status -> lockInventory().setAdjustedPrice(BigDecimal.valueOf(3)));
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(quoteFromOtherThread()));
+
+        priceBook.onInventoryChanged(InventoryChangedEvent.remote(organizationId, List.of(
+                new InventoryChangedEvent.ProductChange(productId, BigDecimal.TEN, BigDecimal.TEN,
+                        BigDecimal.valueOf(3)))));
+
+        assertEquals(0, BigDecimal.valueOf(3).compareTo(quoteFromOtherThread()));
+    }
+
+    @Test
+    void remoteOrganizationChange_RereadsOrganization() {
+        priceBook.prices(organizationId);
+        tx.executeWithoutResult(status -> lockInventory().setAdjustedPrice(BigDecimal.valueOf(3)));
+
+        priceBook.onReferenceDataChanged(
+                ReferenceDataChangedEvent.remote(ReferenceDataChangedEvent.Kind.ORGANIZATION, organizationId));
+
+        assertEquals(0, BigDecimal.valueOf(3).compareTo(quoteFromOtherThread()));
+    }
+
+    @Test
+    void localChange_KeepsBook() {
+        priceBook.prices(organizationId);
+        tx.executeWithoutResult(status -> lockInventory().setAdjustedPrice(BigDecimal.valueOf(3)));
+
+        priceBook.onInventoryChanged(new InventoryChangedEvent(organizationId));
+
+        assertEquals(0, BigDecimal.valueOf(5).compareTo(quoteFromOtherThread()));
+    }
+
+    // Moves the price like a sale does, writing it back to the locked row
+    private BigDecimal sell(Inventory inventory) {
+        BigDecimal price = priceBook.raise(inventory);
+        inventory.setAdjustedPrice(price);
+        return price;
+    }
+
+    private Inventory lockInventory() {
+        return inventoryRepository.findAllForSale(organizationId, List.of(productId)).get(0);
+    }
+
+    private BigDecimal quoteFromOtherThread() {
+        return CompletableFuture.supplyAsync(() -> priceBook.quote(organizationId, productId).orElseThrow()).join();
+    }
+}
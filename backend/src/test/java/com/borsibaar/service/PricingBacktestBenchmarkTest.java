@@ -0,0 +1,102 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Product;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Replays a long night of sales through {@link PricingBacktestService}.
+ * <p>
+ * Opt-in, as seeding takes a while:
+ * {@code mvn test -Dtest=PricingBacktestBenchmarkTest -Dbenchmark=true [-Dbenchmark.transactions=3000000]}
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@JpaTest
+@Import(PricingBacktestService.class)
+class PricingBacktestBenchmarkTest {
+
+    private static final int PRODUCTS = 40;
+    private static final int BATCH = 10_000;
+    private static final Instant FROM = Instant.parse("2026-01-09T18:00:00Z");
+    private static final Duration NIGHT = Duration.ofHours(12);
+
+    @Autowired
+    private PricingBacktestService pricingBacktestService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void run_MillionsOfSaleLines() {
+        int transactions = Integer.getInteger("benchmark.transactions", 1_000_000);
+        Long organizationId = seed(transactions);
+
+        long start = System.nanoTime();
+        PricingBacktestReport report = pricingBacktestService.run(new PricingBacktestService.Scenario(
+                organizationId, FROM, FROM.plus(NIGHT), new BigDecimal("0.20"), new BigDecimal("0.10"),
+                Duration.ofSeconds(30)));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        System.out.printf("%n%,d sale lines replayed in %,d ms, revenue %s (recorded %s)%n%n",
+                report.saleLines(), millis, report.revenue(), report.recordedRevenue());
+        assertEquals(transactions, report.saleLines());
+        assertEquals(PRODUCTS, report.products().size());
+    }
+
+    private Long seed(int transactions) {
+        Long organizationId = TestData.organization(entityManager, BigDecimal.valueOf(0.5)).getId();
+        Category category = TestData.category(entityManager, organizationId, "Drinks", true);
+
+        List<Long> inventoryIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = TestData.product(entityManager, category, "Drink " + i, BigDecimal.valueOf(5),
+                    BigDecimal.valueOf(9));
+            product.setMinPrice(BigDecimal.valueOf(3));
+            inventoryIds.add(TestData.inventory(entityManager, product, BigDecimal.valueOf(1_000_000), null).getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Lines spread evenly over the night, in time order like the ledger
+        Random random = new Random(42);
+        long step = NIGHT.toMillis() / transactions;
+        List<Object[]> lines = new ArrayList<>(BATCH);
+        for (int i = 0; i < transactions; i++) {
+            BigDecimal price = BigDecimal.valueOf(300 + random.nextInt(600), 2);
+            lines.add(new Object[] {1_000_000L + i, inventoryIds.get(random.nextInt(PRODUCTS)),
+                    BigDecimal.valueOf(-1 - random.nextInt(3)), price, price,
+                    Timestamp.from(FROM.plusMillis(i * step))});
+            if (lines.size() >= BATCH || i == transactions - 1) {
+                jdbcTemplate.batchUpdate("""
+                        INSERT INTO inventory_transactions (id, inventory_id, transaction_type, quantity_change,
+                                                            quantity_after, price_before, price_after, created_at)
+                        VALUES (?, ?, 'SALE', ?, 0, ?, ?, ?)
+                        """, lines);
+                lines.clear();
+            }
+        }
+        return organizationId;
+    }
+}
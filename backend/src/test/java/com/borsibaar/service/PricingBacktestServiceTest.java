@@ -0,0 +1,135 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Product;
+import com.borsibaar.exception.BadRequestException;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@JpaTest
+@Import(PricingBacktestService.class)
+class PricingBacktestServiceTest {
+
+    private static final Instant FROM = Instant.parse("2026-01-09T20:00:00Z");
+    private static final Instant TO = FROM.plus(Duration.ofMinutes(10));
+
+    @Autowired
+    private PricingBacktestService pricingBacktestService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long organizationId;
+    private Long lagerInventoryId;
+    private Long ciderInventoryId;
+    private Long lagerId;
+    private Long ciderId;
+    private long transactionId = 1_000;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, BigDecimal.ONE).getId();
+        Category category = TestData.category(entityManager, organizationId, "Beer", true);
+
+        Inventory lager = inventory(category, "Lager", "4.00", "3.00");
+        Inventory cider = inventory(category, "Cider", "5.00", null);
+        entityManager.flush();
+        lagerInventoryId = lager.getId();
+        lagerId = lager.getProduct().getId();
+        ciderInventoryId = cider.getId();
+        ciderId = cider.getProduct().getId();
+    }
+
+    @Test
+    void run_ReplaysSalesAndTicksWithScenarioSteps() {
+        sale(lagerInventoryId, 2, "4.00", 10);
+        sale(ciderInventoryId, 1, "5.00", 20);
+        sale(lagerInventoryId, 1, "5.00", 70);
+        // Quiet for a few ticks, then one more sale
+        sale(lagerInventoryId, 1, "4.00", 310);
+        // Outside the window
+        sale(lagerInventoryId, 1, "9.00", 700);
+
+        PricingBacktestReport report = pricingBacktestService.run(new PricingBacktestService.Scenario(
+                organizationId, FROM, TO, new BigDecimal("0.50"), new BigDecimal("0.25"), Duration.ofMinutes(1)));
+
+        assertEquals(4, report.saleLines());
+        assertEquals(0, new BigDecimal("22.50").compareTo(report.revenue()));
+        assertEquals(0, new BigDecimal("22.00").compareTo(report.recordedRevenue()));
+
+        PricingBacktestReport.ProductResult lager = report.products().get(0);
+        assertEquals(lagerId, lager.productId());
+        assertEquals(0, new BigDecimal("17.50").compareTo(lager.revenue()));
+        assertEquals(0, new BigDecimal("5.50").compareTo(lager.closePrice()));
+        assertPath(lager, "4.00", "4.50", "5.00", "5.50");
+
+        // Cider sold once, then dropped at every tick the organization sold something
+        PricingBacktestReport.ProductResult cider = report.products().get(1);
+        assertEquals(ciderId, cider.productId());
+        assertEquals(0, new BigDecimal("5.00").compareTo(cider.revenue()));
+        assertEquals(0, new BigDecimal("5.00").compareTo(cider.lowPrice()));
+        assertEquals(0, new BigDecimal("5.50").compareTo(cider.highPrice()));
+        assertPath(cider, "5.00", "5.50", "5.25", "5.00");
+    }
+
+    @Test
+    void run_AsConfigured_UsesOrganizationSteps() {
+        sale(lagerInventoryId, 1, "4.00", 10);
+        sale(lagerInventoryId, 1, "5.00", 20);
+
+        PricingBacktestReport report = pricingBacktestService.run(
+                PricingBacktestService.Scenario.asConfigured(organizationId, FROM, TO));
+
+        assertEquals(0, BigDecimal.ONE.compareTo(report.increaseStep()));
+        assertEquals(Duration.ofSeconds(60), report.tickInterval());
+        assertEquals(0, new BigDecimal("9.00").compareTo(report.revenue()));
+        assertEquals(1, report.products().size());
+    }
+
+    @Test
+    void run_EmptyWindow_IsRejected() {
+        assertThrows(BadRequestException.class, () -> pricingBacktestService.run(
+                PricingBacktestService.Scenario.asConfigured(organizationId, TO, FROM)));
+    }
+
+    private void assertPath(PricingBacktestReport.ProductResult product, String... prices) {
+        assertEquals(prices.length, product.path().size());
+        for (int i = 0; i < prices.length; i++) {
+            assertEquals(0, new BigDecimal(prices[i]).compareTo(product.path().get(i).price()));
+        }
+    }
+
+    private Inventory inventory(Category category, String name, String basePrice, String minPrice) {
+        Product product = TestData.product(entityManager, category, name, new BigDecimal(basePrice), null);
+        product.setCategory(category);
+        product.setMinPrice(minPrice != null ? new BigDecimal(minPrice) : null);
+        return TestData.inventory(entityManager, product, BigDecimal.valueOf(100), null);
+    }
+
+    private void sale(Long inventoryId, int quantity, String price, int secondsAfterFrom) {
+        jdbcTemplate.update("""
+                INSERT INTO inventory_transactions (id, inventory_id, transaction_type, quantity_change,
+                                                    quantity_after, price_before, price_after, created_at)
+                VALUES (?, ?, 'SALE', ?, 0, ?, ?, ?)
+                """, ++transactionId, inventoryId, -quantity, new BigDecimal(price), new BigDecimal(price),
+                Timestamp.from(FROM.plusSeconds(secondsAfterFrom)));
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -32,6 +33,10 @@ class ProductServiceTest {
     @Mock private UserRepository userRepository;
     @Mock private InventoryRepository inventoryRepository;
     @Mock private InventoryTransactionRepository inventoryTransactionRepository;
+    @Mock private PriceBook priceBook;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Mock private ReferenceDataCache referenceDataCache;
+    @Mock private LowStockMonitor lowStockMonitor;
 
     @InjectMocks private ProductService productService;
 
@@ -107,6 +112,34 @@ class ProductServiceTest {
         assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
     }
 
+    @Test
+    void setReorderThreshold_UpdatesProductAndMonitor() {
+        Product product = new Product(); product.setId(44L); product.setOrganizationId(1L); product.setName("Beer");
+        product.setActive(true);
+        when(productRepository.findWithCategoryById(44L)).thenReturn(Optional.of(product));
+        Inventory inventory = new Inventory(1L, product, BigDecimal.valueOf(3), BigDecimal.valueOf(5));
+        when(inventoryRepository.findByOrganizationIdAndProductId(1L, 44L)).thenReturn(Optional.of(inventory));
+        when(productMapper.toResponse(product)).thenReturn(new ProductResponseDto().id(44L));
+
+        productService.setReorderThreshold(44L, BigDecimal.valueOf(5), 1L);
+
+        assertEquals(BigDecimal.valueOf(5), product.getReorderThreshold());
+        verify(productRepository).save(product);
+        verify(referenceDataCache).evictProduct(44L);
+        verify(lowStockMonitor).updateThreshold(1L, 44L, "Beer", BigDecimal.valueOf(3), BigDecimal.valueOf(5));
+    }
+
+    @Test
+    void setReorderThreshold_OtherOrganization_ThrowsForbidden() {
+        Product product = new Product(); product.setId(44L); product.setOrganizationId(2L); product.setActive(true);
+        when(productRepository.findWithCategoryById(44L)).thenReturn(Optional.of(product));
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> productService.setReorderThreshold(44L, BigDecimal.ONE, 1L));
+        assertEquals(HttpStatus.FORBIDDEN, ex.getStatusCode());
+        verifyNoInteractions(lowStockMonitor);
+    }
+
     @Test
     void delete_MarksInactive() {
         Product product = new Product(); product.setId(44L); product.setActive(true);
@@ -114,6 +147,7 @@ class ProductServiceTest {
         productService.delete(44L);
         assertFalse(product.isActive());
         verify(productRepository).save(product);
+        verify(referenceDataCache).evictProduct(44L);
     }
 
     @Test
@@ -0,0 +1,169 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.CategoryRequestDto;
+import com.borsibaar.dto.CategoryResponseDto;
+import com.borsibaar.entity.Organization;
+import com.borsibaar.event.ReferenceDataChangedEvent;
+import com.borsibaar.mapper.CategoryMapperImpl;
+import com.borsibaar.repository.CategoryRepository;
+import com.borsibaar.repository.OrganizationRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@JpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+        "spring.jpa.properties.hibernate.cache.region.factory_class=jcache",
+        "spring.jpa.properties.hibernate.javax.cache.provider=com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+        "spring.jpa.properties.hibernate.javax.cache.uri=hibernate-cache.conf"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({CategoryService.class, ReferenceDataCache.class, CategoryMapperImpl.class})
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private OrganizationRepository organizationRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private TransactionTemplate transactionTemplate;
+    private Long organizationId;
+    private Long categoryId;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            organizationId = TestData.organization(entityManager, BigDecimal.ONE).getId();
+            categoryId = TestData.category(entityManager, organizationId, "Beers", true).getId();
+        });
+        // Start every test from a cold cache
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            categoryRepository.deleteAll();
+            organizationRepository.deleteAll();
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void organization_SecondReadIsServedFromCache() {
+        Statistics statistics = statistics();
+
+        readOrganization();
+        readOrganization();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getSecondLevelCacheHitCount());
+    }
+
+    @Test
+    void evictOrganization_EvictsOnceTheTransactionCommits() {
+        readOrganization();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            referenceDataCache.evictOrganization(organizationId);
+            assertTrue(entityManagerFactory.getCache().contains(Organization.class, organizationId));
+        });
+
+        assertFalse(entityManagerFactory.getCache().contains(Organization.class, organizationId));
+    }
+
+    @Test
+    void categories_QueryIsCachedUntilACategoryIsAdded() {
+        Statistics statistics = statistics();
+
+        categoryService.getAllByOrg(organizationId);
+        List<CategoryResponseDto> cached = categoryService.getAllByOrg(organizationId);
+
+        assertEquals(1, cached.size());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+
+        categoryService.create(new CategoryRequestDto().name("Ciders"), organizationId);
+
+        assertEquals(2, categoryService.getAllByOrg(organizationId).size());
+    }
+
+    @Test
+    void evictCategory_DropsRowsChangedOutsideHibernate() {
+        assertEquals("Beers", readCategoryName());
+
+        new JdbcTemplate(dataSource).update("UPDATE categories SET name = 'Lagers' WHERE id = ?", categoryId);
+        assertEquals("Beers", readCategoryName());
+
+        referenceDataCache.evictCategory(categoryId);
+        assertEquals("Lagers", readCategoryName());
+    }
+
+    @Test
+    void remoteChange_EvictsRightAway() {
+        readOrganization();
+
+        // Written through another replica
+        referenceDataCache.onReferenceDataChanged(
+                ReferenceDataChangedEvent.remote(ReferenceDataChangedEvent.Kind.ORGANIZATION, organizationId));
+
+        assertFalse(entityManagerFactory.getCache().contains(Organization.class, organizationId));
+    }
+
+    private void readOrganization() {
+        transactionTemplate.executeWithoutResult(status -> organizationRepository.findById(organizationId).orElseThrow());
+    }
+
+    private String readCategoryName() {
+        return transactionTemplate.execute(status -> categoryService.getByIdAndOrg(categoryId, organizationId).getName());
+    }
+
+    private Statistics statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,185 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleBatchEntryDto;
+import com.borsibaar.dto.SaleBatchResponseDto;
+import com.borsibaar.dto.SaleBatchResultDto;
+import com.borsibaar.dto.SaleItemRequestDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Product;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.SalesTestConfiguration;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@JpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true",
+        "app.sales.batch.chunk-size=10"
+})
+@Import({SaleBatchService.class, SalesTestConfiguration.class})
+class SaleBatchServiceTest {
+
+    @Autowired
+    private SaleBatchService saleBatchService;
+
+    @MockitoBean
+    private SaleIdempotencyStore saleIdempotencyStore;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final UUID userId = UUID.randomUUID();
+    private final List<Inventory> inventories = new ArrayList<>();
+    private Long organizationId;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, BigDecimal.valueOf(0.5)).getId();
+        Category category = TestData.category(entityManager, organizationId, "Beers", true);
+
+        for (int i = 0; i < 3; i++) {
+            Product product = TestData.product(entityManager, category, "Beer " + i, BigDecimal.valueOf(5),
+                    BigDecimal.valueOf(100));
+            inventories.add(TestData.inventory(entityManager, product, BigDecimal.TEN));
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void processBatch_RejectedSalesAreReportedAndDoNotAffectStock() {
+        Long beer = inventories.get(0).getProduct().getId();
+
+        SaleBatchResponseDto response = saleBatchService.processBatch(List.of(
+                entry(null, item(beer, 1)),
+                entry(null, item(beer, 20)),
+                entry(null, item(beer, 1), item(999_999L, 1)),
+                entry(null, item(beer, 9))
+        ), userId, organizationId);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(2, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+        assertEquals(List.of(SaleBatchResultDto.StatusEnum.CREATED, SaleBatchResultDto.StatusEnum.FAILED,
+                        SaleBatchResultDto.StatusEnum.FAILED, SaleBatchResultDto.StatusEnum.CREATED),
+                response.getResults().stream().map(SaleBatchResultDto::getStatus).toList());
+        assertEquals(400, response.getResults().get(1).getErrorStatus());
+        assertEquals(404, response.getResults().get(2).getErrorStatus());
+
+        // Only the two accepted sales moved stock and price, the half-applied third one was undone
+        Inventory inventory = inventoryRepository.findById(inventories.get(0).getId()).orElseThrow();
+        assertEquals(0, inventory.getQuantity().signum());
+        assertEquals(0, new BigDecimal("6").compareTo(inventory.getAdjustedPrice()));
+        assertEquals(2, inventoryTransactionRepository.findByInventoryIdOrderByCreatedAtDesc(inventory.getId()).size());
+    }
+
+    @Test
+    void processBatch_DuplicateKeyInBatch_IsReplayed() {
+        Long beer = inventories.get(1).getProduct().getId();
+
+        SaleBatchResponseDto response = saleBatchService.processBatch(List.of(
+                entry("offline-1", item(beer, 1)),
+                entry("offline-1", item(beer, 1))
+        ), userId, organizationId);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(SaleBatchResultDto.StatusEnum.REPLAYED, response.getResults().get(1).getStatus());
+        assertEquals(response.getResults().get(0).getSale().getSaleId(),
+                response.getResults().get(1).getSale().getSaleId());
+        assertEquals(0, BigDecimal.valueOf(9).compareTo(
+                inventoryRepository.findById(inventories.get(1).getId()).orElseThrow().getQuantity()));
+        verify(saleIdempotencyStore, times(1)).record(eq(organizationId), eq("offline-1"), any(), any());
+    }
+
+    @Test
+    void processBatch_KeyReusedForDifferentSaleInBatch_Fails() {
+        Long beer = inventories.get(2).getProduct().getId();
+        when(saleIdempotencyStore.requestHash(any()))
+                .thenAnswer(invocation -> invocation.<SaleRequestDto>getArgument(0).getItems().toString());
+
+        SaleBatchResponseDto response = saleBatchService.processBatch(List.of(
+                entry("offline-2", item(beer, 1)),
+                entry("offline-2", item(beer, 2))
+        ), userId, organizationId);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(SaleBatchResultDto.StatusEnum.CREATED, response.getResults().get(0).getStatus());
+        assertEquals(SaleBatchResultDto.StatusEnum.FAILED, response.getResults().get(1).getStatus());
+        assertEquals(422, response.getResults().get(1).getErrorStatus());
+        assertEquals(0, BigDecimal.valueOf(9).compareTo(
+                inventoryRepository.findById(inventories.get(2).getId()).orElseThrow().getQuantity()));
+    }
+
+    @Test
+    void processBatch_StatementsScaleWithChunksNotSales() {
+        List<Long> productIds = inventories.stream().map(inventory -> inventory.getProduct().getId()).toList();
+        List<SaleBatchEntryDto> entries = IntStream.range(0, 25)
+                .mapToObj(i -> entry(null, item(productIds.get(i % 3), 1)))
+                .toList();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        SaleBatchResponseDto response = saleBatchService.processBatch(entries, userId, organizationId);
+        entityManager.flush();
+
+        assertEquals(25, response.getSucceeded());
+        assertEquals(IntStream.range(0, 25).boxed().toList(),
+                response.getResults().stream().map(SaleBatchResultDto::getIndex).toList());
+        // Three chunks of two selects, one batched update and three batched inserts each
+        // (the first chunk creates the rollup rows, later ones update them), plus the
+        // sequence calls that fill the sale, ledger and rollup id pools
+        assertTrue(statistics.getPrepareStatementCount() <= 24,
+                "Prepared " + statistics.getPrepareStatementCount() + " statements");
+    }
+
+    private static SaleBatchEntryDto entry(String idempotencyKey, SaleItemRequestDto... items) {
+        return new SaleBatchEntryDto()
+                .idempotencyKey(idempotencyKey)
+                .sale(new SaleRequestDto().items(List.of(items)));
+    }
+
+    private static SaleItemRequestDto item(Long productId, int quantity) {
+        return new SaleItemRequestDto().productId(productId).quantity(BigDecimal.valueOf(quantity));
+    }
+}
@@ -0,0 +1,326 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleBatchResultDto;
+import com.borsibaar.dto.SaleItemRequestDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.dto.SaleResponseDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Product;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.SalesTestConfiguration;
+import com.borsibaar.testing.TestData;
+import com.borsibaar.util.TransactionUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@JpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true"
+})
+@Import({SaleGroupCommitter.class, SaleBatchService.class, SalesTestConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SaleGroupCommitterTest {
+
+    private static final int SALES = 400;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private SaleGroupCommitter saleGroupCommitter;
+
+    @MockitoBean
+    private SaleIdempotencyStore saleIdempotencyStore;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID userId = UUID.randomUUID();
+    private final List<Inventory> inventories = new ArrayList<>();
+    private Long organizationId;
+
+    @BeforeEach
+    void setUp() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            organizationId = TestData.organization(entityManager, BigDecimal.valueOf(0.01)).getId();
+            Category category = TestData.category(entityManager, organizationId, "Beers", true);
+            for (int i = 0; i < 4; i++) {
+                Product product = TestData.product(entityManager, category, "Beer " + i, BigDecimal.valueOf(5),
+                        BigDecimal.valueOf(100));
+                inventories.add(TestData.inventory(entityManager, product, BigDecimal.valueOf(1000)));
+            }
+        });
+    }
+
+    @Test
+    void submit_ConcurrentSales_ShareCommits() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<SaleBatchResultDto>> futures = new ArrayList<>();
+        for (int i = 0; i < SALES; i++) {
+            Long productId = inventories.get(i % inventories.size()).getProduct().getId();
+            futures.add(executor.submit(() -> {
+                start.await();
+                return saleGroupCommitter.submit(sale(productId, 1), userId, organizationId, null);
+            }));
+        }
+        start.countDown();
+        for (Future<SaleBatchResultDto> future : futures) {
+            assertEquals(SaleBatchResultDto.StatusEnum.CREATED, future.get().getStatus());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Every sale is acknowledged only after its group committed
+        for (Inventory inventory : inventories) {
+            Inventory stored = inventoryRepository.findById(inventory.getId()).orElseThrow();
+            assertEquals(0, BigDecimal.valueOf(900).compareTo(stored.getQuantity()));
+            assertEquals(SALES / inventories.size(),
+                    inventoryTransactionRepository.findByInventoryIdOrderByCreatedAtDesc(inventory.getId()).size());
+        }
+        assertTrue(statistics.getSuccessfulTransactionCount() < SALES / 2,
+                "Committed " + statistics.getSuccessfulTransactionCount() + " transactions for " + SALES + " sales");
+    }
+
+    @Test
+    void submit_RejectedSale_ThrowsForItsRequestOnly() {
+        Long beer = inventories.get(0).getProduct().getId();
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> saleGroupCommitter.submit(sale(beer, 5000), userId, organizationId, null));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+
+        SaleBatchResultDto result = saleGroupCommitter.submit(sale(beer, 2), userId, organizationId, null);
+        assertEquals(SaleBatchResultDto.StatusEnum.CREATED, result.getStatus());
+        assertEquals(0, BigDecimal.valueOf(998).compareTo(
+                inventoryRepository.findById(inventories.get(0).getId()).orElseThrow().getQuantity()));
+    }
+
+    @Test
+    void submit_NotCommittedInTime_AnswersServiceUnavailable() {
+        SaleBatchService stuck = mock(SaleBatchService.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(stuck.applyChunk(anyList(), anyInt(), anyLong())).thenAnswer(invocation -> {
+            release.await();
+            return List.of(created());
+        });
+        SaleGroupCommitter committer = committer(stuck);
+        try {
+            ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                    () -> committer.submit(sale(1L, 1), userId, organizationId, null));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+        } finally {
+            release.countDown();
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void submit_WriterError_FailsGroupAndKeepsWriter() {
+        SaleBatchService failing = mock(SaleBatchService.class);
+        when(failing.applyChunk(anyList(), anyInt(), anyLong()))
+                .thenThrow(new StackOverflowError())
+                .thenReturn(List.of(created()));
+        SaleGroupCommitter committer = committer(failing);
+        try {
+            CompletionException ex = assertThrows(CompletionException.class,
+                    () -> committer.submit(sale(1L, 1), userId, organizationId, null));
+            assertTrue(ex.getCause() instanceof StackOverflowError);
+
+            assertEquals(SaleBatchResultDto.StatusEnum.CREATED,
+                    committer.submit(sale(1L, 1), userId, organizationId, null).getStatus());
+        } finally {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void submit_GroupRolledBack_CommitsHalvesAndRejectsOnlyTheBadSale() throws Exception {
+        SaleBatchService flaky = mock(SaleBatchService.class);
+        CountDownLatch release = new CountDownLatch(1);
+        when(flaky.applyChunk(anyList(), anyInt(), anyLong())).thenAnswer(invocation -> {
+            List<SaleBatchService.SaleCommand> chunk = invocation.getArgument(0);
+            if (hasKey(chunk, "first")) {
+                release.await();
+            }
+            if (hasKey(chunk, "bad")) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            return chunk.stream().map(command -> created()).toList();
+        });
+        SaleGroupCommitter committer = new SaleGroupCommitter(flaky, mock(SaleIdempotencyStore.class),
+                transactionManager, 50, 1, Duration.ofSeconds(5));
+        try {
+            Thread first = new Thread(() -> committer.submit(sale(1L, 1), userId, organizationId, "first"));
+            first.start();
+            // Queued behind the first sale, so they are committed as one group
+            List<Future<SaleBatchResultDto>> results = new ArrayList<>();
+            List<Thread> waiting = new ArrayList<>();
+            for (String key : List.of("a", "bad", "c")) {
+                FutureTask<SaleBatchResultDto> task = new FutureTask<>(
+                        () -> committer.submit(sale(1L, 1), userId, organizationId, key));
+                results.add(task);
+                waiting.add(new Thread(task));
+            }
+            waiting.forEach(Thread::start);
+            for (Thread thread : waiting) {
+                while (thread.getState() != Thread.State.WAITING) {
+                    Thread.onSpinWait();
+                }
+            }
+            release.countDown();
+
+            assertEquals(SaleBatchResultDto.StatusEnum.CREATED, results.get(0).get().getStatus());
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> results.get(1).get());
+            assertEquals(HttpStatus.CONFLICT, ((ResponseStatusException) ex.getCause()).getStatusCode());
+            assertEquals(SaleBatchResultDto.StatusEnum.CREATED, results.get(2).get().getStatus());
+        } finally {
+            release.countDown();
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void submit_LostIdempotencyKeyRace_ReplaysStoredSale() {
+        SaleBatchService racing = mock(SaleBatchService.class);
+        when(racing.applyChunk(anyList(), anyInt(), anyLong()))
+                .thenThrow(new DataIntegrityViolationException("duplicate key"));
+        SaleIdempotencyStore store = mock(SaleIdempotencyStore.class);
+        SaleResponseDto stored = new SaleResponseDto().saleId("SALE-1");
+        when(store.find(eq(organizationId), eq("key-1"), any())).thenReturn(Optional.of(stored));
+        SaleGroupCommitter committer = new SaleGroupCommitter(racing, store, transactionManager, 50, 1,
+                Duration.ofSeconds(5));
+        try {
+            SaleBatchResultDto result = committer.submit(sale(1L, 1), userId, organizationId, "key-1");
+
+            assertEquals(SaleBatchResultDto.StatusEnum.REPLAYED, result.getStatus());
+            assertEquals("SALE-1", result.getSale().getSaleId());
+        } finally {
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void submit_AnsweredBeforeAfterCommitWorkRuns() throws Exception {
+        SaleBatchService listening = mock(SaleBatchService.class);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicReference<String> thread = new AtomicReference<>();
+        when(listening.applyChunk(anyList(), anyInt(), anyLong())).thenAnswer(invocation -> {
+            TransactionUtils.afterCommit(() -> {
+                thread.set(Thread.currentThread().getName());
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                ran.countDown();
+            });
+            return List.of(created());
+        });
+        SaleGroupCommitter committer = new SaleGroupCommitter(listening, mock(SaleIdempotencyStore.class),
+                transactionManager, 50, 1, Duration.ofSeconds(5));
+        try {
+            // The after-commit work is still blocked when the request is answered
+            assertEquals(SaleBatchResultDto.StatusEnum.CREATED,
+                    committer.submit(sale(1L, 1), userId, organizationId, null).getStatus());
+            assertEquals(SaleBatchResultDto.StatusEnum.CREATED,
+                    committer.submit(sale(1L, 1), userId, organizationId, null).getStatus());
+
+            release.countDown();
+            assertTrue(ran.await(5, TimeUnit.SECONDS));
+            assertTrue(thread.get().startsWith("sale-group-dispatch-"), thread.get());
+        } finally {
+            release.countDown();
+            committer.shutdown();
+        }
+    }
+
+    @Test
+    void submit_AfterShutdown_IsRejected() {
+        SaleGroupCommitter committer = committer(mock(SaleBatchService.class));
+        committer.shutdown();
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> committer.submit(sale(1L, 1), userId, organizationId, null));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatusCode());
+    }
+
+    private SaleGroupCommitter committer(SaleBatchService saleBatchService) {
+        return new SaleGroupCommitter(saleBatchService, mock(SaleIdempotencyStore.class), transactionManager, 50, 1,
+                Duration.ofMillis(200));
+    }
+
+    private static boolean hasKey(List<SaleBatchService.SaleCommand> chunk, String key) {
+        return chunk.stream().anyMatch(command -> key.equals(command.idempotencyKey()));
+    }
+
+    private static SaleBatchResultDto created() {
+        return new SaleBatchResultDto().status(SaleBatchResultDto.StatusEnum.CREATED);
+    }
+
+    private static SaleRequestDto sale(Long productId, int quantity) {
+        return new SaleRequestDto().items(List.of(
+                new SaleItemRequestDto().productId(productId).quantity(BigDecimal.valueOf(quantity))));
+    }
+}
@@ -0,0 +1,121 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleItemRequestDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.dto.SaleResponseDto;
+import com.borsibaar.entity.SaleIdempotencyKey;
+import com.borsibaar.repository.SaleIdempotencyKeyRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SaleIdempotencyStoreTest {
+
+    @Mock private SaleIdempotencyKeyRepository repository;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private SaleIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new SaleIdempotencyStore(repository, objectMapper, 100, Duration.ofMinutes(10), Duration.ofHours(24));
+    }
+
+    @Test
+    void record_SavesRowAndServesFromCache() {
+        SaleResponseDto response = response("SALE-1");
+
+        store.record(1L, "key-1", request(1), response);
+        Optional<SaleResponseDto> found = store.find(1L, "key-1", request(1));
+
+        ArgumentCaptor<SaleIdempotencyKey> captor = ArgumentCaptor.forClass(SaleIdempotencyKey.class);
+        verify(repository).save(captor.capture());
+        assertEquals("SALE-1", captor.getValue().getSaleReference());
+        assertEquals(store.requestHash(request(1)), captor.getValue().getRequestHash());
+        assertEquals("SALE-1", found.orElseThrow().getSaleId());
+        verify(repository, never()).findByOrganizationIdAndIdempotencyKey(any(), any());
+    }
+
+    @Test
+    void find_LoadsFromDatabaseOnce() throws Exception {
+        SaleIdempotencyKey row = row(Instant.now(), response("SALE-2"));
+        row.setRequestHash(store.requestHash(request(1)));
+        when(repository.findByOrganizationIdAndIdempotencyKey(1L, "key-2")).thenReturn(Optional.of(row));
+
+        assertEquals("SALE-2", store.find(1L, "key-2", request(1)).orElseThrow().getSaleId());
+        assertEquals("SALE-2", store.find(1L, "key-2", request(1)).orElseThrow().getSaleId());
+
+        verify(repository, times(1)).findByOrganizationIdAndIdempotencyKey(1L, "key-2");
+    }
+
+    @Test
+    void find_KeyOlderThanRetention_IsIgnored() throws Exception {
+        SaleIdempotencyKey row = row(Instant.now().minus(Duration.ofHours(25)), response("SALE-3"));
+        when(repository.findByOrganizationIdAndIdempotencyKey(1L, "key-3")).thenReturn(Optional.of(row));
+
+        assertTrue(store.find(1L, "key-3", request(1)).isEmpty());
+    }
+
+    @Test
+    void find_SameKeyOtherOrganization_IsNotShared() {
+        store.record(1L, "key-4", request(1), response("SALE-4"));
+        when(repository.findByOrganizationIdAndIdempotencyKey(2L, "key-4")).thenReturn(Optional.empty());
+
+        assertTrue(store.find(2L, "key-4", request(1)).isEmpty());
+    }
+
+    @Test
+    void find_KeyUsedForDifferentRequest_Throws422() {
+        store.record(1L, "key-5", request(1), response("SALE-5"));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> store.find(1L, "key-5", request(2)));
+        assertEquals(422, e.getStatusCode().value());
+    }
+
+    @Test
+    void find_KeyStoredWithoutRequestHash_IsReplayed() throws Exception {
+        SaleIdempotencyKey row = row(Instant.now(), response("SALE-6"));
+        when(repository.findByOrganizationIdAndIdempotencyKey(1L, "key-6")).thenReturn(Optional.of(row));
+
+        assertEquals("SALE-6", store.find(1L, "key-6", request(2)).orElseThrow().getSaleId());
+    }
+
+    private SaleRequestDto request(int quantity) {
+        return new SaleRequestDto().items(List.of(new SaleItemRequestDto().productId(10L)
+                .quantity(BigDecimal.valueOf(quantity))));
+    }
+
+    private SaleResponseDto response(String saleId) {
+        return new SaleResponseDto().saleId(saleId).items(List.of())
+                .totalAmount(new BigDecimal("3.00")).timestamp(Instant.now());
+    }
+
+    private SaleIdempotencyKey row(Instant createdAt, SaleResponseDto response) throws Exception {
+        SaleIdempotencyKey row = new SaleIdempotencyKey();
+        row.setOrganizationId(1L);
+        row.setSaleReference(response.getSaleId());
+        row.setResponse(objectMapper.writeValueAsString(response));
+        row.setCreatedAt(createdAt);
+        return row;
+    }
+}
@@ -0,0 +1,97 @@
+package com.borsibaar.service;
+
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SalesActivityTrackerTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T22:00:00Z");
+
+    @Mock private InventoryTransactionRepository inventoryTransactionRepository;
+
+    private SalesActivityTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new SalesActivityTracker(inventoryTransactionRepository, Duration.ofHours(1));
+    }
+
+    @Test
+    void productsSoldSince_OnlyRecentSalesOfTheOrganization() {
+        when(inventoryTransactionRepository.findLastSalesSince(any(), any())).thenReturn(List.of());
+        tracker.onInventoryChanged(new InventoryChangedEvent(1L, List.of(
+                sold(10L, NOW.minusSeconds(120)), sold(11L, NOW.minusSeconds(5)), restocked(12L))));
+        tracker.onInventoryChanged(new InventoryChangedEvent(2L, List.of(sold(20L, NOW))));
+
+        assertTrue(tracker.soldSince(1L, NOW.minusSeconds(60)));
+        assertFalse(tracker.soldSince(1L, NOW.minusSeconds(1)));
+        assertFalse(tracker.soldSince(3L, NOW.minusSeconds(60)));
+        assertEquals(Set.of(11L), tracker.productsSoldSince(1L, NOW.minusSeconds(60)));
+        assertEquals(Set.of(10L, 11L), tracker.productsSoldSince(1L, NOW.minusSeconds(600)));
+    }
+
+    @Test
+    void soldSince_LoadsLedgerOncePerOrganizationAndKeepsNewerSales() {
+        when(inventoryTransactionRepository.findLastSalesSince(eq(1L), any())).thenReturn(List.of(
+                new Object[]{10L, NOW.minusSeconds(30)},
+                new Object[]{11L, NOW.minusSeconds(30)}));
+        // Recorded before the ledger was read
+        tracker.onInventoryChanged(new InventoryChangedEvent(1L, List.of(sold(11L, NOW))));
+
+        assertTrue(tracker.soldSince(1L, NOW.minusSeconds(60)));
+        assertEquals(Set.of(10L, 11L), tracker.productsSoldSince(1L, NOW.minusSeconds(60)));
+        assertEquals(Set.of(11L), tracker.productsSoldSince(1L, NOW.minusSeconds(1)));
+        verify(inventoryTransactionRepository, times(1)).findLastSalesSince(eq(1L), any());
+    }
+
+    @Test
+    void onInventoryChanged_RemoteSales_AreRecorded() {
+        when(inventoryTransactionRepository.findLastSalesSince(any(), any())).thenReturn(List.of());
+        tracker.onInventoryChanged(InventoryChangedEvent.remote(1L, List.of(sold(10L, NOW))));
+
+        assertEquals(Set.of(10L), tracker.productsSoldSince(1L, NOW.minusSeconds(60)));
+    }
+
+    @Test
+    void onInventoryChanged_RemoteReload_ReadsLedgerAgain() {
+        when(inventoryTransactionRepository.findLastSalesSince(eq(1L), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.<Object[]>of(new Object[]{10L, NOW}));
+        assertFalse(tracker.soldSince(1L, NOW.minusSeconds(60)));
+
+        // The sales relayed meanwhile were lost
+        tracker.onInventoryChanged(InventoryChangedEvent.remote(1L, List.of()));
+
+        assertEquals(Set.of(10L), tracker.productsSoldSince(1L, NOW.minusSeconds(60)));
+        verify(inventoryTransactionRepository, times(2)).findLastSalesSince(eq(1L), any());
+    }
+
+    private static InventoryChangedEvent.ProductChange sold(Long productId, Instant at) {
+        return new InventoryChangedEvent.ProductChange(productId, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.ONE, at);
+    }
+
+    private static InventoryChangedEvent.ProductChange restocked(Long productId) {
+        return new InventoryChangedEvent.ProductChange(productId, BigDecimal.ONE, BigDecimal.TEN, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,152 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleItemRequestDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.entity.BarStation;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Product;
+import com.borsibaar.entity.SalesRollup;
+import com.borsibaar.repository.SalesRollupRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.SalesTestConfiguration;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JpaTest
+@Import(SalesTestConfiguration.class)
+class SalesRollupServiceTest {
+
+    @Autowired
+    private SalesService salesService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @MockitoBean
+    private SaleIdempotencyStore saleIdempotencyStore;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final List<Long> productIds = new ArrayList<>();
+    private Long organizationId;
+    private Long bar;
+    private Long terrace;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, BigDecimal.ONE).getId();
+        Category category = TestData.category(entityManager, organizationId, "Beers", true);
+
+        bar = station("Bar");
+        terrace = station("Terrace");
+
+        for (int i = 0; i < 2; i++) {
+            Product product = TestData.product(entityManager, category, "Beer " + i, BigDecimal.valueOf(5),
+                    BigDecimal.valueOf(100));
+            TestData.inventory(entityManager, product, BigDecimal.valueOf(50));
+            productIds.add(product.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void record_CountsEachSaleOnceAcrossProducts() {
+        Long beer = productIds.get(0);
+        Long cider = productIds.get(1);
+
+        // Alice: 5 + 5 in one sale of two products, then 2 x 6; Bob at another station: 7
+        sell(alice, bar, item(beer, 1), item(cider, 1));
+        sell(alice, bar, item(beer, 2));
+        sell(bob, terrace, item(beer, 1));
+
+        List<Object[]> byUser = salesRollupRepository.sumByUserAndStation(organizationId);
+        Object[] aliceRow = byUser.stream().filter(row -> alice.equals(row[0])).findFirst().orElseThrow();
+        assertEquals(2L, aliceRow[2]);
+        assertEquals(0, new BigDecimal("22").compareTo((BigDecimal) aliceRow[3]));
+
+        List<Object[]> byStation = salesRollupRepository.sumByStation(organizationId);
+        assertEquals(2, byStation.size());
+        Object[] terraceRow = byStation.stream().filter(row -> terrace.equals(row[0])).findFirst().orElseThrow();
+        assertEquals(1L, terraceRow[1]);
+        assertEquals(0, new BigDecimal("7").compareTo((BigDecimal) terraceRow[2]));
+
+        SalesRollup aliceBeer = rollups().stream()
+                .filter(r -> alice.equals(r.getUserId()) && r.getProductId().equals(beer))
+                .findFirst().orElseThrow();
+        assertEquals(2, aliceBeer.getLineCount());
+        assertEquals(0, BigDecimal.valueOf(3).compareTo(aliceBeer.getQuantity()));
+    }
+
+    @Test
+    void rebuild_ReproducesIncrementalRollups() {
+        Long beer = productIds.get(0);
+        Long cider = productIds.get(1);
+        sell(alice, bar, item(cider, 1), item(beer, 1), item(cider, 2));
+        sell(alice, bar, item(beer, 2));
+        sell(bob, null, item(cider, 1));
+
+        List<String> incremental = rollups().stream().map(SalesRollupServiceTest::describe).toList();
+
+        salesRollupService.rebuild(organizationId);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertEquals(incremental, rollups().stream().map(SalesRollupServiceTest::describe).toList());
+    }
+
+    private Long station(String name) {
+        BarStation station = new BarStation();
+        station.setOrganizationId(organizationId);
+        station.setName(name);
+        station.setCreatedAt(Instant.now());
+        station.setUpdatedAt(Instant.now());
+        entityManager.persist(station);
+        return station.getId();
+    }
+
+    private void sell(UUID userId, Long barStationId, SaleItemRequestDto... items) {
+        salesService.processSale(new SaleRequestDto().items(List.of(items)).barStationId(barStationId),
+                userId, organizationId);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private List<SalesRollup> rollups() {
+        return salesRollupRepository.findAll().stream()
+                .sorted(Comparator.comparing((SalesRollup r) -> r.getUserId().toString())
+                        .thenComparing(SalesRollup::getProductId))
+                .toList();
+    }
+
+    private static String describe(SalesRollup r) {
+        return r.getUserId() + "/" + r.getBarStationId() + "/" + r.getProductId() + "/" + r.getHourStart()
+                + ": " + r.getSaleCount() + " " + r.getLineCount() + " "
+                + r.getQuantity().stripTrailingZeros().toPlainString() + " "
+                + r.getRevenue().stripTrailingZeros().toPlainString();
+    }
+
+    private static SaleItemRequestDto item(Long productId, int quantity) {
+        return new SaleItemRequestDto().productId(productId).quantity(BigDecimal.valueOf(quantity));
+    }
+}
@@ -0,0 +1,163 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleItemRequestDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Organization;
+import com.borsibaar.entity.Product;
+import com.borsibaar.entity.SalesRollup;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.repository.SalesRollupRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.SalesTestConfiguration;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires many parallel sales at a single product and checks that the final
+ * quantity and price agree with the ledger, i.e. no update was lost.
+ */
+@JpaTest
+@Import(SalesTestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SalesServiceConcurrencyTest {
+
+    private static final int SALES = 2000;
+    private static final int THREADS = 16;
+    private static final BigDecimal INITIAL_STOCK = BigDecimal.valueOf(1500);
+    private static final BigDecimal BASE_PRICE = new BigDecimal("5.0000");
+    private static final BigDecimal PRICE_STEP = new BigDecimal("0.0100");
+
+    @Autowired
+    private SalesService salesService;
+
+    @MockitoBean
+    private SaleIdempotencyStore saleIdempotencyStore;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryTransactionRepository inventoryTransactionRepository;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private PriceBook priceBook;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void processSale_ParallelSalesOfOneProduct_NoLostUpdates() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Inventory seeded = tx.execute(status -> seedHotProduct());
+        Long organizationId = seeded.getOrganizationId();
+        Long productId = seeded.getProduct().getId();
+
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger outOfStock = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < SALES; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                var item = new SaleItemRequestDto().productId(productId).quantity(BigDecimal.ONE);
+                try {
+                    salesService.processSale(new SaleRequestDto().items(List.of(item)), UUID.randomUUID(),
+                            organizationId);
+                    succeeded.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+                    outOfStock.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        Inventory inventory = inventoryRepository.findById(seeded.getId()).orElseThrow();
+        List<InventoryTransaction> ledger = inventoryTransactionRepository
+                .findByInventoryIdOrderByCreatedAtDesc(inventory.getId()).stream()
+                .filter(t -> "SALE".equals(t.getTransactionType()))
+                .sorted(Comparator.comparing(InventoryTransaction::getQuantityAfter).reversed())
+                .toList();
+
+        // Every unit of stock was sold exactly once and the rest were rejected
+        assertEquals(INITIAL_STOCK.intValue(), succeeded.get());
+        assertEquals(SALES - INITIAL_STOCK.intValue(), outOfStock.get());
+        assertEquals(0, inventory.getQuantity().signum());
+
+        // The ledger accounts for the whole stock movement
+        assertEquals(succeeded.get(), ledger.size());
+        BigDecimal sold = ledger.stream()
+                .map(InventoryTransaction::getQuantityChange)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)
+                .negate();
+        assertEquals(0, INITIAL_STOCK.subtract(sold).compareTo(inventory.getQuantity()));
+
+        // Each sale saw the price left behind by the previous one
+        BigDecimal expectedPrice = BASE_PRICE;
+        for (InventoryTransaction transaction : ledger) {
+            assertEquals(0, expectedPrice.compareTo(transaction.getPriceBefore()));
+            expectedPrice = expectedPrice.add(PRICE_STEP);
+            assertEquals(0, expectedPrice.compareTo(transaction.getPriceAfter()));
+        }
+        assertEquals(0, expectedPrice.compareTo(inventory.getAdjustedPrice()));
+        assertEquals(0, expectedPrice.compareTo(priceBook.quote(organizationId, productId).orElseThrow()));
+
+        // The rollups counted every accepted sale exactly once
+        List<SalesRollup> rollups = salesRollupRepository.findAll().stream()
+                .filter(r -> r.getProductId().equals(productId))
+                .toList();
+        assertEquals(succeeded.get(), rollups.stream().mapToLong(SalesRollup::getSaleCount).sum());
+        assertEquals(0, sold.compareTo(rollups.stream()
+                .map(SalesRollup::getQuantity)
+                .reduce(BigDecimal.ZERO, BigDecimal::add)));
+    }
+
+    private Inventory seedHotProduct() {
+        Organization organization = TestData.organization(entityManager, PRICE_STEP);
+        Category category = TestData.category(entityManager, organization.getId(), "Shots", true);
+        Product product = TestData.product(entityManager, category, "Tequila", BASE_PRICE, BigDecimal.valueOf(1000));
+        return TestData.inventory(entityManager, product, INITIAL_STOCK);
+    }
+}
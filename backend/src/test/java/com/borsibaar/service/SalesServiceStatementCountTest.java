@@ -0,0 +1,102 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.SaleItemRequestDto;
+import com.borsibaar.dto.SaleRequestDto;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Product;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.SalesTestConfiguration;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.jpa.properties.hibernate.order_inserts=true",
+        "spring.jpa.properties.hibernate.order_updates=true"
+})
+@Import(SalesTestConfiguration.class)
+class SalesServiceStatementCountTest {
+
+    @Autowired
+    private SalesService salesService;
+
+    @MockitoBean
+    private SaleIdempotencyStore saleIdempotencyStore;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final UUID userId = UUID.randomUUID();
+    private final List<Long> productIds = new ArrayList<>();
+    private Long organizationId;
+
+    @BeforeEach
+    void setUp() {
+        organizationId = TestData.organization(entityManager, BigDecimal.valueOf(0.5)).getId();
+        Category category = TestData.category(entityManager, organizationId, "Beers", true);
+
+        for (int i = 0; i < 6; i++) {
+            Product product = TestData.product(entityManager, category, "Beer " + i, BigDecimal.valueOf(5),
+                    BigDecimal.valueOf(10));
+            TestData.inventory(entityManager, product, BigDecimal.valueOf(100));
+            productIds.add(product.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Warm up the sale, ledger and rollup id pools (the pooled optimizer reads a
+        // sequence twice on first use) and create this hour's rollup rows so that
+        // sequence calls and first-time inserts do not skew the counts
+        sell(6);
+        sell(6);
+    }
+
+    @Test
+    void processSale_StatementCountDoesNotGrowWithBasketSize() {
+        long singleItemStatements = sell(1);
+        long sixItemStatements = sell(6);
+
+        assertEquals(singleItemStatements, sixItemStatements);
+        // Inventory select and batched update, sale header insert, batched ledger insert,
+        // rollup select and batched rollup update
+        assertEquals(6, sixItemStatements);
+    }
+
+    private long sell(int basketSize) {
+        List<SaleItemRequestDto> items = productIds.subList(0, basketSize).stream()
+                .map(id -> new SaleItemRequestDto().productId(id).quantity(BigDecimal.ONE))
+                .toList();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        salesService.processSale(new SaleRequestDto().items(items), userId, organizationId);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Product, category and organization come with the locked inventory rows
+        assertEquals(0, statistics.getEntityFetchCount());
+        return statistics.getPrepareStatementCount();
+    }
+}
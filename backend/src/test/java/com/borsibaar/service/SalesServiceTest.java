@@ -5,25 +5,33 @@ import com.borsibaar.dto.SaleRequestDto;
 import com.borsibaar.entity.Inventory;
 import com.borsibaar.entity.InventoryTransaction;
 import com.borsibaar.entity.Product;
+import com.borsibaar.entity.Sale;
 import com.borsibaar.repository.InventoryRepository;
 import com.borsibaar.repository.InventoryTransactionRepository;
 import com.borsibaar.repository.ProductRepository;
+import com.borsibaar.repository.SaleRepository;
+import com.borsibaar.util.ReferenceIdGenerator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +40,14 @@ class SalesServiceTest {
     @Mock private InventoryRepository inventoryRepository;
     @Mock private InventoryTransactionRepository inventoryTransactionRepository;
     @Mock private ProductRepository productRepository;
+    @Mock private SaleRepository saleRepository;
+    @Mock private SaleIdempotencyStore saleIdempotencyStore;
+    @Mock private SalesRollupService salesRollupService;
+    @Mock private ApplicationEventPublisher eventPublisher;
+    @Spy private PriceBook priceBook = new PriceBook(mock(InventoryRepository.class));
+    @Spy private PricingStrategy pricingStrategy = new StepPricingStrategy(priceBook,
+            mock(SalesActivityTracker.class), mock(InventoryRepository.class));
+    @Spy private ReferenceIdGenerator referenceIdGenerator = new ReferenceIdGenerator(1, Clock.systemUTC());
 
     @InjectMocks private SalesService salesService;
 
@@ -41,27 +57,45 @@ class SalesServiceTest {
     void processSale_SingleItem_SuccessPriceIncreaseCapped() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(true); product.setBasePrice(BigDecimal.valueOf(10)); product.setMaxPrice(BigDecimal.valueOf(10)); product.setName("Beer");
         Inventory inventory = new Inventory(); inventory.setId(9L); inventory.setProduct(product); inventory.setProductId(5L); inventory.setOrganizationId(1L); inventory.setQuantity(BigDecimal.valueOf(20)); inventory.setAdjustedPrice(BigDecimal.valueOf(10)); inventory.setUpdatedAt(OffsetDateTime.now());
-        product.setInventory(inventory);
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
-        when(inventoryRepository.save(inventory)).thenReturn(inventory);
-        when(inventoryTransactionRepository.save(any(InventoryTransaction.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryRepository.findAllForSale(1L, Set.of(5L))).thenReturn(List.of(inventory));
 
         var item = new SaleItemRequestDto().productId(5L).quantity(BigDecimal.valueOf(2));
         var req = new SaleRequestDto().items(List.of(item)).notes("note").barStationId(1L);
         var resp = salesService.processSale(req, userId, 1L);
         assertEquals(1, resp.getItems().size());
+        assertTrue(resp.getSaleId().matches("SALE-\\d{19}"));
         assertEquals(BigDecimal.valueOf(20), resp.getTotalAmount());
         // Price capped at max (10)
         assertEquals(BigDecimal.valueOf(10), inventory.getAdjustedPrice());
-        verify(inventoryTransactionRepository).save(any(InventoryTransaction.class));
+        verify(inventoryRepository).saveAll(anyCollection());
+        verify(inventoryTransactionRepository).saveAll(argThat((List<InventoryTransaction> txs) -> txs.size() == 1));
+        verify(saleRepository).saveAll(argThat((List<Sale> sales) -> sales.size() == 1
+                && sales.get(0).getReferenceId().equals(resp.getSaleId())
+                && sales.get(0).getTotalAmount().equals(BigDecimal.valueOf(20))
+                && sales.get(0).getItemCount() == 1
+                && sales.get(0).getBarStationId().equals(1L)));
+        verify(productRepository, never()).findById(anyLong());
+        verifyNoInteractions(saleIdempotencyStore);
+    }
+
+    @Test
+    void processSale_WithIdempotencyKey_RecordsResponse() {
+        Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(true); product.setBasePrice(BigDecimal.valueOf(4)); product.setName("Beer");
+        Inventory inventory = new Inventory(); inventory.setId(9L); inventory.setProduct(product); inventory.setProductId(5L); inventory.setOrganizationId(1L); inventory.setQuantity(BigDecimal.valueOf(20)); inventory.setAdjustedPrice(BigDecimal.valueOf(4));
+        when(inventoryRepository.findAllForSale(1L, Set.of(5L))).thenReturn(List.of(inventory));
+
+        var item = new SaleItemRequestDto().productId(5L).quantity(BigDecimal.ONE);
+        var request = new SaleRequestDto().items(List.of(item));
+        var resp = salesService.processSale(request, userId, 1L, "key-1");
+
+        verify(saleIdempotencyStore).record(1L, "key-1", request, resp);
     }
 
     @Test
     void processSale_InsufficientStock_Throws() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(true); product.setBasePrice(BigDecimal.ONE); product.setName("Beer");
         Inventory inventory = new Inventory(); inventory.setId(9L); inventory.setProduct(product); inventory.setProductId(5L); inventory.setOrganizationId(1L); inventory.setQuantity(BigDecimal.ONE); inventory.setAdjustedPrice(BigDecimal.ONE);
-        product.setInventory(inventory);
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
+        when(inventoryRepository.findAllForSale(1L, Set.of(5L))).thenReturn(List.of(inventory));
         var item = new SaleItemRequestDto().productId(5L).quantity(BigDecimal.valueOf(5));
         var req = new SaleRequestDto().items(List.of(item));
         ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> salesService.processSale(req, userId, 1L));
@@ -72,8 +106,7 @@ class SalesServiceTest {
     void processSale_ProductInactive_Throws() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(1L); product.setActive(false); product.setBasePrice(BigDecimal.ONE); product.setName("Beer");
         Inventory inventory = new Inventory(); inventory.setId(9L); inventory.setProduct(product); inventory.setProductId(5L); inventory.setOrganizationId(1L); inventory.setQuantity(BigDecimal.ONE); inventory.setAdjustedPrice(BigDecimal.ONE);
-        product.setInventory(inventory);
-        when(productRepository.findById(5L)).thenReturn(Optional.of(product));
+        when(inventoryRepository.findAllForSale(1L, Set.of(5L))).thenReturn(List.of(inventory));
         var item = new SaleItemRequestDto().productId(5L).quantity(BigDecimal.ONE);
         var req = new SaleRequestDto().items(List.of(item));
         ResponseStatusException ex = assertThrows(ResponseStatusException.class, () -> salesService.processSale(req, userId, 1L));
@@ -84,7 +117,6 @@ class SalesServiceTest {
     void processSale_ProductOrgMismatch_Throws() {
         Product product = new Product(); product.setId(5L); product.setOrganizationId(2L); product.setActive(true); product.setBasePrice(BigDecimal.ONE); product.setName("Beer");
         Inventory inventory = new Inventory(); inventory.setId(9L); inventory.setProduct(product); inventory.setProductId(5L); inventory.setOrganizationId(2L); inventory.setQuantity(BigDecimal.ONE); inventory.setAdjustedPrice(BigDecimal.ONE);
-        product.setInventory(inventory);
         when(productRepository.findById(5L)).thenReturn(Optional.of(product));
         var item = new SaleItemRequestDto().productId(5L).quantity(BigDecimal.ONE);
         var req = new SaleRequestDto().items(List.of(item));
@@ -0,0 +1,218 @@
+package com.borsibaar.service;
+
+import com.borsibaar.dto.StationSalesStatsResponseDto;
+import com.borsibaar.entity.BarStation;
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Product;
+import com.borsibaar.mapper.InventoryMapper;
+import com.borsibaar.repository.SalesRollupRepository;
+import com.borsibaar.testing.JpaTest;
+import com.borsibaar.testing.TestData;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the old way of computing station sales stats (load every SALE row,
+ * group in Java, then one IN-list revenue query per group) with the database
+ * GROUP BY that now rebuilds the rollups, and with reading the rollups.
+ * <p>
+ * Opt-in, as seeding takes a while:
+ * {@code mvn test -Dtest=SalesStatsBenchmarkTest -Dbenchmark=true [-Dbenchmark.transactions=3000000]}
+ */
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@JpaTest
+@Import({InventoryService.class, SalesRollupService.class, PriceBook.class})
+class SalesStatsBenchmarkTest {
+
+    private static final int PRODUCTS = 40;
+    private static final int STATIONS = 5;
+    private static final int USERS = 10;
+    private static final int BATCH = 10_000;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private InventoryMapper inventoryMapper;
+
+    @Test
+    void stationStats_LegacyGroupThenQuery_VersusDatabaseAggregation() {
+        int transactions = Integer.getInteger("benchmark.transactions", 1_000_000);
+        Long organizationId = seed(transactions);
+
+        long start = System.nanoTime();
+        Map<Long, long[]> legacy = legacyStationStats(organizationId);
+        long legacyMillis = millisSince(start);
+
+        start = System.nanoTime();
+        salesRollupService.rebuild(organizationId);
+        entityManager.flush();
+        long rebuildMillis = millisSince(start);
+
+        start = System.nanoTime();
+        List<StationSalesStatsResponseDto> stats = inventoryService.getStationSalesStats(organizationId);
+        long rollupMillis = millisSince(start);
+
+        System.out.printf("%n%,d sale transactions, %,d rollup rows%n", transactions, salesRollupRepository.count());
+        System.out.printf("  legacy load + group + IN-list revenue queries: %,6d ms%n", legacyMillis);
+        System.out.printf("  rollup rebuild (single GROUP BY):               %,6d ms%n", rebuildMillis);
+        System.out.printf("  stats read from rollups:                        %,6d ms%n%n", rollupMillis);
+
+        // Both ways agree on counts and revenue (revenue in cents)
+        assertEquals(legacy.size(), stats.size());
+        for (StationSalesStatsResponseDto station : stats) {
+            long[] expected = legacy.get(station.getBarStationId());
+            assertEquals(expected[0], station.getSalesCount());
+            assertEquals(expected[1], station.getTotalRevenue().movePointRight(2).longValueExact());
+        }
+    }
+
+    /**
+     * The pre-rollup implementation: every SALE row of the organization is
+     * loaded and grouped in Java, distinct references are counted, and revenue
+     * is fetched with one query per group listing all of its transaction ids.
+     */
+    private Map<Long, long[]> legacyStationStats(Long organizationId) {
+        List<Object[]> rows = entityManager.createQuery("""
+                        SELECT it.id, it.barStationId, it.referenceId FROM InventoryTransaction it
+                        JOIN Inventory i ON it.inventoryId = i.id
+                        WHERE i.organizationId = :organizationId AND it.transactionType = 'SALE'
+                        ORDER BY it.createdAt DESC
+                        """, Object[].class)
+                .setParameter("organizationId", organizationId)
+                .getResultList();
+
+        Map<Long, List<Object[]>> byStation = rows.stream()
+                .collect(Collectors.groupingBy(row -> (Long) row[1]));
+
+        Map<Long, long[]> result = new HashMap<>();
+        byStation.forEach((stationId, stationRows) -> {
+            long salesCount = stationRows.stream().map(row -> row[2]).distinct().count();
+            List<Long> ids = stationRows.stream().map(row -> (Long) row[0]).toList();
+            BigDecimal revenue = entityManager.createQuery("""
+                            SELECT SUM(-it.quantityChange * it.priceBefore) FROM InventoryTransaction it
+                            WHERE it.id IN :ids
+                            """, BigDecimal.class)
+                    .setParameter("ids", ids)
+                    .getSingleResult();
+            result.put(stationId, new long[] {salesCount, revenue.movePointRight(2).longValueExact()});
+        });
+        return result;
+    }
+
+    private Long seed(int transactions) {
+        Long organizationId = TestData.organization(entityManager, BigDecimal.valueOf(0.5)).getId();
+        Category category = TestData.category(entityManager, organizationId, "Drinks", true);
+
+        List<Long> inventoryIds = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = TestData.product(entityManager, category, "Drink " + i, BigDecimal.valueOf(5), null);
+            inventoryIds.add(TestData.inventory(entityManager, product, BigDecimal.valueOf(1_000_000)).getId());
+        }
+
+        List<Long> stationIds = new ArrayList<>();
+        for (int i = 0; i < STATIONS; i++) {
+            BarStation station = new BarStation();
+            station.setOrganizationId(organizationId);
+            station.setName("Station " + i);
+            station.setCreatedAt(Instant.now());
+            station.setUpdatedAt(Instant.now());
+            entityManager.persist(station);
+            stationIds.add(station.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        List<UUID> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+
+        // Sales of one to three lines spread over the last 90 days
+        Random random = new Random(42);
+        Instant now = Instant.now();
+        List<Object[]> sales = new ArrayList<>(BATCH);
+        List<Object[]> lines = new ArrayList<>(BATCH);
+        long saleId = 1_000_000;
+        long transactionId = 1_000_000;
+        int written = 0;
+        while (written < transactions) {
+            saleId++;
+            Long stationId = stationIds.get(random.nextInt(STATIONS));
+            UUID userId = userIds.get(random.nextInt(USERS));
+            Timestamp createdAt = Timestamp.from(now.minus(random.nextInt(90 * 24 * 60), ChronoUnit.MINUTES));
+            String reference = "SALE-" + saleId;
+            int lineCount = Math.min(1 + random.nextInt(3), transactions - written);
+            BigDecimal total = BigDecimal.ZERO;
+            for (int l = 0; l < lineCount; l++) {
+                BigDecimal price = BigDecimal.valueOf(300 + random.nextInt(700), 2);
+                BigDecimal quantity = BigDecimal.valueOf(1 + random.nextInt(3));
+                total = total.add(price.multiply(quantity));
+                lines.add(new Object[] {++transactionId, inventoryIds.get(random.nextInt(PRODUCTS)), "SALE",
+                        quantity.negate(), BigDecimal.ZERO, price, price, reference, userId, stationId,
+                        createdAt, saleId});
+            }
+            sales.add(new Object[] {saleId, reference, organizationId, stationId, userId, total, lineCount, createdAt});
+            written += lineCount;
+
+            if (lines.size() >= BATCH || written >= transactions) {
+                flushSeed(sales, lines);
+            }
+        }
+        return organizationId;
+    }
+
+    private void flushSeed(List<Object[]> sales, List<Object[]> lines) {
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO sales (id, reference_id, organization_id, bar_station_id, user_id, total_amount,
+                                   item_count, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """, sales);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO inventory_transactions (id, inventory_id, transaction_type, quantity_change,
+                                                    quantity_after, price_before, price_after, reference_id,
+                                                    created_by, bar_station_id, created_at, sale_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """, lines);
+        sales.clear();
+        lines.clear();
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,50 @@
+package com.borsibaar.service;
+
+import com.borsibaar.repository.InventoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class StepPricingStrategyTest {
+
+    private static final Instant SINCE = Instant.parse("2026-01-01T22:00:00Z");
+
+    @Mock private PriceBook priceBook;
+    @Mock private SalesActivityTracker salesActivityTracker;
+    @Mock private InventoryRepository inventoryRepository;
+
+    private StepPricingStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        strategy = new StepPricingStrategy(priceBook, salesActivityTracker, inventoryRepository);
+    }
+
+    @Test
+    void tick_LowersAllButProductsSoldSince() {
+        when(salesActivityTracker.productsSoldSince(1L, SINCE)).thenReturn(Set.of(12L));
+        when(inventoryRepository.reduceIdlePrices(1L, Set.of(12L), "REDUCE-1")).thenReturn(List.of());
+
+        strategy.tick(1L, SINCE, "REDUCE-1");
+
+        verify(inventoryRepository).reduceIdlePrices(1L, Set.of(12L), "REDUCE-1");
+    }
+
+    @Test
+    void needsTick_OrganizationSoldNothing_IsFalse() {
+        when(salesActivityTracker.soldSince(1L, SINCE)).thenReturn(false);
+
+        assertFalse(strategy.needsTick(1L, SINCE));
+    }
+}
@@ -0,0 +1,216 @@
+package com.borsibaar.service;
+
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.InventoryTransaction;
+import com.borsibaar.entity.Organization;
+import com.borsibaar.entity.Product;
+import com.borsibaar.repository.InventoryRepository;
+import com.borsibaar.repository.InventoryTransactionRepository;
+import com.borsibaar.repository.OrganizationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VelocityPricingStrategyTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T22:00:00Z");
+
+    @Mock private PriceBook priceBook;
+    @Mock private InventoryRepository inventoryRepository;
+    @Mock private InventoryTransactionRepository inventoryTransactionRepository;
+    @Mock private OrganizationRepository organizationRepository;
+
+    private VelocityPricingStrategy strategy;
+    private Category category;
+    private long transactionId;
+
+    @BeforeEach
+    void setUp() {
+        strategy = new VelocityPricingStrategy(priceBook, inventoryRepository, inventoryTransactionRepository,
+                organizationRepository, Duration.ofMinutes(10), Duration.ofHours(2), 0.25);
+        category = new Category();
+        category.setId(5L);
+        category.setDynamicPricing(true);
+    }
+
+    @Test
+    void priceAfterSale_FollowsVelocityRelativeToCategory() {
+        Inventory fast = inventory(10L, null, null);
+        Inventory slow = inventory(11L, null, null);
+        strategy.recordSales(1L, List.of(sale(fast, "3", NOW), sale(slow, "1", NOW)));
+
+        // 4 of 5 units sold against an average of 2.5 per product
+        assertEquals(new BigDecimal("4.60"), strategy.priceAfterSale(fast, BigDecimal.ONE, NOW));
+        assertEquals(new BigDecimal("3.80"), strategy.priceAfterSale(slow, BigDecimal.ONE, NOW));
+        verify(priceBook).set(fast, new BigDecimal("4.60"));
+    }
+
+    @Test
+    void priceAfterSale_StaysWithinMinAndMaxPrice() {
+        Inventory fast = inventory(10L, null, "4.50");
+        Inventory slow = inventory(11L, "3.90", null);
+        strategy.recordSales(1L, List.of(sale(fast, "3", NOW), sale(slow, "1", NOW)));
+
+        assertEquals(new BigDecimal("4.50"), strategy.priceAfterSale(fast, BigDecimal.ONE, NOW));
+        assertEquals(new BigDecimal("3.90"), strategy.priceAfterSale(slow, BigDecimal.ONE, NOW));
+    }
+
+    @Test
+    void priceAfterSale_StaticCategory_KeepsPrice() {
+        category.setDynamicPricing(false);
+        Inventory inventory = inventory(10L, null, null);
+        when(priceBook.quote(inventory)).thenReturn(new BigDecimal("4.00"));
+
+        assertEquals(new BigDecimal("4.00"), strategy.priceAfterSale(inventory, BigDecimal.TEN, NOW));
+    }
+
+    @Test
+    void priceAfterSale_ComparesWithWholeCategory() {
+        Inventory fast = inventory(10L, null, null);
+        Inventory slow = inventory(11L, null, null);
+        // Two more products of the category never sold
+        when(inventoryRepository.countDynamicProductsByCategory(1L)).thenReturn(List.<Object[]>of(
+                new Object[] {category.getId(), 4L}));
+        strategy.refresh(1L);
+        strategy.recordSales(1L, List.of(sale(fast, "3", NOW), sale(slow, "1", NOW)));
+
+        // 4 of 5 units sold against an average of 1.25 per product
+        assertEquals(new BigDecimal("6.20"), strategy.priceAfterSale(fast, BigDecimal.ONE, NOW));
+    }
+
+    @Test
+    void refresh_SeedsFromLedger_CountingEachLineOnce() {
+        Instant now = Instant.now();
+        Inventory fast = inventory(10L, null, null);
+        when(inventoryTransactionRepository.findDynamicSaleLinesSince(eq(1L), any())).thenReturn(List.of(
+                line(1L, 10L, "3", now), line(2L, 11L, "1", now)));
+
+        strategy.refresh(1L);
+        strategy.refresh(1L);
+        // Committed here and read back from the ledger
+        InventoryTransaction local = sale(fast, "3", now);
+        local.setId(1L);
+        strategy.recordSales(1L, List.of(local));
+
+        // As if the sales were made here, see priceAfterSale_FollowsVelocityRelativeToCategory
+        assertEquals(new BigDecimal("4.60"), strategy.priceAfterSale(fast, BigDecimal.ONE, now));
+    }
+
+    @Test
+    void tick_CategoryWentQuiet_LowersPrices() {
+        Instant hourAgo = Instant.now().minus(Duration.ofHours(1));
+        Inventory lager = inventory(10L, null, null);
+        Inventory cider = inventory(11L, null, null);
+        strategy.recordSales(1L, List.of(sale(lager, "2", hourAgo), sale(cider, "2", hourAgo)));
+        when(inventoryRepository.findForPricingByOrganizationId(1L)).thenReturn(List.of(lager, cider));
+
+        strategy.tick(1L, hourAgo, "REDUCE-1");
+
+        ArgumentCaptor<Long[]> productIds = ArgumentCaptor.forClass(Long[].class);
+        ArgumentCaptor<BigDecimal[]> prices = ArgumentCaptor.forClass(BigDecimal[].class);
+        verify(inventoryRepository).setPrices(eq(1L), productIds.capture(), prices.capture(), eq("REDUCE-1"));
+        assertEquals(2, productIds.getValue().length);
+        for (BigDecimal price : prices.getValue()) {
+            assertTrue(price.compareTo(new BigDecimal("4.00")) < 0 && price.compareTo(new BigDecimal("2.00")) >= 0);
+        }
+    }
+
+    @Test
+    void tick_NeverSoldProduct_IsPricedDown() {
+        Instant now = Instant.now();
+        Inventory lager = inventory(10L, null, null);
+        Inventory cider = inventory(11L, null, null);
+        strategy.recordSales(1L, List.of(sale(lager, "1", now)));
+        when(inventoryRepository.countDynamicProductsByCategory(1L)).thenReturn(List.<Object[]>of(
+                new Object[] {category.getId(), 2L}));
+        when(inventoryRepository.findForPricingByOrganizationId(1L)).thenReturn(List.of(lager, cider));
+
+        strategy.tick(1L, now, "REDUCE-1");
+
+        ArgumentCaptor<Long[]> productIds = ArgumentCaptor.forClass(Long[].class);
+        ArgumentCaptor<BigDecimal[]> prices = ArgumentCaptor.forClass(BigDecimal[].class);
+        verify(inventoryRepository).setPrices(eq(1L), productIds.capture(), prices.capture(), eq("REDUCE-1"));
+        // The lager sold twice the category average, the cider nothing
+        assertEquals(List.of(10L, 11L), List.of(productIds.getValue()));
+        assertEquals(new BigDecimal("5.00"), prices.getValue()[0]);
+        assertEquals(new BigDecimal("3.00"), prices.getValue()[1]);
+    }
+
+    @Test
+    void tick_PricesUnchanged_SkipsUpdate() {
+        Instant now = Instant.now();
+        Inventory lager = inventory(10L, null, null);
+        Inventory cider = inventory(11L, null, null);
+        strategy.recordSales(1L, List.of(sale(lager, "1", now), sale(cider, "1", now)));
+        when(inventoryRepository.findForPricingByOrganizationId(1L)).thenReturn(List.of(lager, cider));
+
+        assertEquals(List.of(), strategy.tick(1L, now, "REDUCE-1"));
+        verify(inventoryRepository, never()).setPrices(anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void tick_NothingSold_ReturnsNothing() {
+        when(inventoryRepository.findForPricingByOrganizationId(1L))
+                .thenReturn(List.of(inventory(10L, null, null)));
+
+        assertEquals(List.of(), strategy.tick(1L, NOW, "REDUCE-1"));
+        verify(inventoryRepository, never()).setPrices(anyLong(), any(), any(), any());
+    }
+
+    private Inventory inventory(Long productId, String minPrice, String maxPrice) {
+        Organization organization = new Organization();
+        organization.setId(1L);
+        organization.setPriceDecreaseStep(new BigDecimal("0.50"));
+
+        Product product = new Product();
+        product.setId(productId);
+        product.setOrganizationId(1L);
+        product.setOrganization(organization);
+        product.setCategoryId(category.getId());
+        product.setCategory(category);
+        product.setBasePrice(new BigDecimal("4.00"));
+        product.setMinPrice(minPrice != null ? new BigDecimal(minPrice) : new BigDecimal("2.00"));
+        product.setMaxPrice(maxPrice != null ? new BigDecimal(maxPrice) : null);
+        product.setActive(true);
+
+        Inventory inventory = new Inventory();
+        inventory.setOrganizationId(1L);
+        inventory.setProductId(productId);
+        inventory.setProduct(product);
+        inventory.setAdjustedPrice(new BigDecimal("4.00"));
+        return inventory;
+    }
+
+    private Object[] line(Long id, Long productId, String quantity, Instant createdAt) {
+        return new Object[] {id, productId, category.getId(), new BigDecimal(quantity), createdAt};
+    }
+
+    private InventoryTransaction sale(Inventory inventory, String quantity, Instant createdAt) {
+        InventoryTransaction transaction = new InventoryTransaction();
+        transaction.setId(100 + ++transactionId);
+        transaction.setInventory(inventory);
+        transaction.setTransactionType("SALE");
+        transaction.setQuantityChange(new BigDecimal(quantity).negate());
+        transaction.setCreatedAt(createdAt);
+        return transaction;
+    }
+}
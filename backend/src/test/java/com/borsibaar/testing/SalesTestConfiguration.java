@@ -0,0 +1,19 @@
+package com.borsibaar.testing;
+
+import com.borsibaar.service.PriceBook;
+import com.borsibaar.service.SalesActivityTracker;
+import com.borsibaar.service.SalesRollupService;
+import com.borsibaar.service.SalesService;
+import com.borsibaar.service.StepPricingStrategy;
+import com.borsibaar.util.ReferenceIdGenerator;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * The services a sale goes through, for {@link JpaTest}s that sell.
+ */
+@TestConfiguration
+@Import({SalesService.class, SalesRollupService.class, SalesActivityTracker.class, StepPricingStrategy.class,
+        PriceBook.class, ReferenceIdGenerator.class})
+public class SalesTestConfiguration {
+}
@@ -0,0 +1,76 @@
+package com.borsibaar.testing;
+
+import com.borsibaar.entity.Category;
+import com.borsibaar.entity.Inventory;
+import com.borsibaar.entity.Organization;
+import com.borsibaar.entity.Product;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Persists the organizations, categories, products and inventory rows that
+ * {@link JpaTest}s start from.
+ */
+public final class TestData {
+
+    private TestData() {
+    }
+
+    /**
+     * Organization whose prices move by {@code priceStep} either way, or not
+     * at all when it is null.
+     */
+    public static Organization organization(EntityManager entityManager, BigDecimal priceStep) {
+        Organization organization = new Organization();
+        organization.setName("Test Org");
+        organization.setCreatedAt(Instant.now());
+        organization.setUpdatedAt(Instant.now());
+        organization.setPriceIncreaseStep(priceStep);
+        organization.setPriceDecreaseStep(priceStep);
+        entityManager.persist(organization);
+        return organization;
+    }
+
+    public static Category category(EntityManager entityManager, Long organizationId, String name,
+                                    boolean dynamicPricing) {
+        Category category = new Category();
+        category.setOrganizationId(organizationId);
+        category.setName(name);
+        category.setDynamicPricing(dynamicPricing);
+        entityManager.persist(category);
+        return category;
+    }
+
+    /**
+     * Active product of a category, without a maximum price when
+     * {@code maxPrice} is null.
+     */
+    public static Product product(EntityManager entityManager, Category category, String name,
+                                  BigDecimal basePrice, BigDecimal maxPrice) {
+        Product product = new Product();
+        product.setOrganizationId(category.getOrganizationId());
+        product.setCategoryId(category.getId());
+        product.setName(name);
+        product.setBasePrice(basePrice);
+        product.setMaxPrice(maxPrice);
+        product.setActive(true);
+        entityManager.persist(product);
+        return product;
+    }
+
+    /**
+     * Inventory of a product, priced at its base price.
+     */
+    public static Inventory inventory(EntityManager entityManager, Product product, BigDecimal quantity) {
+        return inventory(entityManager, product, quantity, product.getBasePrice());
+    }
+
+    public static Inventory inventory(EntityManager entityManager, Product product, BigDecimal quantity,
+                                      BigDecimal price) {
+        Inventory inventory = new Inventory(product.getOrganizationId(), product, quantity, price);
+        entityManager.persist(inventory);
+        return inventory;
+    }
+}
@@ -0,0 +1,132 @@
+package com.borsibaar.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReferenceIdGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2026-06-01T20:00:00Z");
+
+    @Test
+    void nextId_SameMillisecond_IsUniqueAndIncreasing() {
+        ReferenceIdGenerator generator = new ReferenceIdGenerator(7, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        long previous = generator.nextId();
+        // More ids than fit in one millisecond's sequence
+        for (int i = 0; i < 10_000; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void nextId_EncodesTimestampAndNode() {
+        ReferenceIdGenerator generator = new ReferenceIdGenerator(42, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        long id = generator.nextId();
+
+        assertEquals(NOW, ReferenceIdGenerator.timestampOf(id));
+        assertEquals(42, ReferenceIdGenerator.nodeIdOf(id));
+    }
+
+    @Test
+    void nextId_ClockMovesBackwards_StaysIncreasing() {
+        MutableClock clock = new MutableClock(NOW);
+        ReferenceIdGenerator generator = new ReferenceIdGenerator(1, clock);
+
+        long before = generator.nextId();
+        clock.instant = NOW.minus(Duration.ofSeconds(5));
+        long after = generator.nextId();
+
+        assertTrue(after > before);
+    }
+
+    @Test
+    void nextId_DifferentNodesSameMillisecond_DoNotCollide() {
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+
+        long first = new ReferenceIdGenerator(1, clock).nextId();
+        long second = new ReferenceIdGenerator(2, clock).nextId();
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void nextReference_SortsChronologicallyAsString() {
+        MutableClock clock = new MutableClock(ReferenceIdGenerator.EPOCH.plusMillis(1));
+        ReferenceIdGenerator generator = new ReferenceIdGenerator(3, clock);
+
+        String early = generator.nextReference("SALE");
+        clock.instant = NOW;
+        String late = generator.nextReference("SALE");
+
+        assertTrue(early.matches("SALE-\\d{19}"));
+        assertTrue(early.compareTo(late) < 0);
+    }
+
+    @Test
+    void nextId_ConcurrentCallers_AreUnique() throws Exception {
+        ReferenceIdGenerator generator = new ReferenceIdGenerator(5, Clock.systemUTC());
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 5_000; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertEquals(40_000, ids.size());
+    }
+
+    @Test
+    void constructor_NodeIdOutOfRange_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> new ReferenceIdGenerator(1024, Clock.systemUTC()));
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
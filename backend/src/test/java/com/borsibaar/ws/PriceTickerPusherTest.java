@@ -0,0 +1,149 @@
+package com.borsibaar.ws;
+
+import com.borsibaar.dto.LowStockAlertDto;
+import com.borsibaar.entity.User;
+import com.borsibaar.event.InventoryChangedEvent;
+import com.borsibaar.event.LowStockAlertEvent;
+import com.borsibaar.service.InventorySnapshotCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceTickerPusherTest {
+
+    private static final String BOARD = "{\"organizationId\":1,\"categories\":[]}";
+
+    @Mock private PriceTickerSessionRegistry registry;
+    @Mock private InventorySnapshotCache inventorySnapshotCache;
+    @Mock private WebSocketSession session;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PriceTickerPusher pusher;
+
+    @BeforeEach
+    void setUp() {
+        pusher = new PriceTickerPusher(registry, inventorySnapshotCache, objectMapper);
+    }
+
+    @Test
+    void sendSnapshot_EmbedsSerializedBoard() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        when(inventorySnapshotCache.board(1L))
+                .thenReturn(new InventorySnapshotCache.Board("\"e\"", BOARD.getBytes(StandardCharsets.UTF_8)));
+
+        pusher.sendSnapshot(1L, session);
+
+        JsonNode message = sent();
+        assertEquals("snapshot", message.get("type").asText());
+        assertEquals(objectMapper.readTree(BOARD), message.get("board"));
+        assertFalse(message.has("changes"));
+    }
+
+    @Test
+    void onInventoryChanged_PushesOnlyChangedProducts() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        when(registry.getSessions(1L)).thenReturn(Set.of(session));
+
+        pusher.onInventoryChanged(new InventoryChangedEvent(1L, List.of(
+                new InventoryChangedEvent.ProductChange(10L, BigDecimal.valueOf(8), BigDecimal.valueOf(7),
+                        new BigDecimal("5.50")))));
+
+        JsonNode message = sent();
+        assertEquals("delta", message.get("type").asText());
+        assertFalse(message.has("board"));
+        assertEquals(1, message.get("changes").size());
+        assertEquals(10, message.get("changes").get(0).get("productId").asLong());
+        assertEquals(0, new BigDecimal("5.50").compareTo(message.get("changes").get(0).get("unitPrice").decimalValue()));
+        verifyNoInteractions(inventorySnapshotCache);
+    }
+
+    @Test
+    void onInventoryChanged_Remote_PushesSnapshot() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        when(registry.getSessions(1L)).thenReturn(Set.of(session));
+        when(inventorySnapshotCache.board(1L))
+                .thenReturn(new InventorySnapshotCache.Board("\"e\"", BOARD.getBytes(StandardCharsets.UTF_8)));
+
+        pusher.onInventoryChanged(InventoryChangedEvent.remote(1L, List.of(
+                new InventoryChangedEvent.ProductChange(10L, BigDecimal.valueOf(8), BigDecimal.valueOf(7),
+                        new BigDecimal("5.50")))));
+
+        JsonNode message = sent();
+        assertEquals("snapshot", message.get("type").asText());
+        assertEquals(objectMapper.readTree(BOARD), message.get("board"));
+    }
+
+    @Test
+    void onLowStockAlert_PushesAlertToMembers() throws Exception {
+        when(session.isOpen()).thenReturn(true);
+        when(session.getPrincipal()).thenReturn(authentication(1L));
+        when(registry.getSessions(1L)).thenReturn(Set.of(session));
+
+        pusher.onLowStockAlert(new LowStockAlertEvent(1L, new LowStockAlertDto().sequence(3L)
+                .kind(LowStockAlertDto.KindEnum.LOW).productId(10L).quantity(BigDecimal.ONE)));
+
+        JsonNode message = sent();
+        assertEquals("alert", message.get("type").asText());
+        assertFalse(message.has("changes"));
+        assertEquals("LOW", message.get("alert").get("kind").asText());
+        assertEquals(10, message.get("alert").get("productId").asLong());
+    }
+
+    @Test
+    void onLowStockAlert_AnonymousOrOtherOrganization_GetsNothing() throws Exception {
+        WebSocketSession other = mock(WebSocketSession.class);
+        when(other.getPrincipal()).thenReturn(authentication(2L));
+        when(registry.getSessions(1L)).thenReturn(Set.of(session, other));
+
+        pusher.onLowStockAlert(new LowStockAlertEvent(1L, new LowStockAlertDto().sequence(3L)
+                .kind(LowStockAlertDto.KindEnum.LOW).productId(10L)));
+
+        verify(session, never()).sendMessage(any());
+        verify(other, never()).sendMessage(any());
+    }
+
+    @Test
+    void onInventoryChanged_WithoutSubscribers_DoesNothing() throws Exception {
+        when(registry.getSessions(1L)).thenReturn(Set.of());
+
+        pusher.onInventoryChanged(new InventoryChangedEvent(1L));
+
+        verifyNoInteractions(inventorySnapshotCache);
+        verify(session, never()).sendMessage(any());
+    }
+
+    private static UsernamePasswordAuthenticationToken authentication(Long organizationId) {
+        User user = new User();
+        user.setOrganizationId(organizationId);
+        return new UsernamePasswordAuthenticationToken(user, null, List.of());
+    }
+
+    private JsonNode sent() throws Exception {
+        ArgumentCaptor<TextMessage> captor = ArgumentCaptor.forClass(TextMessage.class);
+        verify(session).sendMessage(captor.capture());
+        return objectMapper.readTree(captor.getValue().getPayload());
+    }
+}
@@ -8,7 +8,7 @@ import React, {
   useState,
 } from "react";
 import * as d3 from "d3";
-import { InventoryResponse } from "@/app/generated";
+import { MarketBoardProduct } from "./types";
 
 // ---------- Tallinn time helpers ----------
 const tallinnParts = (d: Date) => {
@@ -48,55 +48,72 @@ const tallinnTicks = (cutoff: Date, now: Date, stepMin: number) => {
 };
 
 // ---------- Types ----------
+const HOURS_WINDOW = 1;
+
 type HistoryDto = {
-  id: number;
-  inventoryId: number;
   priceBefore: number;
   priceAfter: number;
   createdAt: string;
 };
+type PriceSeriesDto = {
+  candles: {
+    start: string;
+    open: number;
+    high: number;
+    low: number;
+    close: number;
+    volume: number;
+  }[];
+};
 type CurrentHistory = {
-  productInv: InventoryResponse;
+  productInv: MarketBoardProduct;
   priceHistory: HistoryDto[];
 };
 
 export default function PriceHistoryGraphFancy({
   groups,
 }: {
-  groups: Record<string, InventoryResponse[]>;
+  groups: Record<string, MarketBoardProduct[]>;
 }) {
   const [current, setCurrent] = useState<CurrentHistory | null>(null);
   const [error, setError] = useState<string | null>(null);
 
   // rotation (stable across reloads)
-  const groupsRef = useRef<Record<string, InventoryResponse[]>>({});
+  const groupsRef = useRef<Record<string, MarketBoardProduct[]>>({});
   useEffect(() => {
     groupsRef.current = groups;
   }, [groups]);
   const activeIdxRef = useRef(0);
-  const activeProductRef = useRef<InventoryResponse | null>(null);
+  const activeProductRef = useRef<MarketBoardProduct | null>(null);
 
-  const flatten = useCallback((g: Record<string, InventoryResponse[]>) => {
+  const flatten = useCallback((g: Record<string, MarketBoardProduct[]>) => {
     const catNames = Object.keys(g).sort((a, b) => a.localeCompare(b));
     return catNames.flatMap((name) =>
       [...(g[name] ?? [])].sort((a, b) => a.productId - b.productId),
     );
   }, []);
 
-  const loadPriceHistory = useCallback(async (productInv: InventoryResponse) => {
+  const loadPriceHistory = useCallback(async (productInv: MarketBoardProduct) => {
     if (!productInv) return;
     try {
       setError(null);
+      // One-minute candles over the charted window instead of the whole ledger
+      const from = new Date(Date.now() - HOURS_WINDOW * 3600_000).toISOString();
       const res = await fetch(
-        `/api/backend/inventory/product/${productInv.productId}/history`,
+        `/api/backend/inventory/product/${productInv.productId}/price-series?interval=MINUTE&from=${encodeURIComponent(from)}`,
         {
           cache: "no-store",
           credentials: "include",
         },
       );
       if (!res.ok) throw new Error(`HTTP ${res.status}`);
-      const historyJson: HistoryDto[] = await res.json();
-      setCurrent({ productInv, priceHistory: historyJson });
+      const seriesJson: PriceSeriesDto = await res.json();
+      const priceHistory: HistoryDto[] = (seriesJson.candles ?? []).map((c) => ({
+        createdAt: c.start,
+        priceBefore: c.open,
+        priceAfter: c.close,
+      }));
+      setCurrent({ productInv, priceHistory });
     } catch (e) {
       setError(e?.message || "Failed to fetch history");
     }
@@ -182,7 +199,6 @@ export default function PriceHistoryGraphFancy({
   }, [current]);
 
   // ---- WINDOW: last 1 hour + delta ----
-  const HOURS_WINDOW = 1;
   const {
     data: windowed,
     cutoff,
@@ -4,7 +4,8 @@ import clsx from "clsx";
 import React, { useEffect, useMemo, useRef, useState } from "react";
 import Chart from "./Chart";
 import Image from "next/image";
-import { CategoryResponse, InventoryResponse } from "@/app/generated";
+import { CategoryResponse } from "@/app/generated";
+import { MarketBoard, MarketBoardDelta, MarketBoardProduct } from "./types";
 
 function GoogleG(props: React.SVGProps<SVGSVGElement>) {
   return (
@@ -42,9 +43,25 @@ const sponsors = [
   { name: "anora", logo: "/anora-group-logo-white-CMYK.png" },
 ];
 
+const ORGANIZATION_ID = 2;
+
+const toCategories = (board: MarketBoard): CategoryResponse[] =>
+  (board.categories ?? []).map((c) => ({
+    id: c.categoryId,
+    name: c.categoryName,
+    dynamicPricing: c.dynamicPricing,
+  }));
+
+const toGroups = (board: MarketBoard): Record<string, MarketBoardProduct[]> =>
+  Object.fromEntries(
+    (board.categories ?? [])
+      .filter((c) => c.products.length > 0)
+      .map((c) => [c.categoryName, c.products]),
+  );
+
 export default function ClientProductsByCategory() {
   const [cats, setCats] = useState<CategoryResponse[]>([]);
-  const [groups, setGroups] = useState<Record<string, InventoryResponse[]>>({});
+  const [groups, setGroups] = useState<Record<string, MarketBoardProduct[]>>({});
   const [loading, setLoading] = useState(false);
   const [err, setErr] = useState<string | null>(null);
   const [errStatus, setErrStatus] = useState<number | null>(null);
@@ -67,57 +84,25 @@ export default function ClientProductsByCategory() {
       setLoading(true);
 
       try {
-        const organizationId = 2;
+        const organizationId = ORGANIZATION_ID;
 
-        const cRes = await fetch(
-          `/api/backend/categories?organizationId=${organizationId}`,
+        // Whole board in one request: categories with their products and current prices
+        const res = await fetch(
+          `/api/backend/inventory/board?organizationId=${organizationId}`,
           { cache: "no-store", credentials: "include" },
         );
 
-        if (!cRes.ok) {
-          const e = new Error(`Categories HTTP ${cRes.status}`) as Error & { status: number };
-          e.status = cRes.status;
+        if (!res.ok) {
+          const e = new Error(`Board HTTP ${res.status}`) as Error & { status: number };
+          e.status = res.status;
           throw e;
         }
 
-        const cJson = await cRes.json();
-        const categoryList: CategoryResponse[] = Array.isArray(cJson)
-          ? cJson
-          : (cJson?.items ?? cJson?.content ?? []);
-
-        if (!alive) return;
-        setCats(categoryList);
-
-        const fetches = categoryList.map(async (c) => {
-          const res = await fetch(
-            `/api/backend/inventory?categoryId=${c.id}&organizationId=${organizationId}`,
-            { cache: "no-store", credentials: "include" },
-          );
-
-          if (!res.ok) {
-            const e = new Error(
-              `Inventory HTTP ${res.status} (cat ${c.id})`,
-            ) as Error & { status: number };
-            e.status = res.status;
-            throw e;
-          }
-
-          const j = await res.json();
-          const arr: InventoryResponse[] = Array.isArray(j)
-            ? j
-            : (j?.items ?? j?.content ?? []);
-
-          return [c.name, arr] as const;
-        });
-
-        const results = await Promise.all(fetches);
+        const board: MarketBoard = await res.json();
         if (!alive) return;
 
-        const grouped = Object.fromEntries(
-          results.filter(([, arr]) => arr.length > 0),
-        );
-
-        setGroups(grouped);
+        setCats(toCategories(board));
+        setGroups(toGroups(board));
         setErr(null);
         setErrStatus(null);
       } catch (e) {
@@ -140,8 +125,63 @@ export default function ClientProductsByCategory() {
     load();
     intervalRef.current = window.setInterval(load, 1000 * 15);
 
+    // Live prices: a snapshot on connect, then only the changed products.
+    // Polling is paused while the ticker is connected and resumed if it drops.
+    const protocol = window.location.protocol === "https:" ? "wss" : "ws";
+    const publicBackendUrl = (
+      process.env.NEXT_PUBLIC_BACKEND_URL || "http://localhost:8080"
+    ).replace(/^https?:\/\//, "");
+    const ws = new WebSocket(
+      `${protocol}://${publicBackendUrl}/ws/prices?organizationId=${ORGANIZATION_ID}`,
+    );
+
+    ws.onopen = () => {
+      if (intervalRef.current) clearInterval(intervalRef.current);
+      intervalRef.current = null;
+    };
+
+    ws.onmessage = (event) => {
+      if (!alive) return;
+      try {
+        const message = JSON.parse(event.data);
+
+        if (message.type === "snapshot") {
+          setCats(toCategories(message.board));
+          setGroups(toGroups(message.board));
+          setErr(null);
+          setErrStatus(null);
+        } else if (message.type === "delta") {
+          const changes = new Map<number, MarketBoardDelta>(
+            (message.changes as MarketBoardDelta[]).map((c) => [c.productId, c]),
+          );
+          setGroups((prev) =>
+            Object.fromEntries(
+              Object.entries(prev).map(([name, items]) => [
+                name,
+                items.map((p) => {
+                  const change = changes.get(p.productId);
+                  return change
+                    ? { ...p, quantity: change.quantity, unitPrice: change.unitPrice }
+                    : p;
+                }),
+              ]),
+            ),
+          );
+        }
+      } catch (e) {
+        console.error("Price ticker parse error", e);
+      }
+    };
+
+    ws.onclose = () => {
+      if (alive && !intervalRef.current) {
+        intervalRef.current = window.setInterval(load, 1000 * 15);
+      }
+    };
+
     return () => {
       alive = false;
+      ws.close();
       if (intervalRef.current) clearInterval(intervalRef.current);
       intervalRef.current = null;
     };
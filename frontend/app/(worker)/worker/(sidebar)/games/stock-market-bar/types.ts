@@ -0,0 +1,33 @@
+// Shapes of the market board and of the price ticker's deltas, see
+// GET /inventory/board in the backend's api-spec.yaml
+
+export type MarketBoardProduct = {
+  productId: number;
+  productName: string;
+  description?: string;
+  quantity: number;
+  unitPrice: number;
+  basePrice: number;
+  minPrice?: number;
+  maxPrice?: number;
+  changePercent: number;
+  trend: "UP" | "DOWN" | "FLAT";
+};
+
+export type MarketBoardCategory = {
+  categoryId: number;
+  categoryName: string;
+  dynamicPricing?: boolean;
+  products: MarketBoardProduct[];
+};
+
+export type MarketBoard = {
+  organizationId: number;
+  categories: MarketBoardCategory[];
+};
+
+export type MarketBoardDelta = {
+  productId: number;
+  quantity: number;
+  unitPrice: number;
+};
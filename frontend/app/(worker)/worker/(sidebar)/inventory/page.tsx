@@ -54,6 +54,7 @@ export default function Inventory() {
     InventoryTransactionResponse[]
   >([]);
   const [loadingHistory, setLoadingHistory] = useState(false);
+  const [historyCursor, setHistoryCursor] = useState<string | null>(null);
   const [formData, setFormData] = useState({
     quantity: "",
     notes: "",
@@ -133,11 +134,13 @@ export default function Inventory() {
     }
   };
 
-  const fetchTransactionHistory = async (productId: number) => {
+  // History is paged; a cursor continues after the transactions already shown
+  const fetchTransactionHistory = async (productId: number, cursor?: string) => {
     try {
       setLoadingHistory(true);
+      const params = cursor ? `?cursor=${encodeURIComponent(cursor)}` : "";
       const response = await fetch(
-        `/api/backend/inventory/product/${productId}/history`,
+        `/api/backend/inventory/product/${productId}/history${params}`,
         {
           credentials: "include",
         },
@@ -146,10 +149,13 @@ export default function Inventory() {
       if (!response.ok) throw new Error("Failed to fetch history");
 
       const data = await response.json();
-      setTransactionHistory(data);
+      const items: InventoryTransactionResponse[] = data?.items ?? [];
+      setTransactionHistory((prev) => (cursor ? [...prev, ...items] : items));
+      setHistoryCursor(data?.nextCursor ?? null);
     } catch (err) {
       console.error("Error fetching history:", err);
-      setTransactionHistory([]);
+      if (!cursor) setTransactionHistory([]);
+      setHistoryCursor(null);
     } finally {
       setLoadingHistory(false);
     }
@@ -424,6 +430,7 @@ export default function Inventory() {
     setSelectedProduct(null);
     setFormData({ quantity: "", notes: "", referenceId: "" });
     setTransactionHistory([]);
+    setHistoryCursor(null);
     setLoadingHistory(false);
   };
 
@@ -1329,7 +1336,7 @@ export default function Inventory() {
           <div
             className="max-h-96 overflow-y-auto [&::-webkit-scrollbar]:hidden"
             style={{ scrollbarWidth: "none", msOverflowStyle: "none" }}>
-            {loadingHistory ? (
+            {loadingHistory && transactionHistory.length === 0 ? (
               <div className="text-center py-8">
                 <div className="animate-spin rounded-full h-8 w-8 border-b-2 border-blue-600 mx-auto mb-4"></div>
                 <p className="text-gray-500">Loading transaction history...</p>
@@ -1416,6 +1423,20 @@ export default function Inventory() {
                     )}
                   </div>
                 ))}
+                {historyCursor && selectedProduct && (
+                  <button
+                    type="button"
+                    disabled={loadingHistory}
+                    onClick={() =>
+                      fetchTransactionHistory(
+                        selectedProduct.productId,
+                        historyCursor,
+                      )
+                    }
+                    className="w-full rounded-lg border border-gray-600 py-2 text-sm text-gray-300 hover:bg-gray-800 disabled:opacity-50">
+                    {loadingHistory ? "Loading..." : "Load more"}
+                  </button>
+                )}
               </div>
             )}
           </div>
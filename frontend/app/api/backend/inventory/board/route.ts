@@ -0,0 +1,53 @@
+import { NextRequest, NextResponse } from "next/server";
+import { backendUrl } from "@/utils/constants";
+
+export async function GET(request: NextRequest) {
+    try {
+        const { searchParams } = new URL(request.url);
+        const organizationId = searchParams.get("organizationId");
+
+        const url = new URL(`${backendUrl}/api/inventory/board`);
+        if (organizationId) {
+            url.searchParams.set("organizationId", organizationId);
+        }
+
+        const headers: Record<string, string> = {
+            Cookie: request.headers.get("cookie") || "",
+        };
+        const ifNoneMatch = request.headers.get("if-none-match");
+        if (ifNoneMatch) {
+            headers["If-None-Match"] = ifNoneMatch;
+        }
+
+        const response = await fetch(url.toString(), {
+            method: "GET",
+            headers,
+            credentials: "include",
+            cache: "no-store",
+        });
+
+        // The board is already serialized by the backend; pass it and its ETag through
+        const passThrough = new Headers();
+        for (const name of ["content-type", "etag", "cache-control"]) {
+            const value = response.headers.get(name);
+            if (value) {
+                passThrough.set(name, value);
+            }
+        }
+
+        if (response.status === 304) {
+            return new NextResponse(null, { status: 304, headers: passThrough });
+        }
+
+        return new NextResponse(await response.text(), {
+            status: response.status,
+            headers: passThrough,
+        });
+    } catch (error) {
+        console.error("Proxy error:", error);
+        return NextResponse.json(
+            { error: "Failed to fetch market board" },
+            { status: 500 }
+        );
+    }
+}
@@ -6,8 +6,13 @@ export async function GET(
     { params }: { params: Promise<{ productId: string }> }
 ) {
     try {
+        // Pass paging and filter parameters through
+        const { searchParams } = new URL(request.url);
+        const url = new URL(`${backendUrl}/api/inventory/product/${(await params).productId}/history`);
+        searchParams.forEach((value, key) => url.searchParams.set(key, value));
+
         const response = await fetch(
-            `${backendUrl}/api/inventory/product/${(await params).productId}/history`,
+            url.toString(),
             {
                 method: "GET",
                 headers: {
@@ -0,0 +1,36 @@
+import { NextRequest, NextResponse } from "next/server";
+import { backendUrl } from "@/utils/constants";
+
+export async function GET(
+    request: NextRequest,
+    { params }: { params: Promise<{ productId: string }> }
+) {
+    try {
+        // Pass from, to and interval through
+        const { searchParams } = new URL(request.url);
+        const url = new URL(`${backendUrl}/api/inventory/product/${(await params).productId}/price-series`);
+        searchParams.forEach((value, key) => url.searchParams.set(key, value));
+
+        const response = await fetch(url.toString(), {
+            method: "GET",
+            headers: {
+                Cookie: request.headers.get("cookie") || "",
+            },
+            credentials: "include",
+        });
+
+        if (!response.ok) {
+            const text = await response.text();
+            return new NextResponse(text, { status: response.status });
+        }
+
+        const data = await response.json();
+        return NextResponse.json(data, { status: response.status });
+    } catch (error) {
+        console.error("Proxy error:", error);
+        return NextResponse.json(
+            { error: "Failed to fetch price series" },
+            { status: 500 }
+        );
+    }
+}
@@ -0,0 +1,35 @@
+import { NextRequest, NextResponse } from "next/server";
+import { backendUrl } from "@/utils/constants";
+
+export async function PUT(
+    request: NextRequest,
+    { params }: { params: Promise<{ id: string }> }
+) {
+    const { id } = await params;
+    try {
+        const body = await request.text();
+        const response = await fetch(`${backendUrl}/api/products/${id}/reorder-threshold`, {
+            method: "PUT",
+            headers: {
+                "Content-Type": "application/json",
+                Cookie: request.headers.get("cookie") || "",
+            },
+            body,
+            credentials: "include",
+        });
+
+        if (!response.ok) {
+            const text = await response.text();
+            return new NextResponse(text, { status: response.status });
+        }
+
+        const data = await response.json();
+        return NextResponse.json(data, { status: response.status });
+    } catch (error) {
+        console.error("Proxy error:", error);
+        return NextResponse.json(
+            { error: "Failed to update reorder threshold" },
+            { status: 500 }
+        );
+    }
+}